@@ -0,0 +1,12 @@
+package com.agri.common.command;
+
+import java.util.List;
+
+/**
+ * Release the reservations of many failed orders at once.
+ * The inventory service coalesces the released quantities per product before touching stock rows.
+ */
+public record BulkCompensateInventoryCommand(
+    String batchId,
+    List<String> orderIds
+) {}
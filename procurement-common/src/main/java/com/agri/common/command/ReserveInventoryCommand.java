@@ -2,12 +2,25 @@ package com.agri.common.command;
 
 import java.util.List;
 
+/**
+ * @param deliveryLocation where the order ships to, used to pick the nearest warehouses; {@code null} if unknown
+ */
 public record ReserveInventoryCommand(
     String orderId,
-    List<LineItem> items
+    List<LineItem> items,
+    Location deliveryLocation
 ) {
+    public ReserveInventoryCommand(String orderId, List<LineItem> items) {
+        this(orderId, items, null);
+    }
+
     public record LineItem(
         String productId,
         Integer quantity
     ) {}
+
+    public record Location(
+        double latitude,
+        double longitude
+    ) {}
 }
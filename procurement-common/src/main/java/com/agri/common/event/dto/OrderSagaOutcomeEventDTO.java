@@ -0,0 +1,41 @@
+package com.agri.common.event.dto;
+
+import com.agri.common.event.DomainEvent;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Published by the saga orchestrator on {@code order.events} once the saga of an order
+ * reaches a terminal state.
+ */
+@Getter
+@NoArgsConstructor
+public class OrderSagaOutcomeEventDTO extends DomainEvent {
+
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private String orderId;
+    private String outcome;
+    private String reason;
+
+    public OrderSagaOutcomeEventDTO(String orderId, String outcome, String reason) {
+        super(orderId, 1L);
+        this.orderId = orderId;
+        this.outcome = outcome;
+        this.reason = reason;
+    }
+
+    public static OrderSagaOutcomeEventDTO completed(String orderId) {
+        return new OrderSagaOutcomeEventDTO(orderId, COMPLETED, null);
+    }
+
+    public static OrderSagaOutcomeEventDTO failed(String orderId, String reason) {
+        return new OrderSagaOutcomeEventDTO(orderId, FAILED, reason);
+    }
+
+    @Override
+    public String getEventType() {
+        return "OrderSagaOutcomeEvent";
+    }
+}
@@ -0,0 +1,27 @@
+package com.agri.common.event.dto;
+
+import com.agri.common.event.DomainEvent;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Published by the payment service on {@code payment.events} once an order's payment went through.
+ */
+@Getter
+@NoArgsConstructor
+public class PaymentProcessedEventDTO extends DomainEvent {
+
+    public static final String TOPIC = "payment.events";
+
+    private String orderId;
+
+    public PaymentProcessedEventDTO(String orderId) {
+        super(orderId, 1L);
+        this.orderId = orderId;
+    }
+
+    @Override
+    public String getEventType() {
+        return "PaymentProcessed";
+    }
+}
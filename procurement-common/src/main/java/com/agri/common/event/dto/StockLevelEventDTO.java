@@ -0,0 +1,31 @@
+package com.agri.common.event.dto;
+
+import com.agri.common.event.DomainEvent;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Published by the inventory service on the compacted {@code inventory.stock} topic, keyed by product id,
+ * whenever the available stock of a product changes. Carries the absolute level, so the latest record of a
+ * product is all a consumer needs; a record without a value means the product was removed.
+ */
+@Getter
+@NoArgsConstructor
+public class StockLevelEventDTO extends DomainEvent {
+
+    public static final String TOPIC = "inventory.stock";
+
+    private String productId;
+    private long available;
+
+    public StockLevelEventDTO(String productId, long available) {
+        super(productId, 1L);
+        this.productId = productId;
+        this.available = available;
+    }
+
+    @Override
+    public String getEventType() {
+        return "StockLevelEvent";
+    }
+}
@@ -0,0 +1,249 @@
+package com.agri.common.inbox;
+
+import com.agri.common.kafka.EventHeaders;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Inbox pattern: process each message at most once per consumer.
+ *
+ * A message is identified by its {@link EventHeaders#EVENT_ID} header, or by its
+ * {@code topic-partition@offset} when the producer set none (which still catches redeliveries).
+ * The handler and the inbox entry run in one transaction, so the entry exists exactly when the
+ * side effects were committed. Ids seen recently are kept in a bounded in-memory set, so most
+ * duplicates (redelivery after a rebalance or retry) are rejected without a store lookup.
+ *
+ * With a store that has no transactions (e.g. Mongo) the entry is written right after the handler;
+ * a crash in between re-runs the handler once, so handlers must then be idempotent.
+ *
+ * With a {@link MessageIdFilter}, ids the filter has definitely not seen skip the store lookup. The
+ * filter is per instance: it knows the ids in the store at its last rebuild and those this instance
+ * recorded since. Records of partitions assigned to this instance after the last rebuild started
+ * ({@link #partitionsAssigned}) are therefore always looked up, as their previous owner may have
+ * recorded them, until the next rebuild has read the store. Should an id still slip past (e.g. a
+ * zombie consumer), its entry fails to commit on the primary key, rolling back the handler's
+ * transaction, and the record is handled as a duplicate; side effects outside that transaction,
+ * such as Kafka sends, are not undone. Only use the filter with a transactional store.
+ */
+public class Inbox {
+    
+    private final String consumer;
+    private final InboxStore store;
+    private final TransactionOperations transactions;
+    private final Set<String> recent;
+    private final MessageIdFilter filter;
+    // Partition -> number of the filter rebuild after which its records may skip the lookup
+    private final Map<TopicPartition, Long> assignedUntilRebuild = new ConcurrentHashMap<>();
+    private final AtomicLong rebuildsStarted = new AtomicLong();
+    private volatile long rebuildsCompleted;
+    
+    public Inbox(String consumer, InboxStore store, TransactionOperations transactions, int recentCapacity) {
+        this(consumer, store, transactions, recentCapacity, null);
+    }
+    
+    public Inbox(String consumer, InboxStore store, TransactionOperations transactions, int recentCapacity,
+                 MessageIdFilter filter) {
+        this.consumer = consumer;
+        this.filter = filter;
+        this.store = store;
+        this.transactions = transactions;
+        this.recent = Collections.newSetFromMap(Collections.synchronizedMap(
+            new LinkedHashMap<>(Math.min(recentCapacity, 1024), 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > recentCapacity;
+                }
+            }));
+    }
+    
+    /**
+     * Run {@code handler} for the record unless this consumer already processed it.
+     *
+     * @return {@code true} if the handler ran, {@code false} if the record was a duplicate
+     */
+    public boolean process(ConsumerRecord<?, ?> record, Runnable handler) {
+        return process(record, handler, () -> { });
+    }
+    
+    /**
+     * Like {@link #process(ConsumerRecord, Runnable)}, running {@code onDuplicate} instead of the handler
+     * for duplicates, e.g. to repeat a reply the sender may have missed.
+     */
+    public boolean process(ConsumerRecord<?, ?> record, Runnable handler, Runnable onDuplicate) {
+        String messageId = messageId(record);
+        if (recent.contains(messageId)) {
+            onDuplicate.run();
+            return false;
+        }
+        
+        boolean lookup = mightHaveProcessed(record, messageId);
+        Boolean processed;
+        try {
+            processed = transactions.execute(status -> {
+                if (lookup && exists(messageId)) {
+                    return false;
+                }
+                handler.run();
+                recordId(messageId);
+                return true;
+            });
+        } catch (RuntimeException e) {
+            // Skipped lookup: recorded elsewhere since the last filter rebuild
+            if (lookup || !store.exists(consumer, messageId)) {
+                throw e;
+            }
+            processed = false;
+        }
+        
+        recent.add(messageId);
+        if (!Boolean.TRUE.equals(processed)) {
+            onDuplicate.run();
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Whether this consumer already processed the record. For consumers that apply several records in
+     * one transaction of their own, together with {@link #record}.
+     */
+    public boolean seen(ConsumerRecord<?, ?> record) {
+        String messageId = messageId(record);
+        return recent.contains(messageId) || mightHaveProcessed(record, messageId) && exists(messageId);
+    }
+    
+    /**
+     * Record the message as processed, in the caller's transaction. The id is cached once that transaction
+     * commits (at once if there is none).
+     */
+    public void record(ConsumerRecord<?, ?> record) {
+        String messageId = messageId(record);
+        recordId(messageId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recent.add(messageId);
+                }
+            });
+        } else {
+            recent.add(messageId);
+        }
+    }
+    
+    /**
+     * The records this consumer has not processed yet, in order and without repeated ids, looked up in one
+     * store call. For consumers that apply a whole batch outside a transaction and then {@link #recordAll} it.
+     */
+    public <R extends ConsumerRecord<?, ?>> List<R> unseen(List<R> records) {
+        Map<String, R> candidates = new LinkedHashMap<>();
+        for (R record : records) {
+            String messageId = messageId(record);
+            if (!recent.contains(messageId)) {
+                candidates.putIfAbsent(messageId, record);
+            }
+        }
+        List<String> lookups = candidates.entrySet().stream()
+            .filter(candidate -> mightHaveProcessed(candidate.getValue(), candidate.getKey()))
+            .map(Map.Entry::getKey)
+            .toList();
+        if (!lookups.isEmpty()) {
+            candidates.keySet().removeAll(store.existing(consumer, lookups));
+        }
+        return new ArrayList<>(candidates.values());
+    }
+    
+    /**
+     * Record a batch of messages as processed, in one store call, and cache their ids.
+     */
+    public void recordAll(Collection<? extends ConsumerRecord<?, ?>> records) {
+        List<String> messageIds = records.stream().map(Inbox::messageId).distinct().toList();
+        if (filter != null) {
+            messageIds.forEach(filter::put);
+        }
+        store.recordAll(consumer, messageIds);
+        recent.addAll(messageIds);
+    }
+    
+    /**
+     * Forget entries older than {@code retention}. Redeliveries older than that are processed again.
+     */
+    public int purge(Duration retention) {
+        return store.purge(Instant.now().minus(retention));
+    }
+    
+    /**
+     * Partitions just assigned to this consumer (from the container's rebalance listener). Their records
+     * are looked up in the store until the filter has been rebuilt once more.
+     */
+    public void partitionsAssigned(Collection<TopicPartition> partitions) {
+        if (filter == null) {
+            return;
+        }
+        long untilRebuild = rebuildsStarted.get() + 1;
+        partitions.forEach(partition -> assignedUntilRebuild.put(partition, untilRebuild));
+    }
+    
+    /**
+     * Reload the filter from the store, dropping purged ids. No-op without a filter. Not to be called
+     * concurrently.
+     *
+     * @return the number of ids loaded
+     */
+    public long rebuildFilter() {
+        if (filter == null) {
+            return 0;
+        }
+        long rebuild = rebuildsStarted.incrementAndGet();
+        long loaded = filter.rebuild(action -> store.forEachMessageId(consumer, action));
+        rebuildsCompleted = rebuild;
+        assignedUntilRebuild.values().removeIf(untilRebuild -> untilRebuild <= rebuild);
+        return loaded;
+    }
+    
+    private boolean mightHaveProcessed(ConsumerRecord<?, ?> record, String messageId) {
+        if (filter == null) {
+            return true;
+        }
+        Long untilRebuild = assignedUntilRebuild.get(new TopicPartition(record.topic(), record.partition()));
+        return untilRebuild != null && untilRebuild > rebuildsCompleted || filter.mightContain(messageId);
+    }
+    
+    private boolean exists(String messageId) {
+        boolean exists = store.exists(consumer, messageId);
+        if (!exists && filter != null && filter.isReady()) {
+            filter.falsePositive();
+        }
+        return exists;
+    }
+    
+    /**
+     * The filter learns the id before the entry commits: an entry that then rolls back only costs a false positive.
+     */
+    private void recordId(String messageId) {
+        if (filter != null) {
+            filter.put(messageId);
+        }
+        store.record(consumer, messageId);
+    }
+    
+    public static String messageId(ConsumerRecord<?, ?> record) {
+        String eventId = EventHeaders.eventId(record.headers());
+        return eventId != null ? eventId : record.topic() + "-" + record.partition() + "@" + record.offset();
+    }
+}
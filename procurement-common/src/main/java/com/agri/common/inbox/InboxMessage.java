@@ -0,0 +1,60 @@
+package com.agri.common.inbox;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * A message a consumer has processed, written in the same transaction as the consumer's side effects.
+ * The primary key is {@code consumer:messageId}, so a concurrent duplicate fails to commit.
+ */
+@Entity
+@Table(
+    name = "inbox_messages",
+    indexes = @Index(name = "idx_inbox_messages_processed_at", columnList = "processed_at")
+)
+public class InboxMessage {
+    
+    @Id
+    @Column(name = "id", length = 255)
+    private String id;
+    
+    @Column(name = "consumer", nullable = false, length = 100)
+    private String consumer;
+    
+    @Column(name = "message_id", nullable = false, length = 150)
+    private String messageId;
+    
+    @Column(name = "processed_at", nullable = false)
+    private Instant processedAt;
+    
+    protected InboxMessage() {
+    }
+    
+    public InboxMessage(String consumer, String messageId) {
+        this.id = id(consumer, messageId);
+        this.consumer = consumer;
+        this.messageId = messageId;
+        this.processedAt = Instant.now();
+    }
+    
+    public static String id(String consumer, String messageId) {
+        return consumer + ":" + messageId;
+    }
+    
+    // Getters
+    public String getId() {
+        return id;
+    }
+    
+    public String getConsumer() {
+        return consumer;
+    }
+    
+    public String getMessageId() {
+        return messageId;
+    }
+    
+    public Instant getProcessedAt() {
+        return processedAt;
+    }
+}
@@ -0,0 +1,53 @@
+package com.agri.common.inbox;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Durable record of processed message ids, per consumer.
+ */
+public interface InboxStore {
+    
+    boolean exists(String consumer, String messageId);
+    
+    /**
+     * Record a processed message. Called inside the consumer's transaction, if the store has one.
+     */
+    void record(String consumer, String messageId);
+    
+    /**
+     * The given message ids that are recorded. Stores that can look them up in one round trip override this.
+     */
+    default Set<String> existing(String consumer, Collection<String> messageIds) {
+        Set<String> existing = new HashSet<>();
+        for (String messageId : messageIds) {
+            if (exists(consumer, messageId)) {
+                existing.add(messageId);
+            }
+        }
+        return existing;
+    }
+    
+    /**
+     * Record several processed messages; ids already recorded are ignored. Stores that can write them in one
+     * round trip override this.
+     */
+    default void recordAll(String consumer, Collection<String> messageIds) {
+        messageIds.forEach(messageId -> record(consumer, messageId));
+    }
+    
+    /**
+     * Pass every recorded message id of {@code consumer} to {@code action}, for rebuilding a {@link MessageIdFilter}.
+     */
+    void forEachMessageId(String consumer, Consumer<String> action);
+    
+    /**
+     * Forget messages processed before {@code cutoff}.
+     *
+     * @return the number of entries removed
+     */
+    int purge(Instant cutoff);
+}
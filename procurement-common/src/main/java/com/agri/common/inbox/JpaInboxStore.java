@@ -0,0 +1,51 @@
+package com.agri.common.inbox;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * {@link InboxStore} on the consumer's own database, in table {@code inbox_messages}.
+ * Services using it must include {@code com.agri.common.inbox} in their entity scan.
+ */
+public class JpaInboxStore implements InboxStore {
+    
+    private final EntityManager entityManager;
+    
+    public JpaInboxStore(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+    
+    @Override
+    public boolean exists(String consumer, String messageId) {
+        return entityManager.find(InboxMessage.class, InboxMessage.id(consumer, messageId)) != null;
+    }
+    
+    @Override
+    public void record(String consumer, String messageId) {
+        entityManager.persist(new InboxMessage(consumer, messageId));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachMessageId(String consumer, Consumer<String> action) {
+        try (Stream<String> messageIds = entityManager
+                .createQuery("SELECT m.messageId FROM InboxMessage m WHERE m.consumer = :consumer", String.class)
+                .setParameter("consumer", consumer)
+                .setHint("org.hibernate.fetchSize", 10000)
+                .getResultStream()) {
+            messageIds.forEach(action);
+        }
+    }
+    
+    @Override
+    @Transactional
+    public int purge(Instant cutoff) {
+        return entityManager.createQuery("DELETE FROM InboxMessage m WHERE m.processedAt < :cutoff")
+            .setParameter("cutoff", cutoff)
+            .executeUpdate();
+    }
+}
@@ -0,0 +1,166 @@
+package com.agri.common.inbox;
+
+import com.agri.common.util.Hashing;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Bloom filter over the message ids an {@link Inbox} has recorded, so first deliveries (nearly all
+ * of them) skip the store lookup. A negative answer is definite; a positive one is checked against
+ * the store.
+ *
+ * The filter is sized for {@code expectedInsertions} ids at the target false-positive rate and is
+ * rebuilt from the store periodically, which drops purged ids. Until the first rebuild every answer
+ * is positive. Ids recorded while a rebuild reads the store go into both filters; an id recorded in
+ * the short window before a rebuild starts may be missing from the new one, which {@link Inbox}
+ * tolerates because the store's primary key still rejects the second entry.
+ *
+ * Thread-safe.
+ */
+public class MessageIdFilter {
+
+    private final int numBits;
+    private final int numHashes;
+
+    private volatile Bits current;
+    private volatile Bits building;
+    private volatile boolean ready;
+
+    private final LongAdder negatives = new LongAdder();
+    private final LongAdder positives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    public MessageIdFilter(long expectedInsertions, double falsePositiveRate) {
+        double bits = -expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        this.numBits = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, Math.ceil(bits)));
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+        this.current = new Bits(numBits);
+    }
+
+    /**
+     * @return {@code false} if the id was definitely never recorded
+     */
+    public boolean mightContain(String messageId) {
+        if (!ready) {
+            return true;
+        }
+        boolean found = current.contains(messageId, numHashes);
+        (found ? positives : negatives).increment();
+        return found;
+    }
+
+    public void put(String messageId) {
+        current.put(messageId, numHashes);
+        Bits next = building;
+        if (next != null) {
+            next.put(messageId, numHashes);
+        }
+    }
+
+    /**
+     * A positive answer the store did not confirm.
+     */
+    public void falsePositive() {
+        falsePositives.increment();
+    }
+
+    /**
+     * Replace the filter with one holding exactly the ids {@code source} passes to its argument.
+     * If {@code source} fails, the current filter stays in place.
+     *
+     * @return the number of ids loaded
+     */
+    public long rebuild(Consumer<Consumer<String>> source) {
+        Bits next = new Bits(numBits);
+        long[] loaded = new long[1];
+        building = next;
+        try {
+            source.accept(messageId -> {
+                next.put(messageId, numHashes);
+                loaded[0]++;
+            });
+            current = next;
+            ready = true;
+        } finally {
+            building = null;
+        }
+        return loaded[0];
+    }
+
+    /**
+     * Observed rate of positive answers the store did not confirm, among lookups of ids not in the store.
+     */
+    public double falsePositiveRate() {
+        long fp = falsePositives.sum();
+        long trueNegatives = negatives.sum();
+        return fp + trueNegatives == 0 ? 0 : (double) fp / (fp + trueNegatives);
+    }
+
+    /**
+     * Store lookups skipped on a negative answer.
+     */
+    public long skippedLookups() {
+        return negatives.sum();
+    }
+
+    /**
+     * Size of the bit array; twice this while a rebuild runs.
+     */
+    public long sizeInBytes() {
+        return (long) current.words.length() * Long.BYTES;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private static final class Bits {
+
+        private final AtomicLongArray words;
+        private final int numBits;
+
+        Bits(int numBits) {
+            this.words = new AtomicLongArray((numBits + 63) / 64);
+            this.numBits = numBits;
+        }
+
+        void put(String messageId, int numHashes) {
+            long hash = hash64(messageId);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= numHashes; i++) {
+                int bit = Math.floorMod(h1 + i * h2, numBits);
+                long mask = 1L << bit;
+                int word = bit >>> 6;
+                long value;
+                while (((value = words.get(word)) & mask) == 0
+                    && !words.compareAndSet(word, value, value | mask)) {
+                    // Lost a race with another bit in the same word; retry
+                }
+            }
+        }
+
+        boolean contains(String messageId, int numHashes) {
+            long hash = hash64(messageId);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= numHashes; i++) {
+                int bit = Math.floorMod(h1 + i * h2, numBits);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * {@link Hashing#hash64} of the id; the two halves serve as the two base hashes of the double-hashing
+         * scheme.
+         */
+        private static long hash64(String messageId) {
+            return Hashing.hash64(messageId);
+        }
+    }
+}
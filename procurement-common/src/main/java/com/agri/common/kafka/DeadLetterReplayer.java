@@ -0,0 +1,174 @@
+package com.agri.common.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Bulk replay of dead-lettered records back to their original topic.
+ * 
+ * Records are copied byte-for-byte (key, value and business headers), so the replayer works
+ * for any serialization format. Retry and dead-letter bookkeeping headers are stripped so the
+ * replayed record starts a fresh retry cycle. Progress is tracked with a dedicated consumer group,
+ * so repeated invocations continue where the previous one stopped.
+ * 
+ * Dead-letter topics are expected to follow the {@code <topic>-dlt} naming convention.
+ */
+public class DeadLetterReplayer {
+    
+    public static final String DLT_SUFFIX = "-dlt";
+    public static final String REPLAYED_FROM_HEADER = "agri-replayed-from";
+    
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+    private static final List<String> STRIPPED_HEADER_PREFIXES = List.of("kafka_dlt-", "retry_topic-");
+    
+    private final String bootstrapServers;
+    private final String replayGroupId;
+    
+    public DeadLetterReplayer(String bootstrapServers, String replayGroupId) {
+        this.bootstrapServers = bootstrapServers;
+        this.replayGroupId = replayGroupId;
+    }
+    
+    /**
+     * Replay up to {@code maxRecords} records from the dead-letter topic of {@code topic}.
+     * 
+     * @param topic the original topic or its dead-letter topic
+     * @param maxRecords upper bound of records to replay in this invocation
+     * @return a summary of the replay
+     */
+    public synchronized ReplayResult replay(String topic, int maxRecords) {
+        String dltTopic = topic.endsWith(DLT_SUFFIX) ? topic : topic + DLT_SUFFIX;
+        String targetTopic = dltTopic.substring(0, dltTopic.length() - DLT_SUFFIX.length());
+        
+        try (KafkaConsumer<byte[], byte[]> consumer = new KafkaConsumer<>(consumerProperties());
+             KafkaProducer<byte[], byte[]> producer = new KafkaProducer<>(producerProperties())) {
+            
+            List<PartitionInfo> partitionInfos = consumer.partitionsFor(dltTopic);
+            if (partitionInfos == null || partitionInfos.isEmpty()) {
+                return new ReplayResult(dltTopic, targetTopic, 0, 0);
+            }
+            
+            List<TopicPartition> partitions = partitionInfos.stream()
+                .map(info -> new TopicPartition(info.topic(), info.partition()))
+                .toList();
+            consumer.assign(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            
+            Map<TopicPartition, OffsetAndMetadata> toCommit = new HashMap<>();
+            List<Future<RecordMetadata>> sends = new ArrayList<>();
+            int replayed = 0;
+            
+            while (replayed < maxRecords && !caughtUp(consumer, endOffsets)) {
+                ConsumerRecords<byte[], byte[]> records = consumer.poll(POLL_TIMEOUT);
+                for (ConsumerRecord<byte[], byte[]> record : records) {
+                    if (replayed >= maxRecords) {
+                        break;
+                    }
+                    sends.add(producer.send(new ProducerRecord<>(
+                        targetTopic, null, record.key(), record.value(), replayHeaders(record, dltTopic))));
+                    toCommit.put(
+                        new TopicPartition(record.topic(), record.partition()),
+                        new OffsetAndMetadata(record.offset() + 1));
+                    replayed++;
+                }
+            }
+            
+            producer.flush();
+            awaitSends(sends);
+            if (!toCommit.isEmpty()) {
+                consumer.commitSync(toCommit);
+            }
+            
+            long remaining = endOffsets.entrySet().stream()
+                .mapToLong(entry -> entry.getValue() - consumer.position(entry.getKey()))
+                .map(lag -> Math.max(lag, 0))
+                .sum();
+            return new ReplayResult(dltTopic, targetTopic, replayed, remaining);
+        }
+    }
+    
+    /**
+     * Offsets are only committed once every replayed record was acknowledged,
+     * so a failed replay is retried from the same position on the next invocation.
+     */
+    private void awaitSends(List<Future<RecordMetadata>> sends) {
+        for (Future<RecordMetadata> send : sends) {
+            try {
+                send.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while replaying dead letters", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to replay dead letter", e.getCause());
+            }
+        }
+    }
+    
+    private boolean caughtUp(KafkaConsumer<byte[], byte[]> consumer, Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream()
+            .allMatch(entry -> consumer.position(entry.getKey()) >= entry.getValue());
+    }
+    
+    private RecordHeaders replayHeaders(ConsumerRecord<byte[], byte[]> record, String dltTopic) {
+        RecordHeaders headers = new RecordHeaders();
+        for (Header header : record.headers()) {
+            if (STRIPPED_HEADER_PREFIXES.stream().noneMatch(header.key()::startsWith)) {
+                headers.add(header);
+            }
+        }
+        headers.add(REPLAYED_FROM_HEADER, dltTopic.getBytes(StandardCharsets.UTF_8));
+        return headers;
+    }
+    
+    private Properties consumerProperties() {
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, replayGroupId);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        return props;
+    }
+    
+    private Properties producerProperties() {
+        Properties props = new Properties();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        return props;
+    }
+    
+    public record ReplayResult(
+        String deadLetterTopic,
+        String targetTopic,
+        int replayed,
+        long remaining
+    ) {}
+}
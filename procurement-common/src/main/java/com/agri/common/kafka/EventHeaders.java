@@ -0,0 +1,82 @@
+package com.agri.common.kafka;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Kafka header conventions shared by all producers and consumers.
+ *
+ * Every event and command carries its logical type in the {@value #EVENT_TYPE} header
+ * (e.g. {@code OrderCreatedEvent}, {@code ReserveInventoryCommand}), so consumers can route
+ * or skip a record without touching its payload.
+ */
+public final class EventHeaders {
+
+    public static final String EVENT_TYPE = "agri-event-type";
+
+    /**
+     * Producer-assigned message id: the {@code eventId} of domain events, a deterministic id for commands.
+     * Consumers deduplicate on it (see {@code com.agri.common.inbox.Inbox}).
+     */
+    public static final String EVENT_ID = "agri-event-id";
+
+    /**
+     * Type header written by Spring's {@code JsonSerializer}; used as a fallback for records
+     * produced before the {@value #EVENT_TYPE} header was introduced.
+     */
+    public static final String SPRING_TYPE_ID = "__TypeId__";
+
+    private EventHeaders() {
+    }
+
+    /**
+     * Build a producer record that carries {@code eventType} in the {@value #EVENT_TYPE} header.
+     */
+    public static <K, V> ProducerRecord<K, V> record(String topic, K key, V value, String eventType) {
+        ProducerRecord<K, V> record = new ProducerRecord<>(topic, key, value);
+        record.headers().add(EVENT_TYPE, eventType.getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+
+    /**
+     * Build a producer record that also carries {@code eventId} in the {@value #EVENT_ID} header.
+     */
+    public static <K, V> ProducerRecord<K, V> record(String topic, K key, V value, String eventType, String eventId) {
+        ProducerRecord<K, V> record = record(topic, key, value, eventType);
+        record.headers().add(EVENT_ID, eventId.getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+
+    /**
+     * @return the producer-assigned message id, or {@code null} if the record carries none
+     */
+    public static String eventId(Headers headers) {
+        Header header = headers.lastHeader(EVENT_ID);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Resolve the event type from the record headers.
+     *
+     * @return the event type, or {@code null} if the record carries no type header
+     */
+    public static String eventType(Headers headers) {
+        Header header = headers.lastHeader(EVENT_TYPE);
+        if (header != null) {
+            return new String(header.value(), StandardCharsets.UTF_8);
+        }
+        Header typeId = headers.lastHeader(SPRING_TYPE_ID);
+        if (typeId != null) {
+            return simpleName(new String(typeId.value(), StandardCharsets.UTF_8));
+        }
+        return null;
+    }
+
+    static String simpleName(String className) {
+        int separator = Math.max(className.lastIndexOf('.'), className.lastIndexOf('$'));
+        return separator < 0 ? className : className.substring(separator + 1);
+    }
+}
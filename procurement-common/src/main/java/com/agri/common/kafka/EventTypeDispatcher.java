@@ -0,0 +1,203 @@
+package com.agri.common.kafka;
+
+import com.agri.common.event.DomainEvent;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Routes raw JSON records to typed handlers based on the {@link EventHeaders#EVENT_TYPE} header.
+ *
+ * Each registered type gets its own cached {@link ObjectReader}, so the payload is parsed exactly
+ * once and only when a handler exists for it. Records whose type is not registered are skipped
+ * without parsing. Records without a type header (produced before the header convention) are
+ * parsed once into a tree and routed by their {@code eventType} or {@code @type} property.
+ *
+ * Payloads are bound to the consumer's own classes: the producer's {@code @type} class name is
+ * ignored, as are properties the consumer does not know about.
+ *
+ * Instances are immutable and thread-safe; build one per listener with {@link #builder(ObjectMapper)}.
+ */
+public final class EventTypeDispatcher {
+
+    private final ObjectMapper treeMapper;
+    private final Map<String, Route<?>> routes;
+
+    private EventTypeDispatcher(ObjectMapper treeMapper, Map<String, Route<?>> routes) {
+        this.treeMapper = treeMapper;
+        this.routes = Map.copyOf(routes);
+    }
+
+    public static Builder builder(ObjectMapper objectMapper) {
+        return new Builder(objectMapper);
+    }
+
+    /**
+     * Dispatch a record to the handler registered for its event type.
+     *
+     * @return {@code true} if a handler processed the record, {@code false} if it was skipped
+     * @throws SerializationException if the payload cannot be bound to the handler's type
+     */
+    public boolean dispatch(ConsumerRecord<?, String> record) {
+        String eventType = EventHeaders.eventType(record.headers());
+        if (eventType != null) {
+            Route<?> route = routes.get(eventType);
+            if (route == null) {
+                return false;
+            }
+            route.handle(record.value());
+            return true;
+        }
+
+        JsonNode tree = readTree(record);
+        eventType = typeFromPayload(tree);
+        Route<?> route = eventType == null ? null : routes.get(eventType);
+        if (route == null) {
+            return false;
+        }
+        route.handle(tree);
+        return true;
+    }
+
+    /**
+     * Bind a record to the type registered for its event type without invoking the handler, for
+     * listeners that collect a batch of records before acting on them.
+     *
+     * @return the bound value, or {@code null} if no type is registered for the record
+     * @throws SerializationException if the payload cannot be bound to the registered type
+     */
+    public Object convert(ConsumerRecord<?, String> record) {
+        String eventType = EventHeaders.eventType(record.headers());
+        if (eventType != null) {
+            Route<?> route = routes.get(eventType);
+            return route == null ? null : route.read(record.value());
+        }
+
+        JsonNode tree = readTree(record);
+        eventType = typeFromPayload(tree);
+        Route<?> route = eventType == null ? null : routes.get(eventType);
+        return route == null ? null : route.read(tree);
+    }
+
+    /**
+     * Whether {@link #dispatch} would hand the record to a handler, decided on the header alone.
+     * Records without a type header cannot be decided without parsing and are reported as handled.
+     */
+    public boolean handles(ConsumerRecord<?, ?> record) {
+        String eventType = EventHeaders.eventType(record.headers());
+        return eventType == null || routes.containsKey(eventType);
+    }
+
+    /**
+     * Event type of the record as seen by this dispatcher, without parsing the payload.
+     */
+    public static String eventType(ConsumerRecord<?, ?> record) {
+        String eventType = EventHeaders.eventType(record.headers());
+        return eventType == null ? "unknown" : eventType;
+    }
+
+    private JsonNode readTree(ConsumerRecord<?, String> record) {
+        try {
+            return treeMapper.readTree(record.value());
+        } catch (IOException e) {
+            throw new SerializationException("Unreadable payload on " + record.topic()
+                + "-" + record.partition() + "@" + record.offset(), e);
+        }
+    }
+
+    private static String typeFromPayload(JsonNode tree) {
+        if (tree == null) {
+            return null;
+        }
+        JsonNode eventType = tree.get("eventType");
+        if (eventType != null && eventType.isTextual()) {
+            return eventType.asText();
+        }
+        JsonNode typeId = tree.get("@type");
+        if (typeId != null && typeId.isTextual()) {
+            return EventHeaders.simpleName(typeId.asText());
+        }
+        return null;
+    }
+
+    private record Route<T>(ObjectReader reader, Consumer<? super T> handler) {
+
+        void handle(String payload) {
+            handler.accept(read(payload));
+        }
+
+        void handle(JsonNode tree) {
+            handler.accept(read(tree));
+        }
+
+        T read(String payload) {
+            try {
+                return reader.readValue(payload);
+            } catch (IOException e) {
+                throw new SerializationException("Cannot bind payload to " + reader.getValueType(), e);
+            }
+        }
+
+        T read(JsonNode tree) {
+            try {
+                return reader.readValue(tree);
+            } catch (IOException e) {
+                throw new SerializationException("Cannot bind payload to " + reader.getValueType(), e);
+            }
+        }
+    }
+
+    /**
+     * Disables the class-name type id of {@link DomainEvent}: consumers bind to their own classes.
+     */
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NONE)
+    private abstract static class UntypedDomainEvent {
+    }
+
+    public static final class Builder {
+
+        private final ObjectMapper mapper;
+        private final Map<String, Route<?>> routes = new HashMap<>();
+
+        private Builder(ObjectMapper objectMapper) {
+            this.mapper = objectMapper.copy()
+                .addMixIn(DomainEvent.class, UntypedDomainEvent.class)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        }
+
+        /**
+         * Register a handler for {@code type}.
+         *
+         * @param eventTypes header values routed to this handler; defaults to the simple class name
+         */
+        public <T> Builder on(Class<T> type, Consumer<? super T> handler, String... eventTypes) {
+            Route<T> route = new Route<>(mapper.readerFor(type), handler);
+            if (eventTypes.length == 0) {
+                register(type.getSimpleName(), route);
+            }
+            for (String eventType : eventTypes) {
+                register(eventType, route);
+            }
+            return this;
+        }
+
+        private void register(String eventType, Route<?> route) {
+            if (routes.putIfAbsent(eventType, route) != null) {
+                throw new IllegalStateException("Duplicate handler for event type " + eventType);
+            }
+        }
+
+        public EventTypeDispatcher build() {
+            return new EventTypeDispatcher(mapper, routes);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.agri.common.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * String hashing shared by the in-memory structures that key on ids, such as the inbox filter and the stock
+ * snapshot.
+ */
+public final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes of {@code value}, finished with the MurmurHash3 fmix64 mixer so that
+     * every input bit affects both halves of the result.
+     */
+    public static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
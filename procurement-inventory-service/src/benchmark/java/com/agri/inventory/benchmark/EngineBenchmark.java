@@ -0,0 +1,134 @@
+package com.agri.inventory.benchmark;
+
+import com.agri.common.command.CompensateInventoryCommand;
+import com.agri.common.command.ReserveInventoryCommand;
+import com.agri.inventory.InventoryServiceApplication;
+import com.agri.inventory.application.InventoryEngine;
+import com.agri.inventory.domain.InventoryItem;
+import com.agri.inventory.infrastructure.repository.InventoryItemRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Plain harness comparing the inventory engines on one workload: {@code threads} threads reserve {@code orders}
+ * single-line orders spread over {@code products} products through {@link InventoryEngine}, as the command
+ * listener would, then release them again. The products are seeded with enough stock for every order.
+ *
+ * Each engine runs in its own application context against the Postgres and Kafka of docker-compose, with the
+ * Kafka listeners not started; result events are still sent. A warm-up of a tenth of the orders precedes each
+ * measured run.
+ *
+ * <pre>./gradlew :procurement-inventory-service:engineBenchmark -Porders=20000 -Pthreads=16 -Pproducts=50</pre>
+ */
+public final class EngineBenchmark {
+    
+    private static final String PRODUCT_PREFIX = "BENCH-";
+    
+    private EngineBenchmark() {
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int orders = Integer.getInteger("benchmark.orders", 20_000);
+        int threads = Integer.getInteger("benchmark.threads", 16);
+        int products = Integer.getInteger("benchmark.products", 50);
+        Path journalDir = Files.createTempDirectory("inventory-ledger-benchmark");
+        
+        System.out.printf("%d orders, %d threads, %d products%n", orders, threads, products);
+        for (String engine : List.of("jpa", "ledger")) {
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(InventoryServiceApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .properties(
+                        "procurement.inventory.engine=" + engine,
+                        "procurement.inventory.ledger.journal-dir=" + journalDir,
+                        "procurement.inventory.stock-feed.enabled=false",
+                        "spring.kafka.listener.auto-startup=false")
+                    .run(args)) {
+                if (engine.equals("jpa")) {
+                    // The ledger engine loads its stock on startup and must own it, so seed before it runs
+                    seed(context.getBean(InventoryItemRepository.class), products, orders + orders / 10);
+                }
+                InventoryEngine inventoryEngine = context.getBean(InventoryEngine.class);
+                run(inventoryEngine, engine, orders / 10, threads, products);
+                Result result = run(inventoryEngine, engine, orders, threads, products);
+                System.out.printf("%-6s reserve: %,8.0f orders/s  p50 %7.3f ms  p99 %7.3f ms  max %7.3f ms%n",
+                    engine, result.throughput(), result.percentile(0.50), result.percentile(0.99), result.percentile(1.0));
+            }
+        }
+    }
+    
+    private static void seed(InventoryItemRepository repository, int products, int units) {
+        List<InventoryItem> items = new ArrayList<>();
+        for (int i = 0; i < products; i++) {
+            String productId = PRODUCT_PREFIX + i;
+            items.add(repository.findByProductId(productId)
+                .orElseGet(() -> new InventoryItem(UUID.randomUUID().toString(), productId, "Benchmark " + productId,
+                    0, 0, null, null)));
+        }
+        items.forEach(item -> {
+            item.setAvailableQuantity(units);
+            item.setReservedQuantity(0);
+        });
+        repository.saveAll(items);
+    }
+    
+    /**
+     * Reserve {@code orders} orders, timing each, then release them untimed.
+     */
+    private static Result run(InventoryEngine engine, String name, int orders, int threads, int products)
+            throws Exception {
+        String runId = name + "-" + UUID.randomUUID();
+        long[] latencies = new long[orders];
+        long started = System.nanoTime();
+        parallel(orders, threads, i -> {
+            long reserveStarted = System.nanoTime();
+            engine.reserveInventory(new ReserveInventoryCommand(runId + "-" + i,
+                List.of(new ReserveInventoryCommand.LineItem(PRODUCT_PREFIX + (i % products), 1))));
+            latencies[i] = System.nanoTime() - reserveStarted;
+        });
+        long elapsed = System.nanoTime() - started;
+        parallel(orders, threads, i -> engine.releaseInventory(new CompensateInventoryCommand(runId + "-" + i)));
+        Arrays.sort(latencies);
+        return new Result(orders * 1e9 / elapsed, latencies);
+    }
+    
+    private static void parallel(int count, int threads, IntConsumer task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            AtomicInteger next = new AtomicInteger();
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                workers.add(executor.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+                        task.accept(i);
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    private record Result(double throughput, long[] sortedLatencies) {
+        
+        double percentile(double p) {
+            int index = (int) Math.min(sortedLatencies.length - 1, Math.ceil(p * sortedLatencies.length) - 1);
+            return sortedLatencies[Math.max(index, 0)] / 1e6;
+        }
+    }
+}
@@ -2,10 +2,12 @@ package com.agri.inventory;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableRetry
+@EnableScheduling
+@EntityScan(basePackages = {"com.agri.inventory.domain", "com.agri.common.inbox"})
 public class InventoryServiceApplication {
 
     public static void main(String[] args) {
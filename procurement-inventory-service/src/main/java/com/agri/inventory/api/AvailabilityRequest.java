@@ -0,0 +1,28 @@
+package com.agri.inventory.api;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record AvailabilityRequest(
+    @NotEmpty(message = "Items are required")
+    @Size(max = 1000, message = "At most 1000 items per request")
+    @Valid
+    List<Line> items
+) {
+    /**
+     * @param quantity quantity to check for; {@code null} only asks for the stock level
+     */
+    public record Line(
+        @NotBlank(message = "Product ID is required")
+        String productId,
+        
+        @Min(value = 1, message = "Quantity must be at least 1")
+        Integer quantity
+    ) {
+    }
+}
@@ -0,0 +1,21 @@
+package com.agri.inventory.api;
+
+import java.util.List;
+
+public record AvailabilityResponse(
+    boolean allAvailable,
+    List<Line> items
+) {
+    /**
+     * @param found     whether the product exists
+     * @param available whether {@code availableQuantity} covers the requested quantity
+     */
+    public record Line(
+        String productId,
+        boolean found,
+        long availableQuantity,
+        Integer requestedQuantity,
+        boolean available
+    ) {
+    }
+}
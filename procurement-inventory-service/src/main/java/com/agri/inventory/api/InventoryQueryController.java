@@ -0,0 +1,68 @@
+package com.agri.inventory.api;
+
+import com.agri.inventory.application.StockCache;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stock levels and availability checks, served from {@link StockCache}: no request reads or locks
+ * stock rows. Figures may trail other instances by up to {@code procurement.inventory.stock-cache.refresh-interval}
+ * and are a hint, not a reservation.
+ */
+@RestController
+@RequestMapping("/api/v1/inventory")
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryQueryController {
+
+    private final StockCache stockCache;
+
+    @GetMapping("/{productId}")
+    public ResponseEntity<StockResponse> getStock(@PathVariable String productId) {
+        if (!stockCache.isLoaded()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return stockCache.get(productId)
+            .map(StockResponse::from)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Check many products at once. Lines without a quantity only report the stock level.
+     */
+    @PostMapping("/availability")
+    public ResponseEntity<AvailabilityResponse> checkAvailability(@Valid @RequestBody AvailabilityRequest request) {
+        if (!stockCache.isLoaded()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        Map<String, StockCache.StockLevel> levels = stockCache.getAll(
+            request.items().stream().map(AvailabilityRequest.Line::productId).toList());
+
+        List<AvailabilityResponse.Line> lines = request.items().stream()
+            .map(item -> {
+                StockCache.StockLevel level = levels.get(item.productId());
+                long available = level == null ? 0 : level.available();
+                int requested = item.quantity() == null ? 0 : item.quantity();
+                return new AvailabilityResponse.Line(
+                    item.productId(),
+                    level != null,
+                    available,
+                    item.quantity(),
+                    level != null && available >= requested
+                );
+            })
+            .toList();
+
+        log.debug("Checked availability of {} products", lines.size());
+        return ResponseEntity.ok(new AvailabilityResponse(
+            lines.stream().allMatch(AvailabilityResponse.Line::available), lines));
+    }
+}
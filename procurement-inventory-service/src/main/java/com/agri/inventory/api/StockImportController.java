@@ -0,0 +1,48 @@
+package com.agri.inventory.api;
+
+import com.agri.inventory.infrastructure.importer.StockImporter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.Locale;
+
+/**
+ * Supplier stock files, streamed straight from the request body into {@link StockImporter}.
+ */
+@RestController
+@RequestMapping("/api/v1/inventory/imports")
+@ConditionalOnProperty(name = "procurement.inventory.engine", havingValue = "jpa", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class StockImportController {
+
+    private final StockImporter stockImporter;
+
+    /**
+     * {@code curl -X POST 'localhost:8084/api/v1/inventory/imports?mode=set&source=supplier-42'
+     * -H 'Content-Type: text/csv' --data-binary @stock.csv}
+     */
+    @PostMapping(consumes = {"text/csv", "application/octet-stream"})
+    public ResponseEntity<StockImportResponse> importStock(
+            InputStream body,
+            @RequestParam(defaultValue = "set") String mode,
+            @RequestParam(defaultValue = "upload") String source) {
+        StockImporter.ImportMode importMode;
+        try {
+            importMode = StockImporter.ImportMode.valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            return ResponseEntity.ok(StockImportResponse.from(stockImporter.importStock(body, importMode, source)));
+        } catch (IllegalArgumentException e) {
+            log.warn("{}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
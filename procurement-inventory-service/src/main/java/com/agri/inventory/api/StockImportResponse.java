@@ -0,0 +1,25 @@
+package com.agri.inventory.api;
+
+import com.agri.inventory.infrastructure.importer.StockImporter;
+
+public record StockImportResponse(
+    StockImporter.ImportMode mode,
+    long rows,
+    int created,
+    int updated,
+    long skipped,
+    long durationMillis,
+    long rowsPerSecond
+) {
+    public static StockImportResponse from(StockImporter.ImportResult result) {
+        return new StockImportResponse(
+            result.mode(),
+            result.rows(),
+            result.created(),
+            result.updated(),
+            result.skipped(),
+            result.duration().toMillis(),
+            result.rowsPerSecond()
+        );
+    }
+}
@@ -0,0 +1,19 @@
+package com.agri.inventory.api;
+
+import com.agri.inventory.application.StockCache;
+
+public record StockResponse(
+    String productId,
+    String productName,
+    long availableQuantity,
+    long reservedQuantity
+) {
+    public static StockResponse from(StockCache.StockLevel level) {
+        return new StockResponse(
+            level.productId(),
+            level.productName(),
+            level.available(),
+            level.reserved()
+        );
+    }
+}
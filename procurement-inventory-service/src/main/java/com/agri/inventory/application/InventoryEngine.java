@@ -0,0 +1,29 @@
+package com.agri.inventory.application;
+
+import com.agri.common.command.BulkCompensateInventoryCommand;
+import com.agri.common.command.CompensateInventoryCommand;
+import com.agri.common.command.ReserveInventoryCommand;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Applies inventory commands to stock, selected with {@code procurement.inventory.engine}:
+ * {@link InventoryService} ({@code jpa}, the default) changes the stock rows in a transaction per command,
+ * {@code LedgerEngine} ({@code ledger}) keeps the stock in memory behind a journal.
+ */
+public interface InventoryEngine {
+    
+    void reserveInventory(ReserveInventoryCommand command);
+    
+    void releaseInventory(CompensateInventoryCommand command);
+    
+    void releaseInventoryBulk(BulkCompensateInventoryCommand command);
+    
+    /**
+     * Repeat the reply to an order's reserve command (duplicate reserve command): the success reply if the
+     * order holds reservations, and, where the engine remembers refusals, the failure reply if it was refused.
+     *
+     * @return the send of the repeated reply, or a completed future if there was nothing to repeat
+     */
+    CompletableFuture<?> republishReservation(String orderId);
+}
@@ -1,123 +1,142 @@
 package com.agri.inventory.application;
 
+import com.agri.common.command.BulkCompensateInventoryCommand;
 import com.agri.common.command.CompensateInventoryCommand;
 import com.agri.common.command.ReserveInventoryCommand;
+import com.agri.inventory.domain.FailedReservation;
 import com.agri.inventory.domain.InventoryItem;
 import com.agri.inventory.domain.Reservation;
+import com.agri.inventory.domain.WarehouseStock;
+import com.agri.inventory.event.InventoryHoldExpiredEvent;
 import com.agri.inventory.event.InventoryReservationFailedEvent;
 import com.agri.inventory.event.InventoryReservedEvent;
 import com.agri.inventory.infrastructure.kafka.EventPublisher;
+import com.agri.inventory.infrastructure.repository.FailedReservationRepository;
 import com.agri.inventory.infrastructure.repository.InventoryItemRepository;
 import com.agri.inventory.infrastructure.repository.ReservationRepository;
 import com.agri.inventory.observability.InventoryMetrics;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
+@ConditionalOnProperty(name = "procurement.inventory.engine", havingValue = "jpa", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
-public class InventoryService {
+public class InventoryService implements InventoryEngine {
     
     private final InventoryItemRepository inventoryItemRepository;
     private final ReservationRepository reservationRepository;
+    private final FailedReservationRepository failedReservationRepository;
     private final EventPublisher eventPublisher;
     private final InventoryMetrics metrics;
+    private final StripedStock stripedStock;
+    private final WarehouseAllocator warehouseAllocator;
+    private final ApplicationEventPublisher applicationEvents;
+    
+    @Value("${procurement.inventory.reservation.mode:locking}")
+    private ReservationMode reservationMode;
+    
+    @Value("${procurement.inventory.reservation.hold-ttl:PT30M}")
+    private Duration holdTtl;
     
     /**
      * Reserve inventory for an order.
      * This is a transactional operation that checks availability, creates reservations,
-     * and deducts from available quantity.
+     * and deducts from available quantity. Products are always taken in product order, so the order
+     * of the buyer's lines does not decide the lock order. Lines repeating a product are checked
+     * against their combined quantity. An unexpected error rolls the whole transaction back, stock moved to
+     * stripes and warehouse rows included, and is answered with a failure event.
+     * Callers deduplicate commands (see {@code CommandListener}).
      */
+    @Override
     @Transactional
     public void reserveInventory(ReserveInventoryCommand command) {
         MDC.put("orderId", command.orderId());
         log.info("Processing inventory reservation for order: {}", command.orderId());
+        long started = System.nanoTime();
+        boolean reserved = false;
         
         try {
-            // Check for idempotency - if reservation already exists, treat as success
-            List<Reservation> existingReservations = reservationRepository.findByOrderId(command.orderId());
-            if (!existingReservations.isEmpty()) {
-                log.info("Reservation already exists for order: {}, treating as idempotent request", command.orderId());
-                publishSuccessEvent(command.orderId(), existingReservations);
-                metrics.incSuccess();
-                return;
-            }
+            // Duplicate commands are filtered by the command inbox before reaching this point
             
-            // Validate all items have sufficient inventory
-            List<InventoryItem> itemsToReserve = new ArrayList<>();
+            Map<String, Integer> requestedByProduct = new TreeMap<>();
             for (ReserveInventoryCommand.LineItem item : command.items()) {
-                Optional<InventoryItem> inventoryItemOpt = 
-                    inventoryItemRepository.findByProductIdWithLock(item.productId());
-                
-                if (inventoryItemOpt.isEmpty()) {
-                    String reason = String.format("Product not found: %s", item.productId());
-                    log.warn("Inventory reservation failed for order {}: {}", command.orderId(), reason);
-                    eventPublisher.publishInventoryReservationFailedEvent(
-                        new InventoryReservationFailedEvent(command.orderId(), reason)
-                    );
-                    metrics.incFail();
-                    return;
-                }
-                
-                InventoryItem inventoryItem = inventoryItemOpt.get();
-                if (!inventoryItem.hasAvailableQuantity(item.quantity())) {
-                    String reason = String.format(
-                        "Insufficient inventory for product %s (%s). Available: %d, Requested: %d",
-                        inventoryItem.getProductId(),
-                        inventoryItem.getProductName(),
-                        inventoryItem.getAvailableQuantity(),
-                        item.quantity()
-                    );
-                    log.warn("Inventory reservation failed for order {}: {}", command.orderId(), reason);
-                    eventPublisher.publishInventoryReservationFailedEvent(
-                        new InventoryReservationFailedEvent(command.orderId(), reason)
-                    );
-                    metrics.incFail();
-                    return;
-                }
-                
-                itemsToReserve.add(inventoryItem);
+                requestedByProduct.merge(item.productId(), item.quantity(), Integer::sum);
             }
             
-            // All items are available, proceed with reservation
-            List<Reservation> reservations = new ArrayList<>();
-            for (int i = 0; i < command.items().size(); i++) {
-                ReserveInventoryCommand.LineItem item = command.items().get(i);
-                InventoryItem inventoryItem = itemsToReserve.get(i);
-                
-                // Reserve inventory
-                inventoryItem.reserve(item.quantity());
-                inventoryItemRepository.save(inventoryItem);
-                
-                // Create reservation record
-                Reservation reservation = new Reservation(
-                    UUID.randomUUID().toString(),
-                    command.orderId(),
-                    item.productId(),
-                    item.quantity()
+            // Striped products first, then warehoused ones, then the product rows (see WarehouseAllocator)
+            stripedStock.sync(requestedByProduct.keySet());
+            Map<String, Integer> stripeByProduct = new HashMap<>();
+            Map<String, Map<String, Integer>> warehousesByProduct = new HashMap<>();
+            String failure = reserveStriped(requestedByProduct, command.orderId(), stripeByProduct);
+            if (failure == null) {
+                failure = reserveWarehoused(requestedByProduct, command.deliveryLocation(),
+                    stripeByProduct, warehousesByProduct);
+            }
+            if (failure == null) {
+                Map<String, Integer> unstriped = new TreeMap<>(requestedByProduct);
+                unstriped.keySet().removeAll(stripeByProduct.keySet());
+                unstriped.keySet().removeAll(warehousesByProduct.keySet());
+                failure = reservationMode == ReservationMode.CONDITIONAL
+                    ? reserveWithUpdates(unstriped)
+                    : reserveWithLocks(unstriped);
+            }
+            if (failure != null) {
+                releaseTaken(requestedByProduct, stripeByProduct, warehousesByProduct);
+                log.warn("Inventory reservation failed for order {}: {}", command.orderId(), failure);
+                failedReservationRepository.save(new FailedReservation(command.orderId(), failure, Instant.now()));
+                eventPublisher.publishInventoryReservationFailedEvent(
+                    new InventoryReservationFailedEvent(command.orderId(), failure)
                 );
-                reservations.add(reservationRepository.save(reservation));
-                
+                metrics.incFail();
+                return;
+            }
+            
+            // Stock is reserved, record the reservations of each line
+            List<Reservation> reservations = newReservations(command, stripeByProduct, warehousesByProduct);
+            for (ReserveInventoryCommand.LineItem item : command.items()) {
                 log.info("Reserved {} units of product {} for order {}", 
                     item.quantity(), item.productId(), command.orderId());
             }
+            reservations = reservationRepository.saveAll(reservations);
+            applicationEvents.publishEvent(new StockChangedEvent(requestedByProduct));
             
             // Publish success event
             publishSuccessEvent(command.orderId(), reservations);
             metrics.incSuccess();
+            reserved = true;
             log.info("Successfully reserved inventory for order: {}", command.orderId());
             
         } catch (Exception e) {
             log.error("Error processing inventory reservation for order {}: {}", 
                 command.orderId(), e.getMessage(), e);
+            // Stripes and warehouse rows were updated in place: undo them with the rest of the transaction
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             eventPublisher.publishInventoryReservationFailedEvent(
                 new InventoryReservationFailedEvent(
                     command.orderId(), 
@@ -126,47 +145,227 @@ public class InventoryService {
             );
             metrics.incFail();
         } finally {
+            metrics.recordReservation(System.nanoTime() - started, reserved);
             MDC.remove("orderId");
         }
     }
     
+    /**
+     * Reserve the products listed as striped, each from one of its stripes.
+     *
+     * @return the failure reason, or {@code null} if all striped products were reserved
+     */
+    private String reserveStriped(Map<String, Integer> requestedByProduct, String orderId,
+                                  Map<String, Integer> stripeByProduct) {
+        for (Map.Entry<String, Integer> requested : requestedByProduct.entrySet()) {
+            if (!stripedStock.isStriped(requested.getKey())) {
+                continue;
+            }
+            int stripe = stripedStock.reserve(requested.getKey(), requested.getValue(), orderId);
+            if (stripe == StripedStock.INSUFFICIENT) {
+                return insufficientStripedInventory(requested.getKey(), requested.getValue());
+            }
+            if (stripe >= 0) {
+                stripeByProduct.put(requested.getKey(), stripe);
+            }
+            // NOT_STRIPED: demoted since the last refresh, reserved on its product row instead
+        }
+        return null;
+    }
+    
+    /**
+     * Reserve the warehoused products not taken from stripes, each across the warehouses
+     * {@link WarehouseAllocator} picks for the delivery location.
+     *
+     * @return the failure reason, or {@code null} if all warehoused products were reserved
+     */
+    private String reserveWarehoused(Map<String, Integer> requestedByProduct,
+                                     ReserveInventoryCommand.Location deliveryLocation,
+                                     Map<String, Integer> stripeByProduct,
+                                     Map<String, Map<String, Integer>> warehousesByProduct) {
+        for (Map.Entry<String, Integer> requested : requestedByProduct.entrySet()) {
+            if (stripeByProduct.containsKey(requested.getKey()) || !warehouseAllocator.isWarehoused(requested.getKey())) {
+                continue;
+            }
+            Map<String, Integer> taken = warehouseAllocator.reserve(
+                requested.getKey(), requested.getValue(), deliveryLocation);
+            if (taken == null) {
+                return String.format(
+                    "Insufficient inventory for product %s. Available: %d, Requested: %d",
+                    requested.getKey(), warehouseAllocator.totalAvailable(requested.getKey()), requested.getValue());
+            }
+            warehousesByProduct.put(requested.getKey(), taken);
+        }
+        return null;
+    }
+    
+    /**
+     * Give back what a reservation that failed took from stripes and warehouses.
+     */
+    private void releaseTaken(Map<String, Integer> requestedByProduct, Map<String, Integer> stripeByProduct,
+                              Map<String, Map<String, Integer>> warehousesByProduct) {
+        stripeByProduct.forEach((productId, stripe) ->
+            stripedStock.release(productId, stripe, requestedByProduct.get(productId)));
+        Map<String, Integer> releasedByRow = new TreeMap<>();
+        warehousesByProduct.forEach((productId, taken) -> taken.forEach((warehouseId, quantity) ->
+            releasedByRow.put(WarehouseStock.id(productId, warehouseId), quantity)));
+        warehouseAllocator.release(releasedByRow);
+    }
+    
+    /**
+     * One reservation per line, remembering its stripe. A line of a warehoused product gets one reservation
+     * per warehouse it is taken from, filling the lines of the product from its warehouses in allocation order.
+     */
+    private List<Reservation> newReservations(ReserveInventoryCommand command, Map<String, Integer> stripeByProduct,
+                                              Map<String, Map<String, Integer>> warehousesByProduct) {
+        Map<String, Iterator<Map.Entry<String, Integer>>> allocations = new HashMap<>();
+        warehousesByProduct.forEach((productId, taken) ->
+            allocations.put(productId, new LinkedHashMap<>(taken).entrySet().iterator()));
+        Map<String, Map.Entry<String, Integer>> current = new HashMap<>();
+        
+        List<Reservation> reservations = new ArrayList<>();
+        for (ReserveInventoryCommand.LineItem item : command.items()) {
+            Iterator<Map.Entry<String, Integer>> warehouses = allocations.get(item.productId());
+            if (warehouses == null) {
+                Reservation reservation = newReservation(command.orderId(), item.productId(), item.quantity());
+                reservation.setStripeIndex(stripeByProduct.get(item.productId()));
+                reservations.add(reservation);
+                continue;
+            }
+            int remaining = item.quantity();
+            while (remaining > 0) {
+                Map.Entry<String, Integer> warehouse = current.get(item.productId());
+                if (warehouse == null || warehouse.getValue() == 0) {
+                    warehouse = warehouses.next();
+                    current.put(item.productId(), warehouse);
+                }
+                int quantity = Math.min(remaining, warehouse.getValue());
+                Reservation reservation = newReservation(command.orderId(), item.productId(), quantity);
+                reservation.setWarehouseId(warehouse.getKey());
+                reservations.add(reservation);
+                warehouse.setValue(warehouse.getValue() - quantity);
+                remaining -= quantity;
+            }
+        }
+        return reservations;
+    }
+    
+    private Reservation newReservation(String orderId, String productId, int quantity) {
+        Reservation reservation = new Reservation(UUID.randomUUID().toString(), orderId, productId, quantity);
+        reservation.setExpiresAt(holdExpiry());
+        return reservation;
+    }
+    
+    /**
+     * Lock every requested product in one sorted query, validate, then reserve on the managed entities.
+     * Striped products were taken from their stripes before; one found striped on its row now was striped
+     * after {@link StripedStock#sync} and fails, since its stripes cannot be locked after its row.
+     *
+     * @return the failure reason, or {@code null} if all products were reserved
+     */
+    private String reserveWithLocks(Map<String, Integer> requestedByProduct) {
+        return reserveLocked(lockItems(requestedByProduct.keySet()), requestedByProduct);
+    }
+    
+    private String reserveLocked(Map<String, InventoryItem> lockedItems, Map<String, Integer> requestedByProduct) {
+        // Validate all items have sufficient inventory
+        for (Map.Entry<String, Integer> requested : requestedByProduct.entrySet()) {
+            InventoryItem inventoryItem = lockedItems.get(requested.getKey());
+            if (inventoryItem == null) {
+                return String.format("Product not found: %s", requested.getKey());
+            }
+            if (inventoryItem.isStriped()) {
+                return stripedWhileReserving(requested.getKey());
+            }
+            if (!inventoryItem.hasAvailableQuantity(requested.getValue())) {
+                return insufficientInventory(inventoryItem, requested.getValue());
+            }
+        }
+        
+        // Locked items are managed; the changes are flushed on commit
+        requestedByProduct.forEach((productId, quantity) -> lockedItems.get(productId).reserve(quantity));
+        return null;
+    }
+    
+    /**
+     * Reserve each product with one conditional update, holding its row lock only from the statement to
+     * the commit. If a product cannot be reserved, the products already reserved are released again in
+     * the same transaction, so the failure is reported and the command's inbox entry still commits.
+     *
+     * @return the failure reason, or {@code null} if all products were reserved
+     */
+    private String reserveWithUpdates(Map<String, Integer> requestedByProduct) {
+        Map<String, Integer> reserved = new TreeMap<>();
+        for (Map.Entry<String, Integer> requested : requestedByProduct.entrySet()) {
+            int updated = metrics.timeLock("items", List.of(requested.getKey()),
+                () -> inventoryItemRepository.reserveAvailable(requested.getKey(), requested.getValue()));
+            if (updated == 0) {
+                reserved.forEach(inventoryItemRepository::releaseReserved);
+                return inventoryItemRepository.findByProductId(requested.getKey())
+                    .map(inventoryItem -> inventoryItem.isStriped()
+                        ? stripedWhileReserving(requested.getKey())
+                        : insufficientInventory(inventoryItem, requested.getValue()))
+                    .orElseGet(() -> String.format("Product not found: %s", requested.getKey()));
+            }
+            reserved.put(requested.getKey(), requested.getValue());
+        }
+        return null;
+    }
+    
+    private static String stripedWhileReserving(String productId) {
+        return String.format("Product %s was striped while the order was being reserved", productId);
+    }
+    
+    private static String insufficientInventory(InventoryItem inventoryItem, int requested) {
+        return String.format(
+            "Insufficient inventory for product %s (%s). Available: %d, Requested: %d",
+            inventoryItem.getProductId(),
+            inventoryItem.getProductName(),
+            inventoryItem.getAvailableQuantity(),
+            requested
+        );
+    }
+    
+    private String insufficientStripedInventory(String productId, int requested) {
+        return String.format(
+            "Insufficient inventory for product %s. Available: %d, Requested: %d",
+            productId,
+            inventoryItemRepository.findTotalAvailable(productId).orElse(0L),
+            requested
+        );
+    }
+    
     /**
      * Release inventory reservation for an order (SAGA compensation).
      * This adds the quantity back to available inventory and deletes the reservations.
      */
+    @Override
     @Transactional
     public void releaseInventory(CompensateInventoryCommand command) {
         MDC.put("orderId", command.orderId());
         log.info("Processing inventory release (compensation) for order: {}", command.orderId());
         
         try {
-            List<Reservation> reservations = reservationRepository.findByOrderId(command.orderId());
+            // Locked like the sweeper and bulk compensation do: a concurrent releaser of the order waits,
+            // then finds nothing left
+            List<Reservation> reservations = reservationRepository.findByOrderIdInWithLock(List.of(command.orderId()));
             
             if (reservations.isEmpty()) {
                 log.info("No reservations found for order: {}, nothing to compensate", command.orderId());
                 return;
             }
             
-            // Release each reservation
-            for (Reservation reservation : reservations) {
-                Optional<InventoryItem> inventoryItemOpt = 
-                    inventoryItemRepository.findByProductIdWithLock(reservation.getProductId());
-                
-                if (inventoryItemOpt.isPresent()) {
-                    InventoryItem inventoryItem = inventoryItemOpt.get();
-                    inventoryItem.release(reservation.getQuantity());
-                    inventoryItemRepository.save(inventoryItem);
-                    
-                    log.info("Released {} units of product {} for order {}", 
-                        reservation.getQuantity(), reservation.getProductId(), command.orderId());
-                } else {
-                    log.warn("Inventory item not found for product: {}, skipping release", 
-                        reservation.getProductId());
-                }
+            // Release in product order, the same lock order reservations use
+            Map<String, Integer> releasedByProduct = releaseStripesAndWarehouses(reservations);
+            if (reservationMode == ReservationMode.CONDITIONAL) {
+                releaseWithUpdates(releasedByProduct);
+            } else {
+                releaseWithLocks(releasedByProduct);
             }
             
             // Delete reservations
             reservationRepository.deleteAll(reservations);
+            applicationEvents.publishEvent(stockReleased(reservations));
             metrics.incCompensation();
             log.info("Successfully released inventory for order: {} ({} items)", 
                 command.orderId(), reservations.size());
@@ -180,12 +379,368 @@ public class InventoryService {
         }
     }
     
-    private void publishSuccessEvent(String orderId, List<Reservation> reservations) {
+    /**
+     * Release the reservations of many orders at once (bulk SAGA compensation).
+     * Quantities are summed per product and each product row gets one conditional update,
+     * applied in product order so concurrent batches always lock rows in the same order.
+     */
+    @Override
+    @Transactional
+    public void releaseInventoryBulk(BulkCompensateInventoryCommand command) {
+        List<Reservation> reservations = reservationRepository.findByOrderIdInWithLock(command.orderIds());
+        
+        if (reservations.isEmpty()) {
+            log.info("No reservations found for bulk compensation {}, nothing to compensate", command.batchId());
+            return;
+        }
+        
+        Map<String, Integer> releasedByProduct = releaseStripesAndWarehouses(reservations);
+        releaseWithUpdates(releasedByProduct);
+        
+        reservationRepository.deleteByOrderIds(command.orderIds());
+        applicationEvents.publishEvent(stockReleased(reservations));
+        long orders = reservations.stream().map(Reservation::getOrderId).distinct().count();
+        metrics.incCompensations((int) orders);
+        log.info("Bulk compensation {} released {} orders across {} products",
+            command.batchId(), orders, reservations.stream().map(Reservation::getProductId).distinct().count());
+    }
+    
+    /**
+     * Release the reservations taken from stripes, in product and stripe order, then those taken from
+     * warehouses, and return the quantities of the others per product (sorted) for release on the product rows.
+     */
+    private Map<String, Integer> releaseStripesAndWarehouses(List<Reservation> reservations) {
+        Map<String, Map<Integer, Integer>> releasedByStripe = new TreeMap<>();
+        Map<String, Integer> releasedByWarehouse = new TreeMap<>();
+        Map<String, Integer> releasedByProduct = new TreeMap<>();
+        for (Reservation reservation : reservations) {
+            if (reservation.getStripeIndex() != null) {
+                releasedByStripe.computeIfAbsent(reservation.getProductId(), productId -> new TreeMap<>())
+                    .merge(reservation.getStripeIndex(), reservation.getQuantity(), Integer::sum);
+            } else if (reservation.getWarehouseId() != null) {
+                releasedByWarehouse.merge(WarehouseStock.id(reservation.getProductId(), reservation.getWarehouseId()),
+                    reservation.getQuantity(), Integer::sum);
+            } else {
+                releasedByProduct.merge(reservation.getProductId(), reservation.getQuantity(), Integer::sum);
+            }
+        }
+        releasedByStripe.forEach((productId, stripes) ->
+            stripes.forEach((stripe, quantity) -> stripedStock.release(productId, stripe, quantity)));
+        warehouseAllocator.release(releasedByWarehouse);
+        return releasedByProduct;
+    }
+    
+    private void releaseWithLocks(Map<String, Integer> releasedByProduct) {
+        releaseLocked(lockItems(releasedByProduct.keySet()), releasedByProduct);
+    }
+    
+    private void releaseLocked(Map<String, InventoryItem> lockedItems, Map<String, Integer> releasedByProduct) {
+        for (Map.Entry<String, Integer> release : releasedByProduct.entrySet()) {
+            InventoryItem inventoryItem = lockedItems.get(release.getKey());
+            if (inventoryItem != null) {
+                inventoryItem.release(release.getValue());
+            } else {
+                log.warn("Inventory item not found for product: {}, skipping release", release.getKey());
+            }
+        }
+    }
+    
+    /**
+     * One conditional update per product, in the iteration order of {@code releasedByProduct}
+     * (callers pass a sorted map).
+     */
+    private void releaseWithUpdates(Map<String, Integer> releasedByProduct) {
+        for (Map.Entry<String, Integer> release : releasedByProduct.entrySet()) {
+            int updated = metrics.timeLock("items", List.of(release.getKey()),
+                () -> inventoryItemRepository.releaseReserved(release.getKey(), release.getValue()));
+            if (updated == 0) {
+                if (inventoryItemRepository.existsByProductId(release.getKey())) {
+                    throw new IllegalStateException(String.format(
+                        "Cannot release more than reserved for product %s. Release requested: %d",
+                        release.getKey(), release.getValue()));
+                }
+                log.warn("Inventory item not found for product: {}, skipping release", release.getKey());
+            }
+        }
+    }
+    
+    /**
+     * Apply the reserve and compensation commands of one poll in a single transaction (batch consumer mode).
+     * <ol>
+     *   <li>in delivery order, striped and warehoused products of each reserve command are taken from their
+     *       stripes and warehouses, and those of orders compensated from earlier batches are released (before
+     *       the product rows, as for a single command)</li>
+     *   <li>the product rows touched by any command are locked once, in product order</li>
+     *   <li>the commands are applied to the locked rows in delivery order, so each one sees the stock left by
+     *       the commands before it; a compensation of an order reserved earlier in the batch releases that
+     *       reservation</li>
+     * </ol>
+     * A reservation that cannot be satisfied fails on its own. Any exception rolls back the whole batch.
+     * Rows are always locked, whatever {@code procurement.inventory.reservation.mode} says: the lock is
+     * taken once per batch, not per command.
+     *
+     * @param commands {@link ReserveInventoryCommand}, {@link CompensateInventoryCommand} and
+     *                 {@link BulkCompensateInventoryCommand} in delivery order
+     * @return the result events, for the caller to publish once the transaction has committed
+     */
+    @Transactional
+    public BatchOutcome processBatch(List<?> commands) {
+        Set<String> compensatedOrderIds = new HashSet<>();
+        for (Object command : commands) {
+            if (command instanceof CompensateInventoryCommand compensate) {
+                compensatedOrderIds.add(compensate.orderId());
+            } else if (command instanceof BulkCompensateInventoryCommand bulk) {
+                compensatedOrderIds.addAll(bulk.orderIds());
+            }
+        }
+        Map<String, List<Reservation>> storedByOrder = compensatedOrderIds.isEmpty()
+            ? new HashMap<>()
+            : reservationRepository.findByOrderIdInWithLock(compensatedOrderIds).stream()
+                .collect(Collectors.groupingBy(Reservation::getOrderId));
+        
+        // Stripes, and the rows each step will touch
+        stripedStock.sync(commands.stream()
+            .filter(ReserveInventoryCommand.class::isInstance)
+            .flatMap(command -> ((ReserveInventoryCommand) command).items().stream())
+            .map(ReserveInventoryCommand.LineItem::productId)
+            .collect(Collectors.toSet()));
+        List<BatchStep> steps = new ArrayList<>();
+        List<Reservation> released = new ArrayList<>();
+        Set<String> touchedProducts = new TreeSet<>();
+        for (Object command : commands) {
+            if (command instanceof ReserveInventoryCommand reserve) {
+                Map<String, Integer> requestedByProduct = new TreeMap<>();
+                for (ReserveInventoryCommand.LineItem item : reserve.items()) {
+                    requestedByProduct.merge(item.productId(), item.quantity(), Integer::sum);
+                }
+                Map<String, Integer> stripeByProduct = new HashMap<>();
+                Map<String, Map<String, Integer>> warehousesByProduct = new HashMap<>();
+                String failure = reserveStriped(requestedByProduct, reserve.orderId(), stripeByProduct);
+                if (failure == null) {
+                    failure = reserveWarehoused(requestedByProduct, reserve.deliveryLocation(),
+                        stripeByProduct, warehousesByProduct);
+                }
+                if (failure != null) {
+                    releaseTaken(requestedByProduct, stripeByProduct, warehousesByProduct);
+                    steps.add(new ReserveStep(reserve, requestedByProduct, Map.of(), Map.of(), failure));
+                } else {
+                    requestedByProduct.keySet().stream()
+                        .filter(productId -> !stripeByProduct.containsKey(productId)
+                            && !warehousesByProduct.containsKey(productId))
+                        .forEach(touchedProducts::add);
+                    steps.add(new ReserveStep(reserve, requestedByProduct, stripeByProduct, warehousesByProduct, null));
+                }
+            } else if (command instanceof CompensateInventoryCommand compensate) {
+                steps.add(releaseStep(compensate.orderId(), storedByOrder, released, touchedProducts));
+            } else if (command instanceof BulkCompensateInventoryCommand bulk) {
+                bulk.orderIds().forEach(orderId ->
+                    steps.add(releaseStep(orderId, storedByOrder, released, touchedProducts)));
+            } else {
+                throw new IllegalArgumentException("Not an inventory command: " + command);
+            }
+        }
+        
+        Map<String, InventoryItem> lockedItems = touchedProducts.isEmpty() ? Map.of() : lockItems(touchedProducts);
+        
+        Map<String, List<Reservation>> reservedByOrder = new LinkedHashMap<>();
+        Map<String, Integer> stockChanges = new HashMap<>();
+        List<InventoryReservedEvent> reservedEvents = new ArrayList<>();
+        List<InventoryReservationFailedEvent> failedEvents = new ArrayList<>();
+        for (BatchStep step : steps) {
+            if (step instanceof ReserveStep reserve) {
+                String orderId = reserve.command().orderId();
+                String failure = reserve.failure();
+                if (failure == null) {
+                    Map<String, Integer> unstriped = new TreeMap<>(reserve.requested());
+                    unstriped.keySet().removeAll(reserve.stripeByProduct().keySet());
+                    unstriped.keySet().removeAll(reserve.warehousesByProduct().keySet());
+                    failure = reserveLocked(lockedItems, unstriped);
+                    if (failure != null) {
+                        releaseTaken(reserve.requested(), reserve.stripeByProduct(), reserve.warehousesByProduct());
+                    }
+                }
+                if (failure != null) {
+                    log.warn("Inventory reservation failed for order {}: {}", orderId, failure);
+                    failedEvents.add(new InventoryReservationFailedEvent(orderId, failure));
+                    metrics.incFail();
+                    continue;
+                }
+                List<Reservation> reservations = newReservations(
+                    reserve.command(), reserve.stripeByProduct(), reserve.warehousesByProduct());
+                reservedByOrder.put(orderId, reservations);
+                reserve.requested().forEach((productId, quantity) -> stockChanges.merge(productId, quantity, Integer::sum));
+                reservedEvents.add(new InventoryReservedEvent(orderId, reservations.stream()
+                    .map(r -> new InventoryReservedEvent.ReservedItem(r.getProductId(), r.getQuantity()))
+                    .toList()));
+                metrics.incSuccess();
+            } else if (step instanceof ReleaseStep release) {
+                releaseLocked(lockedItems, release.releasedByProduct());
+                // Reserved earlier in this batch: its rows are locked as well, as the reservation touched them
+                List<Reservation> reservedInBatch = reservedByOrder.remove(release.orderId());
+                if (reservedInBatch != null) {
+                    releaseLocked(lockedItems, releaseStripesAndWarehouses(reservedInBatch));
+                    reservedInBatch.forEach(r -> stockChanges.merge(r.getProductId(), -r.getQuantity(), Integer::sum));
+                }
+                if (release.stored() || reservedInBatch != null) {
+                    metrics.incCompensation();
+                }
+            }
+        }
+        
+        reservationRepository.deleteAll(released);
+        reservationRepository.saveAll(reservedByOrder.values().stream().flatMap(List::stream).toList());
+        if (!failedEvents.isEmpty()) {
+            Instant failedAt = Instant.now();
+            failedReservationRepository.saveAll(failedEvents.stream()
+                .map(event -> new FailedReservation(event.getOrderId(), event.getReason(), failedAt))
+                .toList());
+        }
+        released.forEach(r -> stockChanges.merge(r.getProductId(), -r.getQuantity(), Integer::sum));
+        if (!stockChanges.isEmpty()) {
+            applicationEvents.publishEvent(new StockChangedEvent(stockChanges));
+        }
+        log.info("Applied batch of {} commands: {} reserved, {} failed, {} reservations released",
+            commands.size(), reservedEvents.size(), failedEvents.size(), released.size());
+        return new BatchOutcome(reservedEvents, failedEvents);
+    }
+    
+    private ReleaseStep releaseStep(String orderId, Map<String, List<Reservation>> storedByOrder,
+                                    List<Reservation> released, Set<String> touchedProducts) {
+        List<Reservation> reservations = storedByOrder.remove(orderId);
+        if (reservations == null) {
+            return new ReleaseStep(orderId, Map.of(), false);
+        }
+        released.addAll(reservations);
+        Map<String, Integer> releasedByProduct = releaseStripesAndWarehouses(reservations);
+        touchedProducts.addAll(releasedByProduct.keySet());
+        return new ReleaseStep(orderId, releasedByProduct, true);
+    }
+    
+    /**
+     * The order was paid, or its saga completed: its reservations become permanent and are no longer swept.
+     * Repeating this for an order whose expiry is already cleared changes nothing.
+     */
+    @Transactional
+    public void confirmReservations(String orderId) {
+        if (reservationRepository.clearExpiry(orderId) == 0 && reservationRepository.findByOrderId(orderId).isEmpty()) {
+            log.warn("Order {} confirmed without reservations; its hold may have expired", orderId);
+        }
+    }
+    
+    /**
+     * Release up to {@code batchSize} expired holds, oldest first, together with the other lines of their
+     * orders. Holds locked by a concurrent sweep or compensation are skipped. Products are released in
+     * product order, like a compensation.
+     *
+     * @return one event per released order, for the caller to publish once the transaction has committed
+     */
+    @Transactional
+    public List<InventoryHoldExpiredEvent> releaseExpired(int batchSize) {
+        List<String> orderIds = reservationRepository.lockExpired(Instant.now(), batchSize).stream()
+            .map(Reservation::getOrderId)
+            .distinct()
+            .toList();
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        List<Reservation> reservations = reservationRepository.findByOrderIdInWithLock(orderIds);
+        
+        Map<String, Integer> releasedByProduct = releaseStripesAndWarehouses(reservations);
+        if (reservationMode == ReservationMode.CONDITIONAL) {
+            releaseWithUpdates(releasedByProduct);
+        } else {
+            releaseWithLocks(releasedByProduct);
+        }
+        reservationRepository.deleteAll(reservations);
+        applicationEvents.publishEvent(stockReleased(reservations));
+        
+        List<InventoryHoldExpiredEvent> events = reservations.stream()
+            .collect(Collectors.groupingBy(Reservation::getOrderId, LinkedHashMap::new, Collectors.mapping(
+                r -> new InventoryReservedEvent.ReservedItem(r.getProductId(), r.getQuantity()), Collectors.toList())))
+            .entrySet().stream()
+            .map(order -> new InventoryHoldExpiredEvent(order.getKey(), order.getValue()))
+            .toList();
+        log.info("Released {} expired holds across {} products",
+            events.size(), reservations.stream().map(Reservation::getProductId).distinct().count());
+        return events;
+    }
+    
+    private Instant holdExpiry() {
+        return holdTtl.isZero() ? null : Instant.now().plus(holdTtl);
+    }
+    
+    /**
+     * Answer a duplicate reserve command: repeat the success event if the order holds reservations, or the
+     * failure event if its reservation was refused, since the orchestrator may have missed the first reply.
+     * An order whose reservations were released since has nothing to repeat.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public CompletableFuture<?> republishReservation(String orderId) {
+        List<Reservation> reservations = reservationRepository.findByOrderId(orderId);
+        if (!reservations.isEmpty()) {
+            log.info("Reservation already exists for order: {}, repeating success event", orderId);
+            return publishSuccessEvent(orderId, reservations);
+        }
+        return failedReservationRepository.findById(orderId)
+            .<CompletableFuture<?>>map(failed -> {
+                log.info("Reservation was refused for order: {}, repeating failure event", orderId);
+                return eventPublisher.publishInventoryReservationFailedEvent(
+                    new InventoryReservationFailedEvent(orderId, failed.getReason()));
+            })
+            .orElseGet(() -> CompletableFuture.completedFuture(null));
+    }
+    
+    /**
+     * Forget refused reservations older than {@code retention}; their duplicates are no longer recognised.
+     *
+     * @return the number of rows deleted
+     */
+    @Transactional
+    public int purgeFailedReservations(Duration retention) {
+        return failedReservationRepository.deleteFailedBefore(Instant.now().minus(retention));
+    }
+    
+    private static StockChangedEvent stockReleased(List<Reservation> reservations) {
+        Map<String, Integer> released = new HashMap<>();
+        reservations.forEach(r -> released.merge(r.getProductId(), -r.getQuantity(), Integer::sum));
+        return new StockChangedEvent(released);
+    }
+    
+    private Map<String, InventoryItem> lockItems(Collection<String> productIds) {
+        return metrics.timeLock("items", productIds, () -> inventoryItemRepository.findByProductIdInWithLock(productIds))
+            .stream()
+            .collect(Collectors.toMap(InventoryItem::getProductId, Function.identity()));
+    }
+    
+    /**
+     * Result events of {@link #processBatch}.
+     */
+    public record BatchOutcome(List<InventoryReservedEvent> reserved, List<InventoryReservationFailedEvent> failed) {
+    }
+    
+    private sealed interface BatchStep permits ReserveStep, ReleaseStep {
+    }
+    
+    private record ReserveStep(ReserveInventoryCommand command, Map<String, Integer> requested,
+                               Map<String, Integer> stripeByProduct,
+                               Map<String, Map<String, Integer>> warehousesByProduct,
+                               String failure) implements BatchStep {
+    }
+    
+    /**
+     * @param stored whether the order held reservations from an earlier batch
+     */
+    private record ReleaseStep(String orderId, Map<String, Integer> releasedByProduct, boolean stored)
+        implements BatchStep {
+    }
+    
+    private CompletableFuture<?> publishSuccessEvent(String orderId, List<Reservation> reservations) {
         List<InventoryReservedEvent.ReservedItem> reservedItems = reservations.stream()
             .map(r -> new InventoryReservedEvent.ReservedItem(r.getProductId(), r.getQuantity()))
             .toList();
         
-        eventPublisher.publishInventoryReservedEvent(
+        return eventPublisher.publishInventoryReservedEvent(
             new InventoryReservedEvent(orderId, reservedItems)
         );
     }
@@ -0,0 +1,17 @@
+package com.agri.inventory.application;
+
+/**
+ * How {@link InventoryService} changes stock ({@code procurement.inventory.reservation.mode}).
+ */
+public enum ReservationMode {
+    
+    /**
+     * Lock the product rows ({@code SELECT ... FOR UPDATE}), check and modify the entities, flush on commit.
+     */
+    LOCKING,
+    
+    /**
+     * One conditional {@code UPDATE} per product; the affected-row count is the availability check.
+     */
+    CONDITIONAL
+}
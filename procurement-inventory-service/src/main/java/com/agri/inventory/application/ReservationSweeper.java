@@ -0,0 +1,80 @@
+package com.agri.inventory.application;
+
+import com.agri.inventory.event.InventoryHoldExpiredEvent;
+import com.agri.inventory.infrastructure.kafka.EventPublisher;
+import com.agri.inventory.infrastructure.repository.ReservationRepository;
+import com.agri.inventory.observability.InventoryMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Releases reservation holds whose saga did not complete within {@code procurement.inventory.reservation.hold-ttl}
+ * (e.g. the payment service never answered), so stuck sagas cannot leak stock.
+ *
+ * Each run releases up to {@code max-batches} batches of {@code batch-size} expired holds, each in its own
+ * transaction, and publishes an {@link InventoryHoldExpiredEvent} per order after the commit. Instances
+ * skip each other's rows, so every instance can sweep.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "procurement.inventory.engine", havingValue = "jpa", matchIfMissing = true)
+public class ReservationSweeper {
+    
+    private final InventoryService inventoryService;
+    private final ReservationRepository reservationRepository;
+    private final EventPublisher eventPublisher;
+    private final InventoryMetrics metrics;
+    private final int batchSize;
+    private final int maxBatches;
+    
+    private volatile long lagSeconds;
+    
+    public ReservationSweeper(InventoryService inventoryService,
+                              ReservationRepository reservationRepository,
+                              EventPublisher eventPublisher,
+                              InventoryMetrics metrics,
+                              @Value("${procurement.inventory.reservation.sweep.batch-size:200}") int batchSize,
+                              @Value("${procurement.inventory.reservation.sweep.max-batches:10}") int maxBatches) {
+        this.inventoryService = inventoryService;
+        this.reservationRepository = reservationRepository;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        metrics.registerHoldSweepLag(() -> lagSeconds);
+    }
+    
+    @Scheduled(fixedDelayString = "${procurement.inventory.reservation.sweep.interval:10000}")
+    public void sweep() {
+        int released = 0;
+        try {
+            for (int batch = 0; batch < maxBatches; batch++) {
+                long started = System.nanoTime();
+                List<InventoryHoldExpiredEvent> events = inventoryService.releaseExpired(batchSize);
+                if (events.isEmpty()) {
+                    break;
+                }
+                events.forEach(eventPublisher::publishInventoryHoldExpiredEvent);
+                metrics.recordHoldSweep(events.size(), System.nanoTime() - started);
+                released += events.size();
+            }
+        } catch (Exception e) {
+            log.error("Reservation sweep failed after releasing {} orders: {}", released, e.getMessage(), e);
+        } finally {
+            eventPublisher.flush();
+            lagSeconds = reservationRepository.findOldestExpiry()
+                .map(oldest -> Math.max(0, Duration.between(oldest, Instant.now()).toSeconds()))
+                .orElse(0L);
+        }
+        if (released > 0) {
+            log.info("Released {} orders with expired holds", released);
+        }
+    }
+}
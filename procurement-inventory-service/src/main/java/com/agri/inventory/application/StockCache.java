@@ -0,0 +1,120 @@
+package com.agri.inventory.application;
+
+import com.agri.inventory.infrastructure.repository.InventoryItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * In-process copy of every product's stock totals (item row plus stripes), for the read API.
+ *
+ * Reads never touch the database. The copy is loaded on startup and reloaded every
+ * {@code refresh-interval}; in between, each committed reservation or release of this instance is
+ * applied in place from its {@link StockChangedEvent}, and so is stock on hand set in a warehouse. Changes made by other instances (or written by
+ * the ledger engine's snapshots) show up with the next reload, so figures are at most that stale.
+ * A reload does not overwrite a product changed in place after the reload started reading.
+ */
+@Slf4j
+@Component
+public class StockCache {
+
+    private final InventoryItemRepository inventoryItemRepository;
+    private final Map<String, Entry> levels = new ConcurrentHashMap<>();
+    private final AtomicLong changes = new AtomicLong();
+    private volatile boolean loaded;
+
+    public StockCache(InventoryItemRepository inventoryItemRepository) {
+        this.inventoryItemRepository = inventoryItemRepository;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public Optional<StockLevel> get(String productId) {
+        Entry entry = levels.get(productId);
+        return entry == null ? Optional.empty() : Optional.of(entry.level());
+    }
+
+    /**
+     * Stock levels of the given products, in request order; unknown products are left out.
+     */
+    public Map<String, StockLevel> getAll(Collection<String> productIds) {
+        Map<String, StockLevel> found = new LinkedHashMap<>();
+        for (String productId : productIds) {
+            Entry entry = levels.get(productId);
+            if (entry != null) {
+                found.put(productId, entry.level());
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Visit the available quantity of every product in the cache.
+     */
+    public void forEachAvailable(ObjLongConsumer<String> action) {
+        levels.forEach((productId, entry) -> action.accept(productId, entry.level().available()));
+    }
+
+    @TransactionalEventListener
+    public void onStockChanged(StockChangedEvent event) {
+        long change = changes.incrementAndGet();
+        event.reservedByProduct().forEach((productId, quantity) ->
+            levels.computeIfPresent(productId, (key, entry) -> new Entry(new StockLevel(
+                productId,
+                entry.level().productName(),
+                entry.level().available() - quantity,
+                entry.level().reserved() + quantity), change)));
+        event.addedByProduct().forEach((productId, quantity) ->
+            levels.computeIfPresent(productId, (key, entry) -> new Entry(new StockLevel(
+                productId,
+                entry.level().productName(),
+                entry.level().available() + quantity,
+                entry.level().reserved()), change)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${procurement.inventory.stock-cache.refresh-interval:60000}",
+               initialDelayString = "${procurement.inventory.stock-cache.refresh-interval:60000}")
+    public void refresh() {
+        long startedAt = changes.get();
+        Set<String> seen = new HashSet<>();
+        for (InventoryItemRepository.StockTotals totals : inventoryItemRepository.findStockTotals()) {
+            seen.add(totals.getProductId());
+            Entry fresh = new Entry(new StockLevel(totals.getProductId(), totals.getProductName(),
+                totals.getAvailable(), totals.getReserved()), startedAt);
+            levels.merge(totals.getProductId(), fresh,
+                (current, loadedEntry) -> current.change() > startedAt ? current : loadedEntry);
+        }
+        levels.keySet().retainAll(seen);
+        loaded = true;
+        log.debug("Stock cache reloaded with {} products", seen.size());
+    }
+
+    public record StockLevel(String productId, String productName, long available, long reserved) {
+    }
+
+    /**
+     * @param change value of {@code changes} when the entry was written
+     */
+    private record Entry(StockLevel level, long change) {
+    }
+}
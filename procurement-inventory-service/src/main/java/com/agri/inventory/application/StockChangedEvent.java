@@ -0,0 +1,21 @@
+package com.agri.inventory.application;
+
+import java.util.Map;
+
+/**
+ * Published by {@link InventoryService} for each transaction that reserves or releases stock, and by
+ * {@link WarehouseAllocator} when stock on hand is set, and delivered to listeners once that transaction commits.
+ *
+ * @param reservedByProduct quantity moved from available to reserved, per product; negative for releases
+ * @param addedByProduct    quantity added to available, per product; negative for removals
+ */
+public record StockChangedEvent(Map<String, Integer> reservedByProduct, Map<String, Integer> addedByProduct) {
+
+    public StockChangedEvent(Map<String, Integer> reservedByProduct) {
+        this(reservedByProduct, Map.of());
+    }
+
+    public static StockChangedEvent added(String productId, int quantity) {
+        return new StockChangedEvent(Map.of(), Map.of(productId, quantity));
+    }
+}
@@ -0,0 +1,281 @@
+package com.agri.inventory.application;
+
+import com.agri.inventory.domain.InventoryItem;
+import com.agri.inventory.domain.InventoryStripe;
+import com.agri.inventory.infrastructure.repository.InventoryItemRepository;
+import com.agri.inventory.infrastructure.repository.InventoryStripeRepository;
+import com.agri.inventory.infrastructure.repository.WarehouseStockRepository;
+import com.agri.inventory.observability.InventoryMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Striped stock for hot products.
+ *
+ * A striped product keeps its available stock in {@code stripe_count} {@link InventoryStripe} rows instead
+ * of its {@link InventoryItem} row, so concurrent reservations of the product lock different rows. A
+ * reservation starts at the stripe picked by its order id and takes the first stripe that can cover the
+ * whole quantity, each attempt being one conditional update. When no single stripe can, the product is
+ * rebalanced: its stripes and item row are locked, and the stock is spread evenly again after taking the
+ * reservation out of it. Stock only moves between rows inside a transaction, so the product's total
+ * (item row plus stripes) stays exact.
+ *
+ * Lock order: stripes (in stripe order) before the item row, and striped products before plain ones.
+ *
+ * Which products are striped is cached and refreshed every {@code refresh-interval}. Before locking any
+ * item row, reservations {@link #sync} the cache for their products with one lock-free read, so a product
+ * striped since the last refresh is still reserved through its stripes, stripes first. The item row's
+ * {@code stripe_count} stays authoritative: a product striped between that read and the item row lock is
+ * found with no available stock on its row, and its reservation fails rather than lock stripes late.
+ */
+@Slf4j
+@Component
+public class StripedStock {
+    
+    /** {@link #reserve} result: the product has no stripes. */
+    public static final int NOT_STRIPED = -1;
+    
+    /** {@link #reserve} result: the product's total stock cannot cover the quantity. */
+    public static final int INSUFFICIENT = -2;
+    
+    private final InventoryItemRepository inventoryItemRepository;
+    private final InventoryStripeRepository stripeRepository;
+    private final WarehouseStockRepository warehouseStockRepository;
+    private final InventoryMetrics metrics;
+    
+    private volatile Map<String, Integer> stripeCounts = Map.of();
+    
+    public StripedStock(InventoryItemRepository inventoryItemRepository,
+                        InventoryStripeRepository stripeRepository,
+                        WarehouseStockRepository warehouseStockRepository,
+                        InventoryMetrics metrics) {
+        this.inventoryItemRepository = inventoryItemRepository;
+        this.stripeRepository = stripeRepository;
+        this.warehouseStockRepository = warehouseStockRepository;
+        this.metrics = metrics;
+    }
+    
+    public boolean isStriped(String productId) {
+        return stripeCounts.containsKey(productId);
+    }
+    
+    /**
+     * Reserve {@code quantity} units from one stripe. Must run in the caller's transaction.
+     *
+     * @return the stripe index, {@link #NOT_STRIPED} or {@link #INSUFFICIENT}
+     */
+    public int reserve(String productId, int quantity, String orderId) {
+        Integer stripeCount = stripeCounts.get(productId);
+        if (stripeCount == null) {
+            return NOT_STRIPED;
+        }
+        int first = Math.floorMod(orderId.hashCode(), stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            int stripe = (first + i) % stripeCount;
+            if (metrics.timeLock("stripes", List.of(productId),
+                    () -> stripeRepository.reserveAvailable(productId, stripe, quantity)) > 0) {
+                return stripe;
+            }
+        }
+        return rebalance(productId, quantity, orderId);
+    }
+    
+    /**
+     * Bring the cache up to date for {@code productIds}, e.g. products striped or demoted by another instance
+     * since the last refresh. Takes no locks; must run before the caller locks any of their item rows.
+     */
+    public void sync(Collection<String> productIds) {
+        Map<String, Integer> found = inventoryItemRepository.findStripeCounts(productIds).stream()
+            .collect(Collectors.toMap(InventoryItemRepository.StripeCount::getProductId,
+                InventoryItemRepository.StripeCount::getStripeCount));
+        for (String productId : productIds) {
+            Integer stripeCount = found.get(productId);
+            if (stripeCount == null) {
+                if (isStriped(productId)) {
+                    forget(productId);
+                }
+            } else if (!stripeCount.equals(stripeCounts.get(productId))) {
+                update(productId, stripeCount);
+            }
+        }
+    }
+    
+    /**
+     * Return {@code quantity} units reserved from a stripe. If the stripe has since been folded back
+     * (product demoted or re-striped), the units are released on the item row, which took over the stripe's
+     * reserved stock.
+     */
+    public void release(String productId, int stripeIndex, int quantity) {
+        if (stripeRepository.releaseReserved(productId, stripeIndex, quantity) > 0) {
+            return;
+        }
+        if (inventoryItemRepository.releaseReserved(productId, quantity) == 0
+                && inventoryItemRepository.existsByProductId(productId)) {
+            throw new IllegalStateException(String.format(
+                "Cannot release more than reserved for product %s. Release requested: %d", productId, quantity));
+        }
+    }
+    
+    /**
+     * Lock the product's stripes and item row, take the reservation out of the product's total stock and
+     * spread the rest evenly over the stripes.
+     */
+    private int rebalance(String productId, int quantity, String orderId) {
+        List<InventoryStripe> stripes = metrics.timeLock("stripes", List.of(productId),
+            () -> stripeRepository.findByProductIdWithLock(productId));
+        if (stripes.isEmpty()) {
+            if (isStriped(productId)) {
+                forget(productId);
+            }
+            return NOT_STRIPED;
+        }
+        if (!Integer.valueOf(stripes.size()).equals(stripeCounts.get(productId))) {
+            update(productId, stripes.size());
+        }
+        InventoryItem item = inventoryItemRepository.findByProductIdWithLock(productId).orElseThrow();
+        long total = item.getAvailableQuantity()
+            + stripes.stream().mapToLong(InventoryStripe::getAvailableQuantity).sum();
+        if (total < quantity) {
+            return INSUFFICIENT;
+        }
+        
+        InventoryStripe reservedFrom = stripes.get(Math.floorMod(orderId.hashCode(), stripes.size()));
+        reservedFrom.setReservedQuantity(reservedFrom.getReservedQuantity() + quantity);
+        item.setAvailableQuantity(0);
+        spread(stripes, total - quantity);
+        // Flush now: later bulk updates in this transaction may clear the persistence context
+        stripeRepository.flush();
+        
+        metrics.incStripeRebalance();
+        log.debug("Rebalanced {} stripes of product {} ({} units left)", stripes.size(), productId, total - quantity);
+        return reservedFrom.getStripeIndex();
+    }
+    
+    /**
+     * Put a product in striped mode, moving its available stock into {@code stripeCount} stripes.
+     * Warehoused products keep their stock in warehouse rows and cannot be striped. The check runs under the
+     * item row lock, which {@link WarehouseAllocator#setStock} also takes before it refuses striped products.
+     */
+    @Transactional
+    public StockView stripe(String productId, int stripeCount) {
+        if (stripeCount < 2) {
+            throw new IllegalArgumentException("A striped product needs at least 2 stripes");
+        }
+        List<InventoryStripe> existing = stripeRepository.findByProductIdWithLock(productId);
+        InventoryItem item = lockItem(productId);
+        if (warehouseStockRepository.existsByProductId(productId)) {
+            throw new IllegalStateException("Product " + productId + " is warehoused and cannot be striped");
+        }
+        if (!existing.isEmpty()) {
+            if (existing.size() != stripeCount) {
+                throw new IllegalStateException(String.format(
+                    "Product %s already has %d stripes; demote it first", productId, existing.size()));
+            }
+            return view(item, existing);
+        }
+        
+        List<InventoryStripe> stripes = new ArrayList<>();
+        for (int i = 0; i < stripeCount; i++) {
+            stripes.add(new InventoryStripe(productId, i, 0));
+        }
+        spread(stripes, item.getAvailableQuantity());
+        item.setAvailableQuantity(0);
+        item.setStripeCount(stripeCount);
+        stripes = stripeRepository.saveAll(stripes);
+        update(productId, stripeCount);
+        log.info("Product {} striped across {} stripes", productId, stripeCount);
+        return view(item, stripes);
+    }
+    
+    /**
+     * Fold a product's stripes, available and reserved, back into its item row.
+     */
+    @Transactional
+    public StockView unstripe(String productId) {
+        List<InventoryStripe> stripes = stripeRepository.findByProductIdWithLock(productId);
+        InventoryItem item = lockItem(productId);
+        for (InventoryStripe stripe : stripes) {
+            item.setAvailableQuantity(item.getAvailableQuantity() + stripe.getAvailableQuantity());
+            item.setReservedQuantity(item.getReservedQuantity() + stripe.getReservedQuantity());
+        }
+        item.setStripeCount(null);
+        stripeRepository.deleteAll(stripes);
+        forget(productId);
+        log.info("Product {} folded back from {} stripes", productId, stripes.size());
+        return view(item, List.of());
+    }
+    
+    /**
+     * Stock of a product and its stripes, read from one snapshot so the totals are exact.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public StockView stock(String productId) {
+        InventoryItem item = inventoryItemRepository.findByProductId(productId)
+            .orElseThrow(() -> new IllegalArgumentException("Product not found: " + productId));
+        return view(item, stripeRepository.findByProductIdOrderByStripeIndex(productId));
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${procurement.inventory.striping.refresh-interval:10000}",
+               initialDelayString = "${procurement.inventory.striping.refresh-interval:10000}")
+    public void refresh() {
+        stripeCounts = inventoryItemRepository.findStriped().stream()
+            .collect(Collectors.toUnmodifiableMap(InventoryItem::getProductId, InventoryItem::getStripeCount));
+    }
+    
+    private InventoryItem lockItem(String productId) {
+        return inventoryItemRepository.findByProductIdWithLock(productId)
+            .orElseThrow(() -> new IllegalArgumentException("Product not found: " + productId));
+    }
+    
+    private static void spread(List<InventoryStripe> stripes, long quantity) {
+        int size = stripes.size();
+        for (int i = 0; i < size; i++) {
+            stripes.get(i).setAvailableQuantity((int) (quantity / size + (i < quantity % size ? 1 : 0)));
+        }
+    }
+    
+    private synchronized void update(String productId, int stripeCount) {
+        Map<String, Integer> updated = new HashMap<>(stripeCounts);
+        updated.put(productId, stripeCount);
+        stripeCounts = Map.copyOf(updated);
+    }
+    
+    private synchronized void forget(String productId) {
+        Map<String, Integer> updated = new HashMap<>(stripeCounts);
+        updated.remove(productId);
+        stripeCounts = Map.copyOf(updated);
+    }
+    
+    private static StockView view(InventoryItem item, List<InventoryStripe> stripes) {
+        long available = item.getAvailableQuantity();
+        long reserved = item.getReservedQuantity();
+        for (InventoryStripe stripe : stripes) {
+            available += stripe.getAvailableQuantity();
+            reserved += stripe.getReservedQuantity();
+        }
+        return new StockView(item.getProductId(), stripes.size(), available, reserved,
+            stripes.stream()
+                .map(stripe -> new StripeView(stripe.getStripeIndex(), stripe.getAvailableQuantity(), stripe.getReservedQuantity()))
+                .toList());
+    }
+    
+    public record StockView(String productId, int stripeCount, long availableQuantity, long reservedQuantity,
+                            List<StripeView> stripes) {
+    }
+    
+    public record StripeView(int stripeIndex, int availableQuantity, int reservedQuantity) {
+    }
+}
@@ -0,0 +1,256 @@
+package com.agri.inventory.application;
+
+import com.agri.common.command.ReserveInventoryCommand;
+import com.agri.inventory.domain.InventoryItem;
+import com.agri.inventory.domain.Warehouse;
+import com.agri.inventory.domain.WarehouseStock;
+import com.agri.inventory.infrastructure.repository.InventoryItemRepository;
+import com.agri.inventory.infrastructure.repository.WarehouseRepository;
+import com.agri.inventory.infrastructure.repository.WarehouseStockRepository;
+import com.agri.inventory.observability.InventoryMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Picks the warehouses a warehoused product is reserved from, and reserves and releases there.
+ *
+ * Warehouses are ranked by distance to the order's delivery location, nearest first; orders without one
+ * take from the warehouses holding the most stock first, so a line is split over as few as possible. A line
+ * is filled from the ranked warehouses in turn.
+ *
+ * The plan is made on {@link WarehouseStockIndex}, and only the rows it picked are locked (sorted, in one
+ * statement) and checked. If the index was stale and a picked row falls short, all rows of the product are
+ * locked and the plan is made again on what they hold. That second pass can lock rows out of order against
+ * a concurrent first pass; Postgres then aborts one of them and the command is retried.
+ *
+ * Lock order: stripes, warehouse rows (in product order), item rows.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "procurement.inventory.engine", havingValue = "jpa", matchIfMissing = true)
+public class WarehouseAllocator {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    private final WarehouseStockIndex index;
+    private final WarehouseStockRepository warehouseStockRepository;
+    private final WarehouseRepository warehouseRepository;
+    private final InventoryItemRepository inventoryItemRepository;
+    private final ApplicationEventPublisher applicationEvents;
+    private final InventoryMetrics metrics;
+
+    public WarehouseAllocator(WarehouseStockIndex index,
+                              WarehouseStockRepository warehouseStockRepository,
+                              WarehouseRepository warehouseRepository,
+                              InventoryItemRepository inventoryItemRepository,
+                              ApplicationEventPublisher applicationEvents,
+                              InventoryMetrics metrics) {
+        this.index = index;
+        this.warehouseStockRepository = warehouseStockRepository;
+        this.warehouseRepository = warehouseRepository;
+        this.inventoryItemRepository = inventoryItemRepository;
+        this.applicationEvents = applicationEvents;
+        this.metrics = metrics;
+    }
+
+    public boolean isWarehoused(String productId) {
+        return index.isWarehoused(productId);
+    }
+
+    /**
+     * Reserve {@code quantity} units of a product across its warehouses. Must run in the caller's transaction.
+     *
+     * @param destination the order's delivery location, or {@code null}
+     * @return units taken per warehouse, or {@code null} if all its warehouses together cannot cover the quantity
+     */
+    public Map<String, Integer> reserve(String productId, int quantity, ReserveInventoryCommand.Location destination) {
+        Map<String, Integer> plan = plan(index.available(productId), quantity, destination);
+        if (plan != null) {
+            List<String> ids = plan.keySet().stream().map(warehouseId -> WarehouseStock.id(productId, warehouseId)).toList();
+            List<WarehouseStock> picked = metrics.timeLock("warehouses", List.of(productId),
+                () -> warehouseStockRepository.findByIdInWithLock(ids));
+            index.observe(picked);
+            if (covers(picked, plan)) {
+                take(picked, plan);
+                metrics.incWarehouseAllocation("index");
+                return plan;
+            }
+        }
+
+        // The index was stale (or short): plan again on the locked rows
+        List<WarehouseStock> rows = metrics.timeLock("warehouses", List.of(productId),
+            () -> warehouseStockRepository.findByProductIdWithLock(productId));
+        index.observe(rows);
+        plan = plan(rows.stream().collect(Collectors.toMap(
+            WarehouseStock::getWarehouseId, WarehouseStock::getAvailableQuantity, (a, b) -> a, TreeMap::new)),
+            quantity, destination);
+        if (plan == null) {
+            return null;
+        }
+        take(rows, plan);
+        metrics.incWarehouseAllocation("rescan");
+        return plan;
+    }
+
+    /**
+     * Available quantity of a product over all its warehouses, as last seen.
+     */
+    public long totalAvailable(String productId) {
+        return index.totalAvailable(productId);
+    }
+
+    /**
+     * Return reserved units to their warehouse rows, locked in one sorted statement.
+     * Must run in the caller's transaction.
+     *
+     * @param releasedByRow units to release per warehouse row id ({@link WarehouseStock#id})
+     */
+    public void release(Map<String, Integer> releasedByRow) {
+        if (releasedByRow.isEmpty()) {
+            return;
+        }
+        List<WarehouseStock> rows = warehouseStockRepository.findByIdInWithLock(releasedByRow.keySet());
+        for (WarehouseStock row : rows) {
+            row.release(releasedByRow.get(row.getId()));
+        }
+        if (rows.size() < releasedByRow.size()) {
+            log.warn("Warehouse rows not found for release of {}, skipping them", releasedByRow.keySet());
+        }
+        applicationEvents.publishEvent(new WarehouseStockChangedEvent(rows));
+    }
+
+    /**
+     * Set a product's stock on hand in one warehouse: available becomes {@code onHand} minus what the
+     * warehouse has reserved (never below zero). When this makes the product warehoused, its item row's
+     * available stock moves into this warehouse on top of {@code onHand}, as the warehouses hold it from now on.
+     * The change in the product's available total reaches {@link StockCache}, and so the stock feed, on commit.
+     */
+    @Transactional
+    public StockView setStock(String productId, String warehouseId, int onHand) {
+        if (!warehouseRepository.existsById(warehouseId)) {
+            throw new IllegalArgumentException("Warehouse not found: " + warehouseId);
+        }
+        // Warehouse rows before the item row, as in a release
+        Map<String, WarehouseStock> rows = warehouseStockRepository.findByProductIdWithLock(productId).stream()
+            .collect(Collectors.toMap(WarehouseStock::getWarehouseId, Function.identity()));
+        InventoryItem item = inventoryItemRepository.findByProductIdWithLock(productId)
+            .orElseThrow(() -> new IllegalArgumentException("Product not found: " + productId));
+        if (item.isStriped()) {
+            throw new IllegalStateException("Product " + productId + " is striped; demote it first");
+        }
+
+        int moved = 0;
+        if (rows.isEmpty() && item.getAvailableQuantity() > 0) {
+            moved = item.getAvailableQuantity();
+            log.info("Product {} is now warehoused, moving {} units available on its item row into warehouse {}",
+                productId, moved, warehouseId);
+            item.setAvailableQuantity(0);
+        }
+        WarehouseStock row = rows.computeIfAbsent(warehouseId, id -> new WarehouseStock(productId, id, 0));
+        int before = row.getAvailableQuantity();
+        row.setAvailableQuantity(Math.max(onHand - row.getReservedQuantity(), 0) + moved);
+        warehouseStockRepository.save(row);
+        applicationEvents.publishEvent(new WarehouseStockChangedEvent(List.of(row)));
+        int added = row.getAvailableQuantity() - before - moved;
+        if (added != 0) {
+            applicationEvents.publishEvent(StockChangedEvent.added(productId, added));
+        }
+        return view(productId, rows.values());
+    }
+
+    @Transactional(readOnly = true)
+    public StockView stock(String productId) {
+        return view(productId, warehouseStockRepository.findByProductIdOrderByWarehouseId(productId));
+    }
+
+    /**
+     * Fill {@code quantity} from the ranked warehouses in turn.
+     *
+     * @param available available quantity per warehouse
+     * @return units per warehouse, in fill order, or {@code null} if they cannot cover the quantity
+     */
+    private Map<String, Integer> plan(Map<String, Integer> available, int quantity,
+                                      ReserveInventoryCommand.Location destination) {
+        Comparator<Map.Entry<String, Integer>> ranking = destination == null
+            ? Map.Entry.<String, Integer>comparingByValue().reversed()
+            : Comparator.comparingDouble(entry -> distanceKm(entry.getKey(), destination));
+        List<Map.Entry<String, Integer>> ranked = available.entrySet().stream()
+            .filter(entry -> entry.getValue() > 0)
+            .sorted(ranking.thenComparing(Map.Entry.comparingByKey()))
+            .toList();
+
+        Map<String, Integer> plan = new LinkedHashMap<>();
+        int remaining = quantity;
+        for (Map.Entry<String, Integer> warehouse : ranked) {
+            if (remaining == 0) {
+                break;
+            }
+            int taken = Math.min(remaining, warehouse.getValue());
+            plan.put(warehouse.getKey(), taken);
+            remaining -= taken;
+        }
+        return remaining == 0 ? plan : null;
+    }
+
+    private static boolean covers(List<WarehouseStock> rows, Map<String, Integer> plan) {
+        if (rows.size() < plan.size()) {
+            return false;
+        }
+        return rows.stream().allMatch(row -> row.getAvailableQuantity() >= plan.get(row.getWarehouseId()));
+    }
+
+    private void take(List<WarehouseStock> rows, Map<String, Integer> plan) {
+        List<WarehouseStock> changed = new ArrayList<>();
+        for (WarehouseStock row : rows) {
+            Integer quantity = plan.get(row.getWarehouseId());
+            if (quantity != null) {
+                row.reserve(quantity);
+                changed.add(row);
+            }
+        }
+        applicationEvents.publishEvent(new WarehouseStockChangedEvent(changed));
+    }
+
+    /**
+     * Great-circle distance; warehouses not yet in the index rank last.
+     */
+    private double distanceKm(String warehouseId, ReserveInventoryCommand.Location destination) {
+        Warehouse warehouse = index.warehouse(warehouseId);
+        if (warehouse == null) {
+            return Double.MAX_VALUE;
+        }
+        double lat1 = Math.toRadians(warehouse.getLatitude());
+        double lat2 = Math.toRadians(destination.latitude());
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(destination.longitude() - warehouse.getLongitude());
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(a));
+    }
+
+    private static StockView view(String productId, Iterable<WarehouseStock> rows) {
+        List<StockView.Row> viewRows = new ArrayList<>();
+        rows.forEach(row -> viewRows.add(
+            new StockView.Row(row.getWarehouseId(), row.getAvailableQuantity(), row.getReservedQuantity())));
+        viewRows.sort(Comparator.comparing(StockView.Row::warehouseId));
+        return new StockView(productId, viewRows);
+    }
+
+    public record StockView(String productId, List<Row> warehouses) {
+
+        public record Row(String warehouseId, int available, int reserved) {
+        }
+    }
+}
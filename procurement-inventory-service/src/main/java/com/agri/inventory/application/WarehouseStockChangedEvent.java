@@ -0,0 +1,13 @@
+package com.agri.inventory.application;
+
+import com.agri.inventory.domain.WarehouseStock;
+
+import java.util.Collection;
+
+/**
+ * Published by {@link WarehouseAllocator} for warehouse rows a transaction changed, and delivered to
+ * {@link WarehouseStockIndex} once that transaction commits. The rows are the managed entities, so by then
+ * they carry the committed quantities and version.
+ */
+public record WarehouseStockChangedEvent(Collection<WarehouseStock> rows) {
+}
@@ -0,0 +1,133 @@
+package com.agri.inventory.application;
+
+import com.agri.inventory.domain.Warehouse;
+import com.agri.inventory.domain.WarehouseStock;
+import com.agri.inventory.infrastructure.repository.WarehouseRepository;
+import com.agri.inventory.infrastructure.repository.WarehouseStockRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-process copy of every warehouse row's stock and of the warehouse positions, from which
+ * {@link WarehouseAllocator} picks warehouses without reading the database.
+ *
+ * Each row is kept with its version and only ever replaced by a newer one, whatever the source: rows changed
+ * by committed transactions of this instance ({@link WarehouseStockChangedEvent}), rows another transaction
+ * just locked and so read as committed, and the full reload every {@code refresh-interval}, which picks up
+ * other instances. The copy can therefore trail the database, but never goes back in time.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "procurement.inventory.engine", havingValue = "jpa", matchIfMissing = true)
+public class WarehouseStockIndex {
+
+    private final WarehouseRepository warehouseRepository;
+    private final WarehouseStockRepository warehouseStockRepository;
+    private final Map<String, Map<String, Slot>> stockByProduct = new ConcurrentHashMap<>();
+    private final AtomicLong changes = new AtomicLong();
+    private volatile Map<String, Warehouse> warehouses = Map.of();
+
+    public WarehouseStockIndex(WarehouseRepository warehouseRepository,
+                               WarehouseStockRepository warehouseStockRepository) {
+        this.warehouseRepository = warehouseRepository;
+        this.warehouseStockRepository = warehouseStockRepository;
+    }
+
+    public boolean isWarehoused(String productId) {
+        Map<String, Slot> stock = stockByProduct.get(productId);
+        return stock != null && !stock.isEmpty();
+    }
+
+    /**
+     * Available quantity per warehouse of a product, in warehouse order; empty if it is not warehoused.
+     */
+    public Map<String, Integer> available(String productId) {
+        Map<String, Slot> stock = stockByProduct.getOrDefault(productId, Map.of());
+        Map<String, Integer> available = new TreeMap<>();
+        stock.forEach((warehouseId, slot) -> available.put(warehouseId, slot.available()));
+        return available;
+    }
+
+    public long totalAvailable(String productId) {
+        return stockByProduct.getOrDefault(productId, Map.of()).values().stream()
+            .mapToLong(Slot::available)
+            .sum();
+    }
+
+    /**
+     * @return the warehouse, or {@code null} if it was created since the last reload
+     */
+    public Warehouse warehouse(String warehouseId) {
+        return warehouses.get(warehouseId);
+    }
+
+    /**
+     * Take in rows just read under a lock, i.e. as last committed.
+     */
+    public void observe(Collection<WarehouseStock> rows) {
+        rows.forEach(row -> put(row, changes.incrementAndGet()));
+    }
+
+    @TransactionalEventListener
+    public void onWarehouseStockChanged(WarehouseStockChangedEvent event) {
+        observe(event.rows());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${procurement.inventory.warehouses.refresh-interval:10000}",
+               initialDelayString = "${procurement.inventory.warehouses.refresh-interval:10000}")
+    public void refresh() {
+        long startedAt = changes.get();
+        warehouses = warehouseRepository.findAll().stream()
+            .collect(Collectors.toUnmodifiableMap(Warehouse::getId, Function.identity()));
+        Set<String> seen = new HashSet<>();
+        for (WarehouseStock row : warehouseStockRepository.findAll()) {
+            seen.add(row.getId());
+            put(row, startedAt);
+        }
+        // Rows deleted since the last reload, unless written after this one started reading
+        for (String productId : stockByProduct.keySet()) {
+            stockByProduct.computeIfPresent(productId, (key, stock) -> {
+                stock.entrySet().removeIf(entry -> !seen.contains(WarehouseStock.id(productId, entry.getKey()))
+                    && entry.getValue().change() <= startedAt);
+                return stock.isEmpty() ? null : stock;
+            });
+        }
+        log.debug("Warehouse index reloaded with {} warehouses, {} rows", warehouses.size(), seen.size());
+    }
+
+    private void put(WarehouseStock row, long change) {
+        Slot fresh = new Slot(row.getAvailableQuantity(), row.getVersion(), change);
+        stockByProduct.compute(row.getProductId(), (productId, stock) -> {
+            Map<String, Slot> slots = stock == null ? new ConcurrentHashMap<>() : stock;
+            slots.merge(row.getWarehouseId(), fresh, (current, candidate) ->
+                candidate.version() > current.version() ? candidate : current);
+            return slots;
+        });
+    }
+
+    /**
+     * @param change value of {@code changes} when the slot was written
+     */
+    private record Slot(int available, long version, long change) {
+    }
+}
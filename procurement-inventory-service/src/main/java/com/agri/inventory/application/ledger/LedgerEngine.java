@@ -0,0 +1,389 @@
+package com.agri.inventory.application.ledger;
+
+import com.agri.common.command.BulkCompensateInventoryCommand;
+import com.agri.common.command.CompensateInventoryCommand;
+import com.agri.common.command.ReserveInventoryCommand;
+import com.agri.inventory.application.InventoryEngine;
+import com.agri.inventory.application.ledger.LedgerSnapshot.Line;
+import com.agri.inventory.application.ledger.LedgerSnapshot.OrderReservation;
+import com.agri.inventory.domain.LedgerCheckpoint;
+import com.agri.inventory.event.InventoryReservationFailedEvent;
+import com.agri.inventory.event.InventoryReservedEvent;
+import com.agri.inventory.infrastructure.kafka.EventPublisher;
+import com.agri.inventory.infrastructure.ledger.LedgerJournal;
+import com.agri.inventory.infrastructure.ledger.LedgerSnapshotStore;
+import com.agri.inventory.infrastructure.repository.InventoryItemRepository;
+import com.agri.inventory.infrastructure.repository.LedgerCheckpointRepository;
+import com.agri.inventory.infrastructure.repository.LedgerReleasedOrderRepository;
+import com.agri.inventory.infrastructure.repository.ReservationRepository;
+import com.agri.inventory.observability.InventoryMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory inventory engine ({@code procurement.inventory.engine=ledger}).
+ *
+ * Stock and reservations live in {@link LedgerState}, changed only by one writer thread (single-writer
+ * principle, as in LMAX): listener threads enqueue commands and wait for their outcome. The writer appends
+ * each command to the {@link LedgerJournal} before applying it, so the state can always be rebuilt by
+ * replaying the journal. A reservation is a map lookup and an append instead of a locked transaction.
+ *
+ * Every {@code snapshot-interval} the changes since the last snapshot are written to the stock and
+ * reservation tables with the journal sequence they correspond to, on a separate thread; journal segments
+ * covered by a snapshot are then deleted. On startup the state is loaded from the tables and the journal
+ * is replayed from the snapshot's sequence on.
+ *
+ * The engine must own all stock: run a single instance, with the journal directory on persistent storage,
+ * and do not change stock rows from elsewhere while it runs (snapshots overwrite them). It runs without
+ * the command inbox: a repeated reserve finds the order's reservations and repeats the reply, a repeated
+ * release finds nothing to release, and a reserve for an order released within {@code release-retention}
+ * is refused. A reserve repeated after its order failed for lack of stock is evaluated again.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "procurement.inventory.engine", havingValue = "ledger")
+public class LedgerEngine implements InventoryEngine {
+    
+    private static final byte RESERVE = 1;
+    private static final byte RELEASE = 2;
+    private static final byte BULK_RELEASE = 3;
+    private static final byte LOOKUP = 0;
+    
+    private final InventoryItemRepository inventoryItemRepository;
+    private final ReservationRepository reservationRepository;
+    private final LedgerCheckpointRepository checkpointRepository;
+    private final LedgerReleasedOrderRepository releasedOrderRepository;
+    private final EventPublisher eventPublisher;
+    private final InventoryMetrics metrics;
+    private final ObjectMapper objectMapper;
+    private final LedgerSnapshotStore snapshotStore;
+    private final LedgerJournal journal;
+    
+    private final int batchSize;
+    private final Duration forceInterval;
+    private final Duration snapshotInterval;
+    
+    private final LedgerState state;
+    private final BlockingQueue<Pending> queue;
+    private final ExecutorService snapshotWriter =
+        Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "inventory-ledger-snapshot"));
+    
+    private Thread writer;
+    private volatile boolean running;
+    private volatile long snapshotSequence;
+    
+    // Snapshot thread only: changes not yet written because a previous write failed
+    private LedgerSnapshot unwritten;
+    
+    public LedgerEngine(InventoryItemRepository inventoryItemRepository,
+                        ReservationRepository reservationRepository,
+                        LedgerCheckpointRepository checkpointRepository,
+                        LedgerReleasedOrderRepository releasedOrderRepository,
+                        EventPublisher eventPublisher,
+                        InventoryMetrics metrics,
+                        ObjectMapper objectMapper,
+                        JdbcTemplate jdbcTemplate,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${procurement.inventory.ledger.journal-dir:/tmp/inventory-ledger}") Path journalDir,
+                        @Value("${procurement.inventory.ledger.segment-size:67108864}") int segmentSize,
+                        @Value("${procurement.inventory.ledger.queue-capacity:65536}") int queueCapacity,
+                        @Value("${procurement.inventory.ledger.batch-size:512}") int batchSize,
+                        @Value("${procurement.inventory.ledger.force-interval:PT0.1S}") Duration forceInterval,
+                        @Value("${procurement.inventory.ledger.snapshot-interval:PT10S}") Duration snapshotInterval,
+                        @Value("${procurement.inventory.ledger.release-retention:PT24H}") Duration releaseRetention) {
+        this.inventoryItemRepository = inventoryItemRepository;
+        this.reservationRepository = reservationRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.releasedOrderRepository = releasedOrderRepository;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        this.objectMapper = objectMapper;
+        this.snapshotStore = new LedgerSnapshotStore(jdbcTemplate, new TransactionTemplate(transactionManager),
+            releaseRetention);
+        this.journal = new LedgerJournal(journalDir, segmentSize);
+        this.batchSize = batchSize;
+        this.forceInterval = forceInterval;
+        this.snapshotInterval = snapshotInterval;
+        this.state = new LedgerState(releaseRetention);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        metrics.registerLedgerQueueDepth(queue::size);
+    }
+    
+    @PostConstruct
+    public void start() throws IOException {
+        state.load(inventoryItemRepository.findAll(), reservationRepository.findAll(), releasedOrderRepository.findAll());
+        snapshotSequence = checkpointRepository.findById(LedgerCheckpoint.LEDGER_ID)
+            .map(LedgerCheckpoint::getSequence)
+            .orElse(0L);
+        
+        long[] replayed = {0};
+        journal.open(snapshotSequence, (sequence, timestamp, type, payload) -> {
+            apply(type, readCommand(type, payload), Instant.ofEpochMilli(timestamp));
+            replayed[0]++;
+        });
+        log.info("Inventory ledger loaded {} products from snapshot {} and replayed {} journal entries",
+            state.productCount(), snapshotSequence, replayed[0]);
+        
+        running = true;
+        writer = new Thread(this::run, "inventory-ledger-writer");
+        writer.start();
+    }
+    
+    @Override
+    public void reserveInventory(ReserveInventoryCommand command) {
+        MDC.put("orderId", command.orderId());
+        try {
+            ReserveOutcome outcome = (ReserveOutcome) execute(RESERVE, command);
+            if (outcome.failure() != null) {
+                log.warn("Inventory reservation failed for order {}: {}", command.orderId(), outcome.failure());
+                eventPublisher.publishInventoryReservationFailedEvent(
+                    new InventoryReservationFailedEvent(command.orderId(), outcome.failure()));
+                metrics.incFail();
+                return;
+            }
+            publishReserved(command.orderId(), outcome.reservation());
+            metrics.incSuccess();
+        } finally {
+            MDC.remove("orderId");
+        }
+    }
+    
+    @Override
+    public void releaseInventory(CompensateInventoryCommand command) {
+        if ((Integer) execute(RELEASE, command) > 0) {
+            metrics.incCompensation();
+            log.info("Released inventory for order: {}", command.orderId());
+        } else {
+            log.info("No reservations found for order: {}, nothing to compensate", command.orderId());
+        }
+    }
+    
+    @Override
+    public void releaseInventoryBulk(BulkCompensateInventoryCommand command) {
+        int released = (Integer) execute(BULK_RELEASE, command);
+        metrics.incCompensations(released);
+        log.info("Bulk compensation {} released {} orders", command.batchId(), released);
+    }
+    
+    @Override
+    public CompletableFuture<?> republishReservation(String orderId) {
+        OrderReservation reservation = (OrderReservation) execute(LOOKUP, orderId);
+        return reservation == null
+            ? CompletableFuture.completedFuture(null)
+            : publishReserved(orderId, reservation);
+    }
+    
+    private CompletableFuture<?> publishReserved(String orderId, OrderReservation reservation) {
+        return eventPublisher.publishInventoryReservedEvent(new InventoryReservedEvent(orderId,
+            reservation.lines().stream()
+                .map(line -> new InventoryReservedEvent.ReservedItem(line.productId(), line.quantity()))
+                .toList()));
+    }
+    
+    /**
+     * Hand a command to the writer and wait until it is journaled and applied.
+     */
+    private Object execute(byte type, Object command) {
+        long started = System.nanoTime();
+        CompletableFuture<Object> outcome = new CompletableFuture<>();
+        try {
+            byte[] payload = type == LOOKUP ? null : objectMapper.writeValueAsBytes(command);
+            queue.put(new Pending(type, command, payload, outcome));
+            return outcome.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the inventory ledger", e);
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot serialize command " + command, e);
+        } finally {
+            metrics.recordLedgerCommand(System.nanoTime() - started);
+        }
+    }
+    
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        List<Pending> unforced = new ArrayList<>();
+        long lastForce = System.nanoTime();
+        long lastSnapshot = System.nanoTime();
+        
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(50, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    process(batch, unforced);
+                    batch.clear();
+                }
+                
+                long now = System.nanoTime();
+                if (now - lastForce >= forceInterval.toNanos()) {
+                    journal.force();
+                    lastForce = now;
+                    unforced.forEach(Pending::complete);
+                    unforced.clear();
+                }
+                if (now - lastSnapshot >= snapshotInterval.toNanos()) {
+                    scheduleSnapshot();
+                    lastSnapshot = now;
+                }
+                journal.deleteUpTo(snapshotSequence);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("Inventory ledger writer failed", e);
+            }
+        }
+        journal.force();
+        unforced.forEach(Pending::complete);
+    }
+    
+    /**
+     * Journal and apply each command. Outcomes are released at once, or after the next force when
+     * {@code force-interval} is zero.
+     */
+    private void process(List<Pending> batch, List<Pending> unforced) {
+        long timestamp = System.currentTimeMillis();
+        for (Pending pending : batch) {
+            try {
+                if (pending.type != LOOKUP) {
+                    journal.append(pending.type, timestamp, pending.payload);
+                }
+                pending.outcome = apply(pending.type, pending.command, Instant.ofEpochMilli(timestamp));
+                if (forceInterval.isZero()) {
+                    unforced.add(pending);
+                } else {
+                    pending.complete();
+                }
+            } catch (Exception e) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+    }
+    
+    private Object apply(byte type, Object command, Instant at) {
+        return switch (type) {
+            case RESERVE -> {
+                ReserveInventoryCommand reserve = (ReserveInventoryCommand) command;
+                String failure = state.reserve(reserve.orderId(), reserve.items().stream()
+                    .map(item -> new Line(null, item.productId(), item.quantity()))
+                    .toList(), at);
+                yield new ReserveOutcome(failure, state.reservation(reserve.orderId()));
+            }
+            case RELEASE -> state.release(((CompensateInventoryCommand) command).orderId(), at) ? 1 : 0;
+            case BULK_RELEASE -> {
+                int released = 0;
+                for (String orderId : ((BulkCompensateInventoryCommand) command).orderIds()) {
+                    if (state.release(orderId, at)) {
+                        released++;
+                    }
+                }
+                yield released;
+            }
+            case LOOKUP -> state.reservation((String) command);
+            default -> throw new IllegalStateException("Unknown ledger command type " + type);
+        };
+    }
+    
+    private Object readCommand(byte type, byte[] payload) {
+        try {
+            return switch (type) {
+                case RESERVE -> objectMapper.readValue(payload, ReserveInventoryCommand.class);
+                case RELEASE -> objectMapper.readValue(payload, CompensateInventoryCommand.class);
+                case BULK_RELEASE -> objectMapper.readValue(payload, BulkCompensateInventoryCommand.class);
+                default -> throw new IllegalStateException("Unknown ledger command type " + type);
+            };
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt ledger journal entry of type " + type, e);
+        }
+    }
+    
+    private void scheduleSnapshot() {
+        LedgerSnapshot changes = state.drainChanges(journal.lastSequence());
+        snapshotWriter.execute(() -> writeSnapshot(changes));
+    }
+    
+    private void writeSnapshot(LedgerSnapshot changes) {
+        if (unwritten == null) {
+            unwritten = changes;
+        } else {
+            unwritten.merge(changes);
+        }
+        if (unwritten.isEmpty() && unwritten.sequence() == snapshotSequence) {
+            unwritten = null;
+            return;
+        }
+        try {
+            snapshotStore.write(unwritten);
+            snapshotSequence = unwritten.sequence();
+            unwritten = null;
+        } catch (Exception e) {
+            log.warn("Failed to write inventory ledger snapshot at sequence {}; retrying with the next one: {}",
+                unwritten.sequence(), e.getMessage());
+        }
+    }
+    
+    @PreDestroy
+    public void stop() throws Exception {
+        running = false;
+        if (writer != null) {
+            writer.join();
+        }
+        // Final snapshot, so a clean restart has nothing to replay
+        LedgerSnapshot changes = state.drainChanges(journal.lastSequence());
+        snapshotWriter.execute(() -> writeSnapshot(changes));
+        snapshotWriter.shutdown();
+        snapshotWriter.awaitTermination(30, TimeUnit.SECONDS);
+        journal.deleteUpTo(snapshotSequence);
+        journal.close();
+    }
+    
+    private record ReserveOutcome(String failure, OrderReservation reservation) {
+    }
+    
+    private static final class Pending {
+        
+        private final byte type;
+        private final Object command;
+        private final byte[] payload;
+        private final CompletableFuture<Object> future;
+        private Object outcome;
+        
+        private Pending(byte type, Object command, byte[] payload, CompletableFuture<Object> future) {
+            this.type = type;
+            this.command = command;
+            this.payload = payload;
+            this.future = future;
+        }
+        
+        private void complete() {
+            future.complete(outcome);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.agri.inventory.application.ledger;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Changes of the ledger state since the previous snapshot, as absolute values: the stock levels of the
+ * products and the reservations of the orders that changed, the orders whose reservations were released,
+ * and when those still refused were released. Applying it to the tables brings them to the state at
+ * {@link #sequence()}.
+ */
+public final class LedgerSnapshot {
+    
+    private long sequence;
+    private final Map<String, StockLevel> products;
+    private final Map<String, OrderReservation> orders;
+    private final Set<String> releasedOrders;
+    private final Map<String, Instant> releasedAt;
+    
+    LedgerSnapshot(long sequence, Map<String, StockLevel> products, Map<String, OrderReservation> orders,
+                   Set<String> releasedOrders, Map<String, Instant> releasedAt) {
+        this.sequence = sequence;
+        this.products = new HashMap<>(products);
+        this.orders = new HashMap<>(orders);
+        this.releasedOrders = new HashSet<>(releasedOrders);
+        this.releasedAt = new HashMap<>(releasedAt);
+    }
+    
+    /**
+     * Fold a later snapshot into this one, e.g. after this one failed to be written.
+     */
+    public void merge(LedgerSnapshot later) {
+        sequence = later.sequence;
+        products.putAll(later.products);
+        for (String orderId : later.releasedOrders) {
+            orders.remove(orderId);
+            releasedOrders.add(orderId);
+        }
+        releasedAt.putAll(later.releasedAt);
+        for (Map.Entry<String, OrderReservation> order : later.orders.entrySet()) {
+            releasedOrders.remove(order.getKey());
+            releasedAt.remove(order.getKey());
+            orders.put(order.getKey(), order.getValue());
+        }
+    }
+    
+    public long sequence() {
+        return sequence;
+    }
+    
+    public Map<String, StockLevel> products() {
+        return products;
+    }
+    
+    public Map<String, OrderReservation> orders() {
+        return orders;
+    }
+    
+    public Set<String> releasedOrders() {
+        return releasedOrders;
+    }
+    
+    /**
+     * Release time of the released orders whose reserves are still refused.
+     */
+    public Map<String, Instant> releasedAt() {
+        return releasedAt;
+    }
+    
+    public boolean isEmpty() {
+        return products.isEmpty() && orders.isEmpty() && releasedOrders.isEmpty() && releasedAt.isEmpty();
+    }
+    
+    public record StockLevel(int availableQuantity, int reservedQuantity) {
+    }
+    
+    public record OrderReservation(List<Line> lines, Instant reservedAt) {
+    }
+    
+    public record Line(String reservationId, String productId, int quantity) {
+    }
+}
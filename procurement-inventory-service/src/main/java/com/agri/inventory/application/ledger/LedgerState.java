@@ -0,0 +1,204 @@
+package com.agri.inventory.application.ledger;
+
+import com.agri.inventory.application.ledger.LedgerSnapshot.Line;
+import com.agri.inventory.application.ledger.LedgerSnapshot.OrderReservation;
+import com.agri.inventory.application.ledger.LedgerSnapshot.StockLevel;
+import com.agri.inventory.domain.InventoryItem;
+import com.agri.inventory.domain.LedgerReleasedOrder;
+import com.agri.inventory.domain.Reservation;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * In-memory stock and reservations of the ledger engine. Owned by the writer thread; not thread-safe.
+ *
+ * Every change is a deterministic function of the journaled command and its timestamp (reservation ids
+ * are derived from the order id), so replaying the journal rebuilds exactly the same state.
+ *
+ * Released orders are remembered for {@code releaseRetention} after their release, and a reserve for one
+ * of them is refused: a reserve command redelivered or reordered behind its compensation must not take
+ * stock again for an order the saga has given up.
+ */
+final class LedgerState {
+    
+    private final Duration releaseRetention;
+    private final Map<String, Stock> stock = new HashMap<>();
+    private final Map<String, OrderReservation> reservations = new HashMap<>();
+    // In release order, so expired entries are at the head
+    private final LinkedHashMap<String, Instant> released = new LinkedHashMap<>();
+    
+    private final Set<String> dirtyProducts = new HashSet<>();
+    private final Set<String> dirtyOrders = new HashSet<>();
+    
+    LedgerState(Duration releaseRetention) {
+        this.releaseRetention = releaseRetention;
+    }
+    
+    void load(List<InventoryItem> items, List<Reservation> reserved, List<LedgerReleasedOrder> releasedOrders) {
+        for (InventoryItem item : items) {
+            if (item.isStriped()) {
+                throw new IllegalStateException(String.format(
+                    "Product %s is striped; demote striped products before enabling the ledger engine",
+                    item.getProductId()));
+            }
+            stock.put(item.getProductId(), new Stock(item.getProductName(), item.getAvailableQuantity(), item.getReservedQuantity()));
+        }
+        Map<String, List<Reservation>> byOrder = new HashMap<>();
+        for (Reservation reservation : reserved) {
+            byOrder.computeIfAbsent(reservation.getOrderId(), orderId -> new ArrayList<>()).add(reservation);
+        }
+        byOrder.forEach((orderId, lines) -> reservations.put(orderId, new OrderReservation(
+            lines.stream().map(r -> new Line(r.getId(), r.getProductId(), r.getQuantity())).toList(),
+            lines.get(0).getCreatedAt())));
+        releasedOrders.stream()
+            .sorted(Comparator.comparing(LedgerReleasedOrder::getReleasedAt))
+            .forEach(order -> released.put(order.getOrderId(), order.getReleasedAt()));
+    }
+    
+    int productCount() {
+        return stock.size();
+    }
+    
+    OrderReservation reservation(String orderId) {
+        return reservations.get(orderId);
+    }
+    
+    /**
+     * Reserve all lines of an order or none. An order that already holds reservations is left as is; one
+     * released within the retention is refused.
+     *
+     * @return the failure reason, or {@code null} if the order holds its reservations
+     */
+    String reserve(String orderId, List<Line> requestedLines, Instant at) {
+        if (reservations.containsKey(orderId)) {
+            return null;
+        }
+        expireReleased(at);
+        if (released.containsKey(orderId)) {
+            return String.format("Order %s was already released", orderId);
+        }
+        Map<String, Integer> requestedByProduct = new TreeMap<>();
+        for (Line line : requestedLines) {
+            requestedByProduct.merge(line.productId(), line.quantity(), Integer::sum);
+        }
+        for (Map.Entry<String, Integer> requested : requestedByProduct.entrySet()) {
+            Stock product = stock.get(requested.getKey());
+            if (product == null) {
+                return String.format("Product not found: %s", requested.getKey());
+            }
+            if (product.available < requested.getValue()) {
+                return String.format(
+                    "Insufficient inventory for product %s (%s). Available: %d, Requested: %d",
+                    requested.getKey(), product.name, product.available, requested.getValue());
+            }
+        }
+        
+        requestedByProduct.forEach((productId, quantity) -> {
+            Stock product = stock.get(productId);
+            product.available -= quantity;
+            product.reserved += quantity;
+            dirtyProducts.add(productId);
+        });
+        List<Line> lines = new ArrayList<>(requestedLines.size());
+        for (int i = 0; i < requestedLines.size(); i++) {
+            Line line = requestedLines.get(i);
+            lines.add(new Line(reservationId(orderId, i), line.productId(), line.quantity()));
+        }
+        reservations.put(orderId, new OrderReservation(List.copyOf(lines), at));
+        dirtyOrders.add(orderId);
+        return null;
+    }
+    
+    /**
+     * Release an order's reservations back to available stock, and refuse its reserves from now on; also
+     * when it holds nothing yet, as its reserve may still be on the way.
+     *
+     * @return whether the order held reservations
+     */
+    boolean release(String orderId, Instant at) {
+        expireReleased(at);
+        released.remove(orderId);
+        released.put(orderId, at);
+        dirtyOrders.add(orderId);
+        OrderReservation releasedReservation = reservations.remove(orderId);
+        if (releasedReservation == null) {
+            return false;
+        }
+        for (Line line : releasedReservation.lines()) {
+            Stock product = stock.get(line.productId());
+            if (product != null) {
+                product.reserved -= line.quantity();
+                product.available += line.quantity();
+                dirtyProducts.add(line.productId());
+            }
+        }
+        return true;
+    }
+    
+    private void expireReleased(Instant at) {
+        Instant expiredBefore = at.minus(releaseRetention);
+        Iterator<Instant> releasedAt = released.values().iterator();
+        while (releasedAt.hasNext() && releasedAt.next().isBefore(expiredBefore)) {
+            releasedAt.remove();
+        }
+    }
+    
+    /**
+     * Take the changes since the previous call.
+     */
+    LedgerSnapshot drainChanges(long sequence) {
+        Map<String, StockLevel> products = new HashMap<>();
+        for (String productId : dirtyProducts) {
+            Stock product = stock.get(productId);
+            products.put(productId, new StockLevel(product.available, product.reserved));
+        }
+        Map<String, OrderReservation> orders = new HashMap<>();
+        Set<String> releasedOrders = new HashSet<>();
+        Map<String, Instant> releasedAt = new HashMap<>();
+        for (String orderId : dirtyOrders) {
+            OrderReservation reservation = reservations.get(orderId);
+            if (reservation == null) {
+                releasedOrders.add(orderId);
+                Instant at = released.get(orderId);
+                if (at != null) {
+                    releasedAt.put(orderId, at);
+                }
+            } else {
+                orders.put(orderId, reservation);
+            }
+        }
+        dirtyProducts.clear();
+        dirtyOrders.clear();
+        return new LedgerSnapshot(sequence, products, orders, releasedOrders, releasedAt);
+    }
+    
+    private static String reservationId(String orderId, int line) {
+        return UUID.nameUUIDFromBytes((orderId + ":" + line).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+    
+    private static final class Stock {
+        
+        private final String name;
+        private int available;
+        private int reserved;
+        
+        private Stock(String name, int available, int reserved) {
+            this.name = name;
+            this.available = available;
+            this.reserved = reserved;
+        }
+    }
+}
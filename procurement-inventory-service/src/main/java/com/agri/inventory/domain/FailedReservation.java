@@ -0,0 +1,30 @@
+package com.agri.inventory.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * An order whose reserve command was refused, kept for {@code procurement.inventory.inbox.retention} so that
+ * a duplicate of the command repeats the failure reply. Written in the transaction that refused it.
+ */
+@Entity
+@Table(name = "failed_reservations")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FailedReservation {
+    
+    @Id
+    @Column(name = "order_id")
+    private String orderId;
+    
+    @Column(name = "reason", nullable = false, columnDefinition = "TEXT")
+    private String reason;
+    
+    @Column(name = "failed_at", nullable = false)
+    private Instant failedAt;
+}
@@ -30,6 +30,17 @@ public class InventoryItem {
     @Version
     private Long version;
     
+    /**
+     * Number of {@link InventoryStripe}s holding this product's available stock; {@code null} when not striped.
+     * The available quantity of a striped product is this row's plus that of its stripes.
+     */
+    @Column(name = "stripe_count")
+    private Integer stripeCount;
+    
+    public boolean isStriped() {
+        return stripeCount != null && stripeCount > 0;
+    }
+    
     /**
      * Check if the requested quantity is available in stock.
      */
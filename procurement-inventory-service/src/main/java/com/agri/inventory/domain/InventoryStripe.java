@@ -0,0 +1,47 @@
+package com.agri.inventory.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One slice of a striped product's stock. Reservations of a hot product update different stripe rows
+ * instead of all contending for its {@link InventoryItem} row.
+ */
+@Entity
+@Table(
+    name = "inventory_stripes",
+    indexes = @Index(name = "idx_inventory_stripes_product_id", columnList = "product_id")
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryStripe {
+    
+    @Id
+    private String id;
+    
+    @Column(name = "product_id", nullable = false)
+    private String productId;
+    
+    @Column(name = "stripe_index", nullable = false)
+    private Integer stripeIndex;
+    
+    @Column(name = "available_quantity", nullable = false)
+    private Integer availableQuantity;
+    
+    @Column(name = "reserved_quantity", nullable = false)
+    private Integer reservedQuantity;
+    
+    @Version
+    private Long version;
+    
+    public InventoryStripe(String productId, int stripeIndex, int availableQuantity) {
+        this.id = productId + "#" + stripeIndex;
+        this.productId = productId;
+        this.stripeIndex = stripeIndex;
+        this.availableQuantity = availableQuantity;
+        this.reservedQuantity = 0;
+    }
+}
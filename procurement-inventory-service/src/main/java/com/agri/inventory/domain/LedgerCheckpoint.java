@@ -0,0 +1,31 @@
+package com.agri.inventory.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Journal sequence up to which the ledger engine's stock is reflected in {@code inventory_items}
+ * and {@code reservations}. Written in the same transaction as each snapshot.
+ */
+@Entity
+@Table(name = "ledger_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerCheckpoint {
+    
+    public static final String LEDGER_ID = "inventory";
+    
+    @Id
+    private String id;
+    
+    @Column(name = "sequence", nullable = false)
+    private Long sequence;
+    
+    @Column(name = "taken_at", nullable = false)
+    private Instant takenAt;
+}
@@ -0,0 +1,27 @@
+package com.agri.inventory.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * An order whose reservations the ledger engine released, kept for {@code procurement.inventory.ledger.release-retention}
+ * so that a reserve command arriving after the compensation is refused. Written with each snapshot.
+ */
+@Entity
+@Table(name = "ledger_released_orders")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerReleasedOrder {
+    
+    @Id
+    @Column(name = "order_id")
+    private String orderId;
+    
+    @Column(name = "released_at", nullable = false)
+    private Instant releasedAt;
+}
@@ -8,7 +8,13 @@ import lombok.NoArgsConstructor;
 import java.time.Instant;
 
 @Entity
-@Table(name = "reservations")
+@Table(
+    name = "reservations",
+    indexes = {
+        @Index(name = "idx_reservations_order_id", columnList = "order_id"),
+        @Index(name = "idx_reservations_expires_at", columnList = "expires_at")
+    }
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -26,9 +32,28 @@ public class Reservation {
     @Column(name = "quantity", nullable = false)
     private Integer quantity;
     
+    /**
+     * Stripe the quantity was taken from, for products in striped mode; {@code null} otherwise.
+     */
+    @Column(name = "stripe_index")
+    private Integer stripeIndex;
+    
+    /**
+     * Warehouse the quantity was taken from, for warehoused products; {@code null} otherwise.
+     */
+    @Column(name = "warehouse_id")
+    private String warehouseId;
+    
     @Column(name = "created_at", nullable = false)
     private Instant createdAt;
     
+    /**
+     * When the hold lapses if the order's saga has not completed; {@code null} once the order completed
+     * (or for holds without a TTL).
+     */
+    @Column(name = "expires_at")
+    private Instant expiresAt;
+    
     @Version
     private Long version;
     
@@ -0,0 +1,29 @@
+package com.agri.inventory.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A depot stock ships from. Its position ranks it against an order's delivery location.
+ */
+@Entity
+@Table(name = "warehouses")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Warehouse {
+    
+    @Id
+    private String id;
+    
+    @Column(name = "name", nullable = false)
+    private String name;
+    
+    @Column(name = "latitude", nullable = false)
+    private Double latitude;
+    
+    @Column(name = "longitude", nullable = false)
+    private Double longitude;
+}
@@ -0,0 +1,71 @@
+package com.agri.inventory.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A product's stock in one {@link Warehouse}. A product with any of these rows is warehoused: its stock
+ * lives here, not on its {@link InventoryItem} row.
+ */
+@Entity
+@Table(
+    name = "warehouse_stock",
+    indexes = @Index(name = "idx_warehouse_stock_product_id", columnList = "product_id")
+)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WarehouseStock {
+    
+    @Id
+    private String id;
+    
+    @Column(name = "product_id", nullable = false)
+    private String productId;
+    
+    @Column(name = "warehouse_id", nullable = false)
+    private String warehouseId;
+    
+    @Column(name = "available_quantity", nullable = false)
+    private Integer availableQuantity;
+    
+    @Column(name = "reserved_quantity", nullable = false)
+    private Integer reservedQuantity;
+    
+    @Version
+    private Long version;
+    
+    public WarehouseStock(String productId, String warehouseId, int availableQuantity) {
+        this.id = id(productId, warehouseId);
+        this.productId = productId;
+        this.warehouseId = warehouseId;
+        this.availableQuantity = availableQuantity;
+        this.reservedQuantity = 0;
+    }
+    
+    public static String id(String productId, String warehouseId) {
+        return productId + "@" + warehouseId;
+    }
+    
+    public void reserve(int quantity) {
+        if (availableQuantity < quantity) {
+            throw new IllegalStateException(String.format(
+                "Insufficient inventory for product %s in warehouse %s. Available: %d, Requested: %d",
+                productId, warehouseId, availableQuantity, quantity));
+        }
+        availableQuantity -= quantity;
+        reservedQuantity += quantity;
+    }
+    
+    public void release(int quantity) {
+        if (reservedQuantity < quantity) {
+            throw new IllegalStateException(String.format(
+                "Cannot release more than reserved for product %s in warehouse %s. Reserved: %d, Release requested: %d",
+                productId, warehouseId, reservedQuantity, quantity));
+        }
+        reservedQuantity -= quantity;
+        availableQuantity += quantity;
+    }
+}
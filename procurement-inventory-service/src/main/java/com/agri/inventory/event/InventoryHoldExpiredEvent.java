@@ -0,0 +1,31 @@
+package com.agri.inventory.event;
+
+import com.agri.common.event.DomainEvent;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * An order's reservation was released because its hold expired before the saga completed.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class InventoryHoldExpiredEvent extends DomainEvent {
+    
+    private String orderId;
+    private List<InventoryReservedEvent.ReservedItem> items;
+    
+    public InventoryHoldExpiredEvent(String orderId, List<InventoryReservedEvent.ReservedItem> items) {
+        super(orderId, 1L);
+        this.orderId = orderId;
+        this.items = items;
+    }
+    
+    @Override
+    public String getEventType() {
+        return "InventoryHoldExpired";
+    }
+}
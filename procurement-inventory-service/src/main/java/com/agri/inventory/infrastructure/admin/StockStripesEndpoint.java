@@ -0,0 +1,39 @@
+package com.agri.inventory.infrastructure.admin;
+
+import com.agri.inventory.application.StripedStock;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint for striped stock:
+ * {@code GET /actuator/stockstripes/{productId}} shows the product's stock per stripe,
+ * {@code POST /actuator/stockstripes/{productId} {"stripes": 8}} promotes it to striped mode and
+ * {@code DELETE /actuator/stockstripes/{productId}} folds it back into a single row.
+ */
+@Component
+@Endpoint(id = "stockstripes")
+@RequiredArgsConstructor
+public class StockStripesEndpoint {
+    
+    private final StripedStock stripedStock;
+    
+    @ReadOperation
+    public StripedStock.StockView stock(@Selector String productId) {
+        return stripedStock.stock(productId);
+    }
+    
+    @WriteOperation
+    public StripedStock.StockView stripe(@Selector String productId, int stripes) {
+        return stripedStock.stripe(productId, stripes);
+    }
+    
+    @DeleteOperation
+    public StripedStock.StockView unstripe(@Selector String productId) {
+        return stripedStock.unstripe(productId);
+    }
+}
@@ -0,0 +1,35 @@
+package com.agri.inventory.infrastructure.admin;
+
+import com.agri.inventory.application.WarehouseAllocator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint for warehouse stock:
+ * {@code GET /actuator/warehousestock/{productId}} shows the product's stock per warehouse and
+ * {@code POST /actuator/warehousestock/{productId} {"warehouseId": "WH-TASHKENT", "onHand": 400}} sets its
+ * stock on hand in one warehouse, making the product warehoused if it was not.
+ */
+@Component
+@Endpoint(id = "warehousestock")
+@ConditionalOnProperty(name = "procurement.inventory.engine", havingValue = "jpa", matchIfMissing = true)
+@RequiredArgsConstructor
+public class WarehouseStockEndpoint {
+    
+    private final WarehouseAllocator warehouseAllocator;
+    
+    @ReadOperation
+    public WarehouseAllocator.StockView stock(@Selector String productId) {
+        return warehouseAllocator.stock(productId);
+    }
+    
+    @WriteOperation
+    public WarehouseAllocator.StockView setStock(@Selector String productId, String warehouseId, int onHand) {
+        return warehouseAllocator.setStock(productId, warehouseId, onHand);
+    }
+}
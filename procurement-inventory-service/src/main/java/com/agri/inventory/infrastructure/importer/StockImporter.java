@@ -0,0 +1,207 @@
+package com.agri.inventory.infrastructure.importer;
+
+import com.agri.inventory.application.StockCache;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Bulk stock import from supplier CSV files ({@code product_id,product_name,quantity} with a header line).
+ *
+ * The file is streamed into a temporary staging table with {@code COPY ... FROM STDIN}, so memory stays
+ * constant whatever its size, and Postgres parses the CSV. The staging rows are then merged into
+ * {@code inventory_items} with one set-based statement, in the same transaction:
+ * <ul>
+ *   <li>{@link ImportMode#SET}: the quantity is the product's stock on hand. Available becomes that minus
+ *       what is currently reserved (never below zero), and unknown products are created. If a product
+ *       appears more than once, the last line wins.</li>
+ *   <li>{@link ImportMode#ADJUST}: the quantity is added to available (never below zero). Lines of the same
+ *       product are summed, and unknown products are skipped.</li>
+ * </ul>
+ * The touched rows are locked first, in product order, like a reservation, so an import cannot deadlock
+ * with one. Striped and warehoused products are skipped: their stock lives in stripes or warehouse rows,
+ * so demote striped products before importing, and set warehouse stock per warehouse.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "procurement.inventory.engine", havingValue = "jpa", matchIfMissing = true)
+public class StockImporter {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final long PROGRESS_EVERY_ROWS = 50_000;
+
+    private static final String CREATE_STAGING =
+        "CREATE TEMPORARY TABLE stock_import (line BIGSERIAL, product_id VARCHAR(255) NOT NULL, " +
+        "product_name VARCHAR(255), quantity INTEGER NOT NULL) ON COMMIT DROP";
+
+    private static final String COPY_STAGING =
+        "COPY stock_import (product_id, product_name, quantity) FROM STDIN WITH (FORMAT csv, HEADER true)";
+
+    private static final String LOCK_TOUCHED =
+        "SELECT 1 FROM inventory_items WHERE product_id IN (SELECT product_id FROM stock_import) " +
+        "ORDER BY product_id FOR UPDATE";
+
+    private static final String MERGE_SET = """
+        INSERT INTO inventory_items AS i (id, product_id, product_name, available_quantity, reserved_quantity, version)
+        SELECT gen_random_uuid()::text, s.product_id, COALESCE(NULLIF(s.product_name, ''), s.product_id),
+               GREATEST(s.quantity, 0), 0, 0
+        FROM (SELECT DISTINCT ON (product_id) product_id, product_name, quantity
+              FROM stock_import ORDER BY product_id, line DESC) s
+        ORDER BY s.product_id
+        ON CONFLICT (product_id) DO UPDATE
+        SET available_quantity = GREATEST(EXCLUDED.available_quantity - i.reserved_quantity, 0),
+            version = i.version + 1
+        WHERE (i.stripe_count IS NULL OR i.stripe_count = 0)
+          AND NOT EXISTS (SELECT 1 FROM warehouse_stock w WHERE w.product_id = i.product_id)
+        RETURNING (xmax = 0) AS inserted
+        """;
+
+    private static final String MERGE_ADJUST = """
+        UPDATE inventory_items i
+        SET available_quantity = GREATEST(i.available_quantity + s.quantity, 0),
+            version = i.version + 1
+        FROM (SELECT product_id, SUM(quantity) AS quantity FROM stock_import GROUP BY product_id) s
+        WHERE i.product_id = s.product_id AND (i.stripe_count IS NULL OR i.stripe_count = 0)
+          AND NOT EXISTS (SELECT 1 FROM warehouse_stock w WHERE w.product_id = i.product_id)
+        RETURNING false AS inserted
+        """;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StockCache stockCache;
+
+    public StockImporter(DataSource dataSource, JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager, StockCache stockCache) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.stockCache = stockCache;
+    }
+
+    public ImportResult importStock(InputStream csv, ImportMode mode, String source) {
+        long started = System.nanoTime();
+        ImportResult result = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute(CREATE_STAGING);
+            long rows = copy(csv, source, started);
+            log.info("Import {}: {} rows staged, merging ({})", source, rows, mode);
+
+            jdbcTemplate.query(LOCK_TOUCHED, rs -> { });
+            int[] merged = new int[2];
+            jdbcTemplate.query(mode == ImportMode.SET ? MERGE_SET : MERGE_ADJUST,
+                rs -> { merged[rs.getBoolean("inserted") ? 0 : 1]++; });
+            Long products = jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT product_id) FROM stock_import", Long.class);
+            return new ImportResult(mode, rows, merged[0], merged[1],
+                (products == null ? 0 : products) - merged[0] - merged[1], elapsed(started));
+        });
+
+        stockCache.refresh();
+        log.info("Import {} finished: {} rows, {} products created, {} updated, {} skipped in {} ms ({} rows/s)",
+            source, result.rows(), result.created(), result.updated(), result.skipped(),
+            result.duration().toMillis(), result.rowsPerSecond());
+        return result;
+    }
+
+    /**
+     * Stream the file into the staging table, logging progress as lines go by.
+     *
+     * @return the number of rows copied
+     */
+    private long copy(InputStream csv, String source, long started) {
+        try {
+            PGConnection connection = DataSourceUtils.getConnection(dataSource).unwrap(PGConnection.class);
+            return connection.getCopyAPI().copyIn(COPY_STAGING, new ProgressStream(csv, source, started), COPY_BUFFER_SIZE);
+        } catch (SQLException e) {
+            // Class 22 (data exception) and 23 (constraint violation): the file itself is malformed
+            if (e.getSQLState() != null && (e.getSQLState().startsWith("22") || e.getSQLState().startsWith("23"))) {
+                throw new IllegalArgumentException("Stock import " + source + " rejected: " + e.getMessage(), e);
+            }
+            throw new IllegalStateException("Stock import " + source + " failed", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read stock import " + source, e);
+        }
+    }
+
+    private static Duration elapsed(long started) {
+        return Duration.ofNanos(System.nanoTime() - started);
+    }
+
+    public enum ImportMode {
+        SET,
+        ADJUST
+    }
+
+    /**
+     * @param skipped products in the file that were not merged (striped, warehoused, or unknown when adjusting)
+     */
+    public record ImportResult(ImportMode mode, long rows, int created, int updated, long skipped, Duration duration) {
+
+        public long rowsPerSecond() {
+            long millis = Math.max(1, duration.toMillis());
+            return rows * 1000 / millis;
+        }
+    }
+
+    /**
+     * Counts lines while the copy reads the file. Quoted line breaks are counted too, so the figure
+     * is approximate; the final row count comes from {@code COPY}.
+     */
+    private static final class ProgressStream extends FilterInputStream {
+
+        private final String source;
+        private final long started;
+        private long lines;
+        private long nextReport = PROGRESS_EVERY_ROWS;
+
+        ProgressStream(InputStream in, String source, long started) {
+            super(in);
+            this.source = source;
+            this.started = started;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == '\n') {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            int newlines = 0;
+            for (int i = offset; i < offset + read; i++) {
+                if (buffer[i] == '\n') {
+                    newlines++;
+                }
+            }
+            count(newlines);
+            return read;
+        }
+
+        private void count(int newlines) {
+            lines += newlines;
+            if (lines >= nextReport) {
+                nextReport += PROGRESS_EVERY_ROWS;
+                long millis = Math.max(1, elapsed(started).toMillis());
+                log.info("Import {}: {} rows read ({} rows/s)", source, lines, lines * 1000 / millis);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.agri.inventory.infrastructure.inbox;
+
+import com.agri.common.inbox.Inbox;
+import com.agri.common.inbox.InboxStore;
+import com.agri.common.inbox.JpaInboxStore;
+import com.agri.common.inbox.MessageIdFilter;
+import com.agri.inventory.observability.InventoryMetrics;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Inbox deduplicating inventory commands, stored in {@code inbox_messages} next to the stock rows.
+ * A Bloom filter of recorded command ids ({@code procurement.inventory.inbox.filter}) lets first deliveries
+ * skip the lookup; it is rebuilt by {@link InboxPurger}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "procurement.inventory.engine", havingValue = "jpa", matchIfMissing = true)
+public class InboxConfig {
+    
+    @Bean
+    public InboxStore inventoryInboxStore(EntityManager entityManager) {
+        return new JpaInboxStore(entityManager);
+    }
+    
+    @Bean
+    public Inbox inventoryInbox(InboxStore inventoryInboxStore, PlatformTransactionManager transactionManager,
+                                InventoryMetrics metrics,
+                                @Value("${procurement.inventory.inbox.recent-capacity:10000}") int recentCapacity,
+                                @Value("${procurement.inventory.inbox.filter.enabled:true}") boolean filterEnabled,
+                                @Value("${procurement.inventory.inbox.filter.expected-insertions:1000000}") long expectedInsertions,
+                                @Value("${procurement.inventory.inbox.filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        MessageIdFilter filter = null;
+        if (filterEnabled) {
+            filter = new MessageIdFilter(expectedInsertions, falsePositiveRate);
+            metrics.registerInboxFilter(filter);
+        }
+        return new Inbox("inventory-service", inventoryInboxStore, new TransactionTemplate(transactionManager),
+            recentCapacity, filter);
+    }
+}
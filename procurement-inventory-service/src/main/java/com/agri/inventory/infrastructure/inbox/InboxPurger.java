@@ -0,0 +1,63 @@
+package com.agri.inventory.infrastructure.inbox;
+
+import com.agri.common.inbox.Inbox;
+import com.agri.inventory.application.InventoryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Scheduled cleanup of the command inbox ({@code procurement.inventory.inbox.retention}), together with the
+ * refused reservations kept to answer duplicates, which are only recognised as long as the inbox holds them.
+ * The id filter is rebuilt on startup and after each purge, so purged ids leave it too.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "procurement.inventory.engine", havingValue = "jpa", matchIfMissing = true)
+public class InboxPurger {
+    
+    private final Inbox inbox;
+    private final InventoryService inventoryService;
+    
+    @Value("${procurement.inventory.inbox.retention:P7D}")
+    private Duration retention;
+    
+    public InboxPurger(Inbox inbox, InventoryService inventoryService) {
+        this.inbox = inbox;
+        this.inventoryService = inventoryService;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFilter() {
+        rebuildFilter();
+    }
+    
+    @Scheduled(fixedDelayString = "${procurement.inventory.inbox.purge-interval:3600000}",
+               initialDelayString = "${procurement.inventory.inbox.purge-interval:3600000}")
+    public void purge() {
+        int purged = inbox.purge(retention);
+        if (purged > 0) {
+            log.info("Purged {} inbox entries older than {}", purged, retention);
+        }
+        int failed = inventoryService.purgeFailedReservations(retention);
+        if (failed > 0) {
+            log.info("Purged {} refused reservations older than {}", failed, retention);
+        }
+        rebuildFilter();
+    }
+    
+    private void rebuildFilter() {
+        try {
+            long loaded = inbox.rebuildFilter();
+            log.debug("Rebuilt inbox id filter with {} entries", loaded);
+        } catch (Exception e) {
+            log.warn("Failed to rebuild inbox id filter, keeping the previous one: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.agri.inventory.infrastructure.kafka;
+
+import com.agri.common.inbox.Inbox;
+import com.agri.inventory.application.InventoryService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Batch consumer mode ({@code procurement.inventory.consumer.mode=batch}).
+ *
+ * The commands of one poll are applied in a single transaction ({@link InventoryService#processBatch}),
+ * together with their inbox entries, so the rows of a popular product are locked and flushed once per
+ * poll instead of once per command. Result events are published after the commit and flushed together;
+ * the offsets are committed only once every send was acknowledged. If any send failed, the error is
+ * thrown to the container's error handler, which redelivers the batch; its commands are then duplicates,
+ * whose replies are repeated.
+ *
+ * If the batch transaction fails, the commands are applied one by one through {@link CommandListener};
+ * the first one that still fails is handed to the container's error handler, which commits the
+ * offsets before it and retries from it.
+ */
+@Component
+@ConditionalOnProperty(name = "procurement.inventory.consumer.mode", havingValue = "batch")
+@Slf4j
+public class BatchCommandListener {
+
+    private final CommandBatch commandBatch;
+    private final CommandListener commandListener;
+    private final EventPublisher eventPublisher;
+    private final TransactionTemplate transactions;
+
+    public BatchCommandListener(ObjectProvider<InventoryService> inventoryService,
+                                CommandListener commandListener,
+                                EventPublisher eventPublisher,
+                                ObjectProvider<Inbox> inbox,
+                                PlatformTransactionManager transactionManager) {
+        InventoryService service = inventoryService.getIfAvailable();
+        if (service == null) {
+            throw new IllegalStateException(
+                "procurement.inventory.consumer.mode=batch requires procurement.inventory.engine=jpa");
+        }
+        this.commandBatch = new CommandBatch(service, commandListener, inbox.getIfAvailable());
+        this.commandListener = commandListener;
+        this.eventPublisher = eventPublisher;
+        this.transactions = new TransactionTemplate(transactionManager);
+    }
+
+    @KafkaListener(
+        topics = "inventory.commands",
+        groupId = "inventory-service-group",
+        containerFactory = "batchListenerContainerFactory"
+    )
+    public void handleCommands(List<ConsumerRecord<String, String>> records, Acknowledgment acknowledgment) {
+        log.debug("Received batch of {} commands", records.size());
+        List<ConsumerRecord<String, String>> duplicates = new ArrayList<>();
+
+        InventoryService.BatchOutcome outcome;
+        try {
+            outcome = transactions.execute(status -> commandBatch.apply(records, duplicates));
+        } catch (Exception e) {
+            log.warn("Batch of {} commands failed, applying them one by one: {}", records.size(), e.getMessage());
+            handleOneByOne(records);
+            acknowledgment.acknowledge();
+            return;
+        }
+
+        List<CompletableFuture<?>> sends = new ArrayList<>();
+        outcome.reserved().forEach(event -> sends.add(eventPublisher.publishInventoryReservedEvent(event)));
+        outcome.failed().forEach(event -> sends.add(eventPublisher.publishInventoryReservationFailedEvent(event)));
+        duplicates.forEach(record -> sends.add(commandListener.onDuplicate(record)));
+        eventPublisher.flush();
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Failed to publish the results of a batch of " + records.size() + " commands",
+                e.getCause());
+        }
+        acknowledgment.acknowledge();
+    }
+
+    private void handleOneByOne(List<ConsumerRecord<String, String>> records) {
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                commandListener.handleCommand(records.get(i));
+            } catch (Exception e) {
+                throw new BatchListenerFailedException("Failed to process command", e, i);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.agri.inventory.infrastructure.kafka;
+
+import com.agri.common.inbox.Inbox;
+import com.agri.common.kafka.EventTypeDispatcher;
+import com.agri.inventory.application.InventoryService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The commands of one poll applied in one database transaction, with their inbox entries; shared by
+ * {@link BatchCommandListener} and {@link TransactionalCommandListener}.
+ */
+@Slf4j
+final class CommandBatch {
+
+    private final InventoryService inventoryService;
+    private final CommandListener commandListener;
+    private final Inbox inbox;
+
+    CommandBatch(InventoryService inventoryService, CommandListener commandListener, Inbox inbox) {
+        this.inventoryService = inventoryService;
+        this.commandListener = commandListener;
+        this.inbox = inbox;
+    }
+
+    /**
+     * Must run in a transaction. Commands this consumer already processed, or that repeat one earlier in
+     * the poll, are skipped and added to {@code duplicates}.
+     */
+    InventoryService.BatchOutcome apply(List<ConsumerRecord<String, String>> records,
+                                        List<ConsumerRecord<String, String>> duplicates) {
+        List<Object> commands = new ArrayList<>();
+        Set<String> messageIds = new HashSet<>();
+        for (ConsumerRecord<String, String> record : records) {
+            if (!commandListener.handles(record)) {
+                log.warn("Unknown command type: {}", EventTypeDispatcher.eventType(record));
+                continue;
+            }
+            if (inbox != null) {
+                // Redelivered within the batch, or applied by an earlier one
+                if (!messageIds.add(Inbox.messageId(record)) || inbox.seen(record)) {
+                    duplicates.add(record);
+                    continue;
+                }
+                inbox.record(record);
+            }
+            commands.add(commandListener.convert(record));
+        }
+        return inventoryService.processBatch(commands);
+    }
+}
@@ -1,63 +1,83 @@
 package com.agri.inventory.infrastructure.kafka;
 
+import com.agri.common.command.BulkCompensateInventoryCommand;
 import com.agri.common.command.CompensateInventoryCommand;
 import com.agri.common.command.ReserveInventoryCommand;
-import com.agri.inventory.application.InventoryService;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.agri.common.inbox.Inbox;
+import com.agri.common.kafka.EventTypeDispatcher;
+import com.agri.inventory.application.InventoryEngine;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class CommandListener {
     
-    private final InventoryService inventoryService;
-    private final ObjectMapper objectMapper;
+    private final InventoryEngine inventoryEngine;
+    private final EventTypeDispatcher dispatcher;
+    private final Inbox inbox;
+    
+    public CommandListener(InventoryEngine inventoryEngine, ObjectProvider<Inbox> inbox, ObjectMapper objectMapper) {
+        this.inventoryEngine = inventoryEngine;
+        this.inbox = inbox.getIfAvailable();
+        this.dispatcher = EventTypeDispatcher.builder(objectMapper)
+            .on(ReserveInventoryCommand.class, command -> {
+                MDC.put("commandType", "ReserveInventory");
+                MDC.put("orderId", command.orderId());
+                log.info("Processing ReserveInventoryCommand for order: {}", command.orderId());
+                inventoryEngine.reserveInventory(command);
+            })
+            .on(CompensateInventoryCommand.class, command -> {
+                MDC.put("commandType", "CompensateInventory");
+                MDC.put("orderId", command.orderId());
+                log.info("Processing CompensateInventoryCommand for order: {}", command.orderId());
+                inventoryEngine.releaseInventory(command);
+            })
+            .on(BulkCompensateInventoryCommand.class, command -> {
+                MDC.put("commandType", "BulkCompensateInventory");
+                log.info("Processing BulkCompensateInventoryCommand {} for {} orders",
+                    command.batchId(), command.orderIds().size());
+                inventoryEngine.releaseInventoryBulk(command);
+            })
+            .build();
+    }
     
     /**
      * Listen to inventory commands from the SAGA orchestrator.
-     * Uses retry mechanism with exponential backoff for resilience.
+     * Commands are routed on their event-type header and parsed once, straight into the command type.
+     * Each command is applied once through the inbox; a duplicate reserve command repeats the
+     * success reply instead. The ledger engine runs without the inbox: it repeats the reply of an order it
+     * holds reservations for, and refuses reserves for orders it released within its retention.
+     * Failures are retried out of band through delayed retry topics and finally dead-lettered,
+     * so a failing command never blocks its partition.
+     * In batch and transactional consumer mode this listener is not started; {@link BatchCommandListener}
+     * and {@link TransactionalCommandListener} fall back to it when a batch fails.
      */
     @KafkaListener(
         topics = "inventory.commands",
         groupId = "inventory-service-group",
-        containerFactory = "kafkaListenerContainerFactory"
-    )
-    @Retryable(
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 1000, multiplier = 2)
+        containerFactory = "kafkaListenerContainerFactory",
+        autoStartup = "#{'${procurement.inventory.consumer.mode:record}' == 'record'}"
     )
-    public void handleCommand(String message) {
+    public void handleCommand(ConsumerRecord<String, String> record) {
         try {
-            log.debug("Received command: {}", message);
+            log.debug("Received command for key: {}", record.key());
             
-            // Parse message to determine command type
-            JsonNode rootNode = objectMapper.readTree(message);
-            String commandType = rootNode.has("@type") 
-                ? rootNode.get("@type").asText() 
-                : determineCommandType(rootNode);
-            
-            if (commandType.contains("ReserveInventoryCommand")) {
-                ReserveInventoryCommand command = objectMapper.readValue(message, ReserveInventoryCommand.class);
-                MDC.put("commandType", "ReserveInventory");
-                MDC.put("orderId", command.orderId());
-                log.info("Processing ReserveInventoryCommand for order: {}", command.orderId());
-                inventoryService.reserveInventory(command);
-            } else if (commandType.contains("CompensateInventoryCommand")) {
-                CompensateInventoryCommand command = objectMapper.readValue(message, CompensateInventoryCommand.class);
-                MDC.put("commandType", "CompensateInventory");
-                MDC.put("orderId", command.orderId());
-                log.info("Processing CompensateInventoryCommand for order: {}", command.orderId());
-                inventoryService.releaseInventory(command);
+            if (!dispatcher.handles(record)) {
+                log.warn("Unknown command type: {}", EventTypeDispatcher.eventType(record));
+                return;
+            }
+            if (inbox == null) {
+                dispatcher.dispatch(record);
             } else {
-                log.warn("Unknown command type: {}", commandType);
+                inbox.process(record, () -> dispatcher.dispatch(record), () -> onDuplicate(record));
             }
             
         } catch (Exception e) {
@@ -68,13 +88,25 @@ public class CommandListener {
         }
     }
     
-    private String determineCommandType(JsonNode rootNode) {
-        // Fallback: determine by presence of fields
-        if (rootNode.has("items")) {
-            return "ReserveInventoryCommand";
-        } else if (rootNode.has("orderId") && !rootNode.has("items")) {
-            return "CompensateInventoryCommand";
+    boolean handles(ConsumerRecord<String, String> record) {
+        return dispatcher.handles(record);
+    }
+    
+    /**
+     * Parse a command without applying it.
+     */
+    Object convert(ConsumerRecord<String, String> record) {
+        return dispatcher.convert(record);
+    }
+    
+    /**
+     * @return the send of the repeated reply, or a completed future if nothing was repeated
+     */
+    CompletableFuture<?> onDuplicate(ConsumerRecord<String, String> record) {
+        log.info("Skipping duplicate {} for key: {}", EventTypeDispatcher.eventType(record), record.key());
+        if ("ReserveInventoryCommand".equals(EventTypeDispatcher.eventType(record))) {
+            return inventoryEngine.republishReservation(record.key());
         }
-        return "Unknown";
+        return CompletableFuture.completedFuture(null);
     }
 }
@@ -0,0 +1,34 @@
+package com.agri.inventory.infrastructure.kafka;
+
+import com.agri.inventory.observability.InventoryMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Terminal handler for commands that exhausted their retry topics.
+ * Records stay on the DLT and can be replayed in bulk through the {@code dltreplay} actuator endpoint.
+ */
+@Component("deadLetterHandler")
+@RequiredArgsConstructor
+@Slf4j
+public class DeadLetterHandler {
+    
+    private final InventoryMetrics metrics;
+    
+    public void handle(ConsumerRecord<String, String> record) {
+        log.error("Dead-lettered command on {} for key: {} after exhausting retries. Cause: {}",
+            record.topic(), record.key(), headerValue(record, KafkaHeaders.DLT_EXCEPTION_MESSAGE));
+        metrics.incDeadLetter(record.topic());
+    }
+    
+    private String headerValue(ConsumerRecord<String, String> record, String key) {
+        Header header = record.headers().lastHeader(key);
+        return header == null ? "unknown" : new String(header.value(), StandardCharsets.UTF_8);
+    }
+}
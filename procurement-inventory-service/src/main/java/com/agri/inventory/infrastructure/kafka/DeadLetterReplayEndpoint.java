@@ -0,0 +1,34 @@
+package com.agri.inventory.infrastructure.kafka;
+
+import com.agri.common.kafka.DeadLetterReplayer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint for bulk DLT replay:
+ * {@code POST /actuator/dltreplay {"topic": "inventory.commands", "maxRecords": 1000}}.
+ */
+@Component
+@Endpoint(id = "dltreplay")
+@RequiredArgsConstructor
+@Slf4j
+public class DeadLetterReplayEndpoint {
+    
+    private static final int DEFAULT_MAX_RECORDS = 1000;
+    
+    private final DeadLetterReplayer replayer;
+    
+    @WriteOperation
+    public DeadLetterReplayer.ReplayResult replay(String topic, @Nullable Integer maxRecords) {
+        int limit = maxRecords == null ? DEFAULT_MAX_RECORDS : maxRecords;
+        log.info("Replaying up to {} dead-lettered records for topic: {}", limit, topic);
+        DeadLetterReplayer.ReplayResult result = replayer.replay(topic, limit);
+        log.info("Replayed {} records from {} to {} ({} remaining)",
+            result.replayed(), result.deadLetterTopic(), result.targetTopic(), result.remaining());
+        return result;
+    }
+}
@@ -1,5 +1,7 @@
 package com.agri.inventory.infrastructure.kafka;
 
+import com.agri.common.kafka.EventHeaders;
+import com.agri.inventory.event.InventoryHoldExpiredEvent;
 import com.agri.inventory.event.InventoryReservationFailedEvent;
 import com.agri.inventory.event.InventoryReservedEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -23,14 +25,17 @@ public class EventPublisher {
     
     /**
      * Publish inventory reserved event.
+     *
+     * @return the send, for callers that must know it was acknowledged
      */
-    public void publishInventoryReservedEvent(InventoryReservedEvent event) {
+    public CompletableFuture<SendResult<String, String>> publishInventoryReservedEvent(InventoryReservedEvent event) {
         try {
             String eventJson = objectMapper.writeValueAsString(event);
             log.info("Publishing InventoryReservedEvent for order: {}", event.getOrderId());
             
             CompletableFuture<SendResult<String, String>> future = 
-                kafkaTemplate.send(INVENTORY_EVENTS_TOPIC, event.getOrderId(), eventJson);
+                kafkaTemplate.send(EventHeaders.record(
+                    INVENTORY_EVENTS_TOPIC, event.getOrderId(), eventJson, event.getEventType(), event.getEventId()));
             
             future.whenComplete((result, ex) -> {
                 if (ex == null) {
@@ -41,6 +46,7 @@ public class EventPublisher {
                         event.getOrderId(), ex);
                 }
             });
+            return future;
             
         } catch (Exception e) {
             log.error("Error publishing InventoryReservedEvent for order: {}", 
@@ -51,15 +57,19 @@ public class EventPublisher {
     
     /**
      * Publish inventory reservation failed event.
+     *
+     * @return the send, for callers that must know it was acknowledged
      */
-    public void publishInventoryReservationFailedEvent(InventoryReservationFailedEvent event) {
+    public CompletableFuture<SendResult<String, String>> publishInventoryReservationFailedEvent(
+            InventoryReservationFailedEvent event) {
         try {
             String eventJson = objectMapper.writeValueAsString(event);
             log.info("Publishing InventoryReservationFailedEvent for order: {} - Reason: {}", 
                 event.getOrderId(), event.getReason());
             
             CompletableFuture<SendResult<String, String>> future = 
-                kafkaTemplate.send(INVENTORY_EVENTS_TOPIC, event.getOrderId(), eventJson);
+                kafkaTemplate.send(EventHeaders.record(
+                    INVENTORY_EVENTS_TOPIC, event.getOrderId(), eventJson, event.getEventType(), event.getEventId()));
             
             future.whenComplete((result, ex) -> {
                 if (ex == null) {
@@ -70,6 +80,7 @@ public class EventPublisher {
                         event.getOrderId(), ex);
                 }
             });
+            return future;
             
         } catch (Exception e) {
             log.error("Error publishing InventoryReservationFailedEvent for order: {}", 
@@ -77,4 +88,33 @@ public class EventPublisher {
             throw new RuntimeException("Failed to publish event", e);
         }
     }
+    
+    /**
+     * Publish inventory hold expired event.
+     */
+    public void publishInventoryHoldExpiredEvent(InventoryHoldExpiredEvent event) {
+        try {
+            String eventJson = objectMapper.writeValueAsString(event);
+            log.info("Publishing InventoryHoldExpiredEvent for order: {}", event.getOrderId());
+            
+            kafkaTemplate.send(EventHeaders.record(
+                    INVENTORY_EVENTS_TOPIC, event.getOrderId(), eventJson, event.getEventType(), event.getEventId()))
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        log.error("Failed to publish InventoryHoldExpiredEvent for order: {}", event.getOrderId(), ex);
+                    }
+                });
+            
+        } catch (Exception e) {
+            log.error("Error publishing InventoryHoldExpiredEvent for order: {}", event.getOrderId(), e);
+            throw new RuntimeException("Failed to publish event", e);
+        }
+    }
+    
+    /**
+     * Send everything published so far without waiting for the linger time.
+     */
+    public void flush() {
+        kafkaTemplate.flush();
+    }
 }
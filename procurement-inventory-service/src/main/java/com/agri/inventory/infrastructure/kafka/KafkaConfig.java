@@ -1,20 +1,41 @@
 package com.agri.inventory.infrastructure.kafka;
 
+import com.agri.common.event.dto.StockLevelEventDTO;
+import com.agri.common.inbox.Inbox;
+import com.agri.common.kafka.DeadLetterReplayer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.retrytopic.DltStrategy;
+import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Configuration
@@ -27,6 +48,33 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
     
+    @Value("${procurement.inventory.retry.attempts:4}")
+    private int retryAttempts;
+    
+    @Value("${procurement.inventory.retry.initial-delay:1000}")
+    private long retryInitialDelay;
+    
+    @Value("${procurement.inventory.retry.multiplier:5.0}")
+    private double retryMultiplier;
+    
+    @Value("${procurement.inventory.retry.max-delay:30000}")
+    private long retryMaxDelay;
+    
+    @Value("${procurement.inventory.consumer.mode:record}")
+    private String consumerMode;
+    
+    @Value("${procurement.inventory.consumer.transaction-id-prefix:inventory-tx-}")
+    private String transactionIdPrefix;
+    
+    @Value("${procurement.inventory.consumer.transaction-timeout:60000}")
+    private int transactionTimeout;
+    
+    private final ObjectProvider<Inbox> inbox;
+    
+    public KafkaConfig(ObjectProvider<Inbox> inbox) {
+        this.inbox = inbox;
+    }
+    
     @Bean
     public ObjectMapper objectMapper() {
         ObjectMapper mapper = new ObjectMapper();
@@ -46,12 +94,25 @@ public class KafkaConfig {
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
         configProps.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5);
         configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "snappy");
-        return new DefaultKafkaProducerFactory<>(configProps);
+        if (isTransactional()) {
+            configProps.put(ProducerConfig.TRANSACTION_TIMEOUT_CONFIG, transactionTimeout);
+        }
+        DefaultKafkaProducerFactory<String, String> factory = new DefaultKafkaProducerFactory<>(configProps);
+        if (isTransactional()) {
+            factory.setTransactionIdPrefix(transactionIdPrefix);
+        }
+        return factory;
     }
     
+    /**
+     * In transactional consumer mode, sends made while a command listener's Kafka transaction is active join
+     * it; the others (hold sweeper, replies outside a listener) use a plain idempotent producer.
+     */
     @Bean
     public KafkaTemplate<String, String> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+        KafkaTemplate<String, String> template = new KafkaTemplate<>(producerFactory());
+        template.setAllowNonTransactional(true);
+        return template;
     }
     
     @Bean
@@ -75,6 +136,143 @@ public class KafkaConfig {
             new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
         factory.setConcurrency(3);
+        factory.getContainerProperties().setConsumerRebalanceListener(inboxRebalanceListener());
+        return factory;
+    }
+    
+    /**
+     * Tells the command inbox which partitions it took over, so their records are looked up in the store
+     * until its id filter knows what the previous owner recorded.
+     */
+    private ConsumerAwareRebalanceListener inboxRebalanceListener() {
+        return new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                inbox.ifAvailable(commandInbox -> commandInbox.partitionsAssigned(partitions));
+            }
+        };
+    }
+    
+    /**
+     * Non-blocking retries for inventory commands.
+     * A failed command is forwarded to {@code inventory.commands-retry-0..n} with growing delays
+     * (1s, 5s, 25s by default) and finally to {@code inventory.commands-dlt}.
+     * Unreadable payloads go straight to the DLT.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "procurement.inventory.consumer.mode", havingValue = "record", matchIfMissing = true)
+    public RetryTopicConfiguration inventoryRetryTopicConfiguration(KafkaTemplate<String, String> kafkaTemplate) {
+        return RetryTopicConfigurationBuilder
+            .newInstance()
+            .maxAttempts(retryAttempts)
+            .exponentialBackoff(retryInitialDelay, retryMultiplier, retryMaxDelay)
+            .suffixTopicsWithIndexValues()
+            .dltSuffix(DeadLetterReplayer.DLT_SUFFIX)
+            .dltHandlerMethod("deadLetterHandler", "handle")
+            .dltProcessingFailureStrategy(DltStrategy.FAIL_ON_ERROR)
+            .notRetryOn(SerializationException.class)
+            .traversingCauses()
+            .includeTopics(List.of("inventory.commands"))
+            .create(kafkaTemplate);
+    }
+    
+    /**
+     * Batch consumer mode: each poll of up to {@code batch-size} commands goes to {@link BatchCommandListener},
+     * which commits the offsets itself once the batch's database transaction has committed.
+     * Retry topics do not support batch listeners, so a failed command is retried in place with the same
+     * backoff and then dead-lettered to {@code inventory.commands-dlt}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "procurement.inventory.consumer.mode", havingValue = "batch")
+    public ConcurrentKafkaListenerContainerFactory<String, String> batchListenerContainerFactory(
+            KafkaTemplate<String, String> kafkaTemplate,
+            @Value("${procurement.inventory.consumer.batch-size:200}") int batchSize) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(3);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.getContainerProperties().setConsumerRebalanceListener(inboxRebalanceListener());
+        factory.getContainerProperties().getKafkaConsumerProperties()
+            .setProperty(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        factory.getContainerProperties().getKafkaConsumerProperties()
+            .setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(batchSize));
+        
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(deadLetterRecoverer(kafkaTemplate), retryBackOff());
+        errorHandler.addNotRetryableExceptions(SerializationException.class);
+        factory.setCommonErrorHandler(errorHandler);
         return factory;
     }
+    
+    /**
+     * Transactional consumer mode: each poll of up to {@code batch-size} commands is handled by
+     * {@link TransactionalCommandListener} inside a Kafka transaction the container begins, and the container
+     * commits the poll's offsets in that transaction. Result events sent by the listener join it, so events
+     * and offsets become visible to {@code read_committed} consumers together, or not at all.
+     * A poll must be handled within {@code transaction-timeout}, which is set on the producer explicitly and
+     * kept below {@code max.poll.interval.ms}; failed commands are therefore dead-lettered without waiting.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "procurement.inventory.consumer.mode", havingValue = "transactional")
+    public ConcurrentKafkaListenerContainerFactory<String, String> transactionalListenerContainerFactory(
+            @Value("${procurement.inventory.consumer.batch-size:200}") int batchSize) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(3);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.getContainerProperties().setConsumerRebalanceListener(inboxRebalanceListener());
+        // Not a bean: a TransactionManager bean would take the place of the JPA one
+        factory.getContainerProperties().setKafkaAwareTransactionManager(new KafkaTransactionManager<>(producerFactory()));
+        factory.getContainerProperties().getKafkaConsumerProperties()
+            .setProperty(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        factory.getContainerProperties().getKafkaConsumerProperties()
+            .setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(batchSize));
+        return factory;
+    }
+    
+    /**
+     * Dead-letters a command to {@code inventory.commands-dlt}; inside a Kafka transaction, as part of it.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "procurement.inventory.consumer.mode", havingValue = "transactional")
+    public DeadLetterPublishingRecoverer commandDeadLetterRecoverer(KafkaTemplate<String, String> kafkaTemplate) {
+        return deadLetterRecoverer(kafkaTemplate);
+    }
+    
+    private ExponentialBackOffWithMaxRetries retryBackOff() {
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(retryAttempts - 1);
+        backOff.setInitialInterval(retryInitialDelay);
+        backOff.setMultiplier(retryMultiplier);
+        backOff.setMaxInterval(retryMaxDelay);
+        return backOff;
+    }
+    
+    private static DeadLetterPublishingRecoverer deadLetterRecoverer(KafkaTemplate<String, String> kafkaTemplate) {
+        return new DeadLetterPublishingRecoverer(kafkaTemplate,
+            (record, ex) -> new TopicPartition(record.topic() + DeadLetterReplayer.DLT_SUFFIX, -1));
+    }
+    
+    private boolean isTransactional() {
+        return "transactional".equals(consumerMode);
+    }
+    
+    /**
+     * Latest stock level per product, read from the start by every order service instance.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "procurement.inventory.stock-feed.enabled", havingValue = "true", matchIfMissing = true)
+    public NewTopic stockLevelTopic(@Value("${procurement.inventory.stock-feed.partitions:3}") int partitions) {
+        return TopicBuilder.name(StockLevelEventDTO.TOPIC)
+            .partitions(partitions)
+            .compact()
+            .build();
+    }
+    
+    @Bean
+    public DeadLetterReplayer deadLetterReplayer() {
+        return new DeadLetterReplayer(bootstrapServers, groupId + "-dlt-replay");
+    }
 }
@@ -0,0 +1,59 @@
+package com.agri.inventory.infrastructure.kafka;
+
+import com.agri.common.event.dto.OrderSagaOutcomeEventDTO;
+import com.agri.common.event.dto.PaymentProcessedEventDTO;
+import com.agri.common.kafka.EventTypeDispatcher;
+import com.agri.inventory.application.InventoryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Makes the reservations of paid and completed orders permanent, so the hold sweeper leaves them alone.
+ * The payment event clears the expiry before the saga confirms the order, so a hold cannot lapse while the
+ * saga is past payment; the completed outcome clears it again for orders whose payment event was missed.
+ * Failed sagas need nothing here: their reservations are released by compensation.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "procurement.inventory.engine", havingValue = "jpa", matchIfMissing = true)
+public class SagaOutcomeListener {
+    
+    private final EventTypeDispatcher dispatcher;
+    
+    public SagaOutcomeListener(InventoryService inventoryService, ObjectMapper objectMapper) {
+        this.dispatcher = EventTypeDispatcher.builder(objectMapper)
+            .on(OrderSagaOutcomeEventDTO.class, event -> {
+                if (OrderSagaOutcomeEventDTO.COMPLETED.equals(event.getOutcome())) {
+                    log.debug("Order {} completed, confirming its reservations", event.getOrderId());
+                    inventoryService.confirmReservations(event.getOrderId());
+                }
+            }, "OrderSagaOutcomeEvent")
+            .on(PaymentProcessedEventDTO.class, event -> {
+                log.debug("Order {} paid, confirming its reservations", event.getOrderId());
+                inventoryService.confirmReservations(event.getOrderId());
+            }, "PaymentProcessedEvent", "PaymentProcessed")
+            .build();
+    }
+    
+    @KafkaListener(
+        topics = "order.events",
+        groupId = "inventory-service-outcomes",
+        containerFactory = "kafkaListenerContainerFactory"
+    )
+    public void onOrderEvent(ConsumerRecord<String, String> record) {
+        dispatcher.dispatch(record);
+    }
+    
+    @KafkaListener(
+        topics = PaymentProcessedEventDTO.TOPIC,
+        groupId = "inventory-service-payments",
+        containerFactory = "kafkaListenerContainerFactory"
+    )
+    public void onPaymentEvent(ConsumerRecord<String, String> record) {
+        dispatcher.dispatch(record);
+    }
+}
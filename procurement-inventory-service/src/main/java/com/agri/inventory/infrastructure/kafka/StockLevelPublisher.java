@@ -0,0 +1,175 @@
+package com.agri.inventory.infrastructure.kafka;
+
+import com.agri.common.event.dto.StockLevelEventDTO;
+import com.agri.common.kafka.EventHeaders;
+import com.agri.inventory.application.StockCache;
+import com.agri.inventory.infrastructure.repository.InventoryItemRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Feeds the available stock of every product to the compacted {@value StockLevelEventDTO#TOPIC} topic, from
+ * which the order service keeps the snapshot it rejects infeasible orders with.
+ *
+ * Every {@code interval} the levels in {@link StockCache} are compared with the ones last seen, and only the
+ * products whose level changed, or that are gone from the cache, are sent. The cache only decides what to send:
+ * the levels sent are the committed totals of those products, read from Postgres, and products no longer there
+ * are sent as tombstones. After a restart every level is sent again once. Own commits show up within one
+ * interval, other instances' commits with the cache reload. A level that fails to send is sent again on the
+ * next run.
+ *
+ * Instances take turns: a run holds a Postgres advisory lock from the read until its sends are acknowledged,
+ * and an instance that finds the lock taken skips the run. Levels therefore reach the topic in the order they
+ * were read, so the level compaction keeps for a product is the last committed one that was sent.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "procurement.inventory.stock-feed.enabled", havingValue = "true", matchIfMissing = true)
+public class StockLevelPublisher {
+
+    /** Advisory lock key of the feed, shared by all instances. */
+    private static final long FEED_LOCK = 0x696e762d73746b4cL;
+
+    private static final int READ_CHUNK = 1000;
+
+    private final StockCache stockCache;
+    private final InventoryItemRepository inventoryItemRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactions;
+    private final Duration sendTimeout;
+    private final Map<String, Long> published = new ConcurrentHashMap<>();
+
+    public StockLevelPublisher(StockCache stockCache,
+                               InventoryItemRepository inventoryItemRepository,
+                               KafkaTemplate<String, String> kafkaTemplate,
+                               ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${procurement.inventory.stock-feed.send-timeout:10s}") Duration sendTimeout) {
+        this.stockCache = stockCache;
+        this.inventoryItemRepository = inventoryItemRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.transactions.setReadOnly(true);
+        this.sendTimeout = sendTimeout;
+    }
+
+    @Scheduled(fixedDelayString = "${procurement.inventory.stock-feed.interval:1000}")
+    public synchronized void publishChanges() {
+        if (!stockCache.isLoaded()) {
+            return;
+        }
+        // Cache level per changed product; null for products gone from the cache
+        Map<String, Long> changed = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        stockCache.forEachAvailable((productId, available) -> {
+            seen.add(productId);
+            Long last = published.get(productId);
+            if (last == null || last != available) {
+                changed.put(productId, available);
+            }
+        });
+        published.keySet().stream()
+            .filter(productId -> !seen.contains(productId))
+            .forEach(productId -> changed.put(productId, null));
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        Integer sent = transactions.execute(status -> {
+            if (!inventoryItemRepository.tryAdvisoryLock(FEED_LOCK)) {
+                log.debug("Another instance is publishing stock levels, skipping this run");
+                return 0;
+            }
+            return publish(changed);
+        });
+        if (sent != null && sent > 0) {
+            log.debug("Published {} stock level changes", sent);
+        }
+    }
+
+    /**
+     * Read the committed levels of the changed products, send them and wait for the acknowledgements.
+     * Runs under the feed lock.
+     */
+    private int publish(Map<String, Long> changed) {
+        Map<String, CompletableFuture<SendResult<String, String>>> sends = new LinkedHashMap<>();
+        List<String> productIds = new ArrayList<>(changed.keySet());
+        for (int from = 0; from < productIds.size(); from += READ_CHUNK) {
+            List<String> chunk = productIds.subList(from, Math.min(from + READ_CHUNK, productIds.size()));
+            Map<String, Long> committed = inventoryItemRepository.findStockTotals(chunk).stream()
+                .collect(Collectors.toMap(InventoryItemRepository.StockTotals::getProductId,
+                    InventoryItemRepository.StockTotals::getAvailable));
+            for (String productId : chunk) {
+                Long available = committed.get(productId);
+                sends.put(productId, available == null
+                    ? kafkaTemplate.send(StockLevelEventDTO.TOPIC, productId, null)
+                    : send(productId, available));
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(sends.values().toArray(CompletableFuture[]::new))
+                .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing stock levels", e);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Stock levels not acknowledged within " + sendTimeout, e);
+        } catch (ExecutionException e) {
+            // Failed sends stay unrecorded below and are sent again on the next run
+        }
+
+        int sent = 0;
+        for (Map.Entry<String, CompletableFuture<SendResult<String, String>>> send : sends.entrySet()) {
+            String productId = send.getKey();
+            if (send.getValue().isCompletedExceptionally()) {
+                log.warn("Failed to publish stock level of {}", productId);
+                continue;
+            }
+            Long level = changed.get(productId);
+            if (level == null) {
+                published.remove(productId);
+            } else {
+                published.put(productId, level);
+            }
+            sent++;
+        }
+        return sent;
+    }
+
+    private CompletableFuture<SendResult<String, String>> send(String productId, long available) {
+        StockLevelEventDTO event = new StockLevelEventDTO(productId, available);
+        try {
+            return kafkaTemplate.send(EventHeaders.record(StockLevelEventDTO.TOPIC, productId,
+                objectMapper.writeValueAsString(event), event.getEventType(), event.getEventId()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize stock level of " + productId, e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.agri.inventory.infrastructure.kafka;
+
+import com.agri.common.inbox.Inbox;
+import com.agri.inventory.application.InventoryService;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Transactional consumer mode ({@code procurement.inventory.consumer.mode=transactional}).
+ *
+ * Each poll runs in a Kafka transaction begun by the container: the commands are applied in one database
+ * transaction like in batch mode, then their result events are sent in the Kafka transaction, and the
+ * container commits the poll's offsets in it. Events and offsets therefore commit atomically, once per poll.
+ *
+ * The stock rows live in Postgres, which the Kafka transaction does not cover: the database commits first,
+ * and if the Kafka transaction then aborts, the poll is redelivered. The inbox stays in place for that case
+ * and turns the redelivered commands into duplicates, whose replies are sent again.
+ *
+ * If the batch transaction fails, the commands are applied one by one. A command that still fails is
+ * dead-lettered at once within the same Kafka transaction, so the rest of the poll goes through; it is not
+ * retried in place, as waiting inside the transaction would run into {@code transaction.timeout.ms} and
+ * {@code max.poll.interval.ms}. Dead-lettered commands are replayed from {@code inventory.commands-dlt}.
+ */
+@Component
+@ConditionalOnProperty(name = "procurement.inventory.consumer.mode", havingValue = "transactional")
+@Slf4j
+public class TransactionalCommandListener {
+
+    private final CommandBatch commandBatch;
+    private final CommandListener commandListener;
+    private final EventPublisher eventPublisher;
+    private final TransactionTemplate transactions;
+    private final DeadLetterPublishingRecoverer deadLetterRecoverer;
+
+    public TransactionalCommandListener(ObjectProvider<InventoryService> inventoryService,
+                                        CommandListener commandListener,
+                                        EventPublisher eventPublisher,
+                                        ObjectProvider<Inbox> inbox,
+                                        PlatformTransactionManager transactionManager,
+                                        DeadLetterPublishingRecoverer commandDeadLetterRecoverer) {
+        InventoryService service = inventoryService.getIfAvailable();
+        if (service == null) {
+            throw new IllegalStateException(
+                "procurement.inventory.consumer.mode=transactional requires procurement.inventory.engine=jpa");
+        }
+        this.commandBatch = new CommandBatch(service, commandListener, inbox.getIfAvailable());
+        this.commandListener = commandListener;
+        this.eventPublisher = eventPublisher;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.deadLetterRecoverer = commandDeadLetterRecoverer;
+    }
+
+    @KafkaListener(
+        topics = "inventory.commands",
+        groupId = "inventory-service-group",
+        containerFactory = "transactionalListenerContainerFactory"
+    )
+    public void handleCommands(List<ConsumerRecord<String, String>> records) {
+        log.debug("Received batch of {} commands", records.size());
+        List<ConsumerRecord<String, String>> duplicates = new ArrayList<>();
+
+        InventoryService.BatchOutcome outcome;
+        try {
+            outcome = transactions.execute(status -> commandBatch.apply(records, duplicates));
+        } catch (Exception e) {
+            log.warn("Batch of {} commands failed, applying them one by one: {}", records.size(), e.getMessage());
+            records.forEach(this::handleOrDeadLetter);
+            return;
+        }
+
+        // Sent in the container's Kafka transaction, committed with the offsets
+        outcome.reserved().forEach(eventPublisher::publishInventoryReservedEvent);
+        outcome.failed().forEach(eventPublisher::publishInventoryReservationFailedEvent);
+        duplicates.forEach(commandListener::onDuplicate);
+    }
+
+    private void handleOrDeadLetter(ConsumerRecord<String, String> record) {
+        try {
+            commandListener.handleCommand(record);
+        } catch (Exception e) {
+            log.error("Command at {}-{}@{} failed, dead-lettering it: {}",
+                record.topic(), record.partition(), record.offset(), e.getMessage());
+            deadLetterRecoverer.accept(record, e);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.agri.inventory.infrastructure.ledger;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Sequential append-only journal of the ledger engine, in memory-mapped segment files
+ * {@code journal-<first sequence>.log} of {@code segmentSize} bytes.
+ *
+ * Entry layout: {@code int length | long sequence | long timestamp | byte type | payload}. The length is
+ * written last, so an entry interrupted by a crash reads as the end of the journal. Writes land in the
+ * page cache and survive a process crash; {@link #force()} is needed to survive an OS crash.
+ *
+ * Used by a single thread.
+ */
+@Slf4j
+public class LedgerJournal implements Closeable {
+    
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Long.BYTES + Byte.BYTES;
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+    
+    private final Path directory;
+    private final int segmentSize;
+    private final List<Segment> segments = new ArrayList<>();
+    
+    private long nextSequence;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    
+    public LedgerJournal(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+    
+    @FunctionalInterface
+    public interface EntryHandler {
+        void accept(long sequence, long timestamp, byte type, byte[] payload);
+    }
+    
+    /**
+     * Replay every entry after {@code afterSequence}, then position the journal for appending.
+     * Sequences continue after the last entry found, and never restart at or below {@code afterSequence}.
+     */
+    public void open(long afterSequence, EntryHandler handler) throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().startsWith(PREFIX))
+                .map(file -> new Segment(file, firstSequence(file)))
+                .sorted((a, b) -> Long.compare(a.firstSequence(), b.firstSequence()))
+                .forEach(segments::add);
+        }
+        
+        long lastSequence = afterSequence;
+        int lastPosition = 0;
+        for (Segment segment : segments) {
+            try (FileChannel readChannel = FileChannel.open(segment.file(), StandardOpenOption.READ)) {
+                MappedByteBuffer read = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+                while (read.remaining() >= HEADER_SIZE) {
+                    int position = read.position();
+                    int length = read.getInt();
+                    if (length <= 0 || read.remaining() < length + HEADER_SIZE - Integer.BYTES) {
+                        read.position(position);
+                        break;
+                    }
+                    long sequence = read.getLong();
+                    long timestamp = read.getLong();
+                    byte type = read.get();
+                    byte[] payload = new byte[length];
+                    read.get(payload);
+                    if (sequence > afterSequence) {
+                        handler.accept(sequence, timestamp, type, payload);
+                    }
+                    lastSequence = Math.max(lastSequence, sequence);
+                }
+                lastPosition = read.position();
+            }
+        }
+        nextSequence = lastSequence + 1;
+        
+        if (segments.isEmpty()) {
+            roll();
+        } else {
+            map(segments.get(segments.size() - 1), lastPosition);
+        }
+        log.info("Ledger journal opened in {} ({} segments, next sequence {})", directory, segments.size(), nextSequence);
+    }
+    
+    /**
+     * @return the sequence of the appended entry
+     */
+    public long append(byte type, long timestamp, byte[] payload) throws IOException {
+        int entrySize = HEADER_SIZE + payload.length;
+        if (entrySize > segmentSize) {
+            throw new IllegalArgumentException("Journal entry of " + entrySize + " bytes exceeds the segment size");
+        }
+        if (buffer.remaining() < entrySize) {
+            roll();
+        }
+        long sequence = nextSequence++;
+        int position = buffer.position();
+        buffer.position(position + Integer.BYTES);
+        buffer.putLong(sequence);
+        buffer.putLong(timestamp);
+        buffer.put(type);
+        buffer.put(payload);
+        buffer.putInt(position, payload.length);
+        return sequence;
+    }
+    
+    public long lastSequence() {
+        return nextSequence - 1;
+    }
+    
+    public void force() {
+        buffer.force();
+    }
+    
+    /**
+     * Delete the segments whose entries are all at or below {@code sequence}; the current segment is kept.
+     */
+    public void deleteUpTo(long sequence) {
+        while (segments.size() > 1 && segments.get(1).firstSequence() <= sequence + 1) {
+            Segment obsolete = segments.remove(0);
+            try {
+                Files.deleteIfExists(obsolete.file());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+    
+    private void roll() throws IOException {
+        if (channel != null) {
+            buffer.force();
+            channel.close();
+        }
+        Segment segment = new Segment(directory.resolve(String.format("%s%020d%s", PREFIX, nextSequence, SUFFIX)), nextSequence);
+        segments.add(segment);
+        map(segment, 0);
+    }
+    
+    private void map(Segment segment, int position) throws IOException {
+        channel = FileChannel.open(segment.file(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        buffer.position(position);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            buffer.force();
+            channel.close();
+            channel = null;
+        }
+    }
+    
+    private static long firstSequence(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+    
+    private record Segment(Path file, long firstSequence) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.agri.inventory.infrastructure.ledger;
+
+import com.agri.inventory.application.ledger.LedgerSnapshot;
+import com.agri.inventory.domain.LedgerCheckpoint;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes ledger snapshots to {@code inventory_items}, {@code reservations} and {@code ledger_released_orders}
+ * with batched JDBC statements, together with the snapshot's journal sequence in {@code ledger_checkpoints},
+ * in one transaction. Released orders older than the retention are deleted on the way.
+ */
+public class LedgerSnapshotStore {
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration releaseRetention;
+    
+    public LedgerSnapshotStore(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                               Duration releaseRetention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.releaseRetention = releaseRetention;
+    }
+    
+    public void write(LedgerSnapshot snapshot) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Object[]> stock = new ArrayList<>();
+            snapshot.products().forEach((productId, level) ->
+                stock.add(new Object[] {level.availableQuantity(), level.reservedQuantity(), productId}));
+            jdbcTemplate.batchUpdate(
+                "UPDATE inventory_items SET available_quantity = ?, reserved_quantity = ?, version = version + 1 " +
+                "WHERE product_id = ?", stock);
+            
+            List<Object[]> orders = new ArrayList<>();
+            snapshot.releasedOrders().forEach(orderId -> orders.add(new Object[] {orderId}));
+            snapshot.orders().keySet().forEach(orderId -> orders.add(new Object[] {orderId}));
+            jdbcTemplate.batchUpdate("DELETE FROM reservations WHERE order_id = ?", orders);
+            
+            List<Object[]> lines = new ArrayList<>();
+            for (Map.Entry<String, LedgerSnapshot.OrderReservation> order : snapshot.orders().entrySet()) {
+                Timestamp reservedAt = Timestamp.from(order.getValue().reservedAt());
+                for (LedgerSnapshot.Line line : order.getValue().lines()) {
+                    lines.add(new Object[] {line.reservationId(), order.getKey(), line.productId(), line.quantity(), reservedAt});
+                }
+            }
+            jdbcTemplate.batchUpdate(
+                "INSERT INTO reservations (id, order_id, product_id, quantity, created_at, version) " +
+                "VALUES (?, ?, ?, ?, ?, 0)", lines);
+            
+            List<Object[]> released = new ArrayList<>();
+            snapshot.releasedAt().forEach((orderId, releasedAt) ->
+                released.add(new Object[] {orderId, Timestamp.from(releasedAt)}));
+            jdbcTemplate.batchUpdate(
+                "INSERT INTO ledger_released_orders (order_id, released_at) VALUES (?, ?) " +
+                "ON CONFLICT (order_id) DO UPDATE SET released_at = EXCLUDED.released_at", released);
+            jdbcTemplate.update("DELETE FROM ledger_released_orders WHERE released_at < ?",
+                Timestamp.from(Instant.now().minus(releaseRetention)));
+            
+            jdbcTemplate.update(
+                "INSERT INTO ledger_checkpoints (id, sequence, taken_at) VALUES (?, ?, ?) " +
+                "ON CONFLICT (id) DO UPDATE SET sequence = EXCLUDED.sequence, taken_at = EXCLUDED.taken_at",
+                LedgerCheckpoint.LEDGER_ID, snapshot.sequence(), Timestamp.from(Instant.now()));
+        });
+    }
+}
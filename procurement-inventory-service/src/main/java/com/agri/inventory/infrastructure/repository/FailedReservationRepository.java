@@ -0,0 +1,18 @@
+package com.agri.inventory.infrastructure.repository;
+
+import com.agri.inventory.domain.FailedReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface FailedReservationRepository extends JpaRepository<FailedReservation, String> {
+    
+    @Modifying
+    @Query("DELETE FROM FailedReservation f WHERE f.failedAt < :cutoff")
+    int deleteFailedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -4,10 +4,13 @@ import com.agri.inventory.domain.InventoryItem;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -21,8 +24,106 @@ public interface InventoryItemRepository extends JpaRepository<InventoryItem, St
     @Query("SELECT i FROM InventoryItem i WHERE i.productId = :productId")
     Optional<InventoryItem> findByProductIdWithLock(@Param("productId") String productId);
     
+    /**
+     * Lock the inventory items of several products in one statement
+     * ({@code SELECT ... WHERE product_id IN (...) ORDER BY product_id FOR UPDATE}).
+     * Rows are locked in product order, so transactions locking overlapping products cannot deadlock
+     * on lock order. Products that do not exist are missing from the result.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM InventoryItem i WHERE i.productId IN :productIds ORDER BY i.productId")
+    List<InventoryItem> findByProductIdInWithLock(@Param("productIds") Collection<String> productIds);
+    
     /**
      * Find inventory item by product ID without locking.
      */
     Optional<InventoryItem> findByProductId(String productId);
+    
+    boolean existsByProductId(String productId);
+    
+    @Query("SELECT i FROM InventoryItem i WHERE i.stripeCount > 0")
+    List<InventoryItem> findStriped();
+    
+    /**
+     * Stripe counts of those of the given products that are striped, read without locks and without
+     * loading the entities (a later locking read of the same rows must not find them already managed).
+     */
+    @Query("SELECT i.productId AS productId, i.stripeCount AS stripeCount FROM InventoryItem i " +
+           "WHERE i.productId IN :productIds AND i.stripeCount > 0")
+    List<StripeCount> findStripeCounts(@Param("productIds") Collection<String> productIds);
+    
+    /**
+     * Available quantity of a product including its stripes, read in one statement so it is exact.
+     */
+    @Query("SELECT i.availableQuantity + COALESCE((SELECT SUM(s.availableQuantity) FROM InventoryStripe s " +
+           "WHERE s.productId = i.productId), 0) FROM InventoryItem i WHERE i.productId = :productId")
+    Optional<Long> findTotalAvailable(@Param("productId") String productId);
+    
+    /**
+     * Available and reserved totals (item row plus stripes plus warehouses) of every product, read without locks.
+     */
+    @Query("SELECT i.productId AS productId, i.productName AS productName, " +
+           "i.availableQuantity + COALESCE((SELECT SUM(s.availableQuantity) FROM InventoryStripe s " +
+           "WHERE s.productId = i.productId), 0) + COALESCE((SELECT SUM(w.availableQuantity) FROM WarehouseStock w " +
+           "WHERE w.productId = i.productId), 0) AS available, " +
+           "i.reservedQuantity + COALESCE((SELECT SUM(s.reservedQuantity) FROM InventoryStripe s " +
+           "WHERE s.productId = i.productId), 0) + COALESCE((SELECT SUM(w.reservedQuantity) FROM WarehouseStock w " +
+           "WHERE w.productId = i.productId), 0) AS reserved " +
+           "FROM InventoryItem i")
+    List<StockTotals> findStockTotals();
+    
+    /**
+     * Available and reserved totals of the given products, as {@link #findStockTotals()}. Products that do not
+     * exist are missing from the result.
+     */
+    @Query("SELECT i.productId AS productId, i.productName AS productName, " +
+           "i.availableQuantity + COALESCE((SELECT SUM(s.availableQuantity) FROM InventoryStripe s " +
+           "WHERE s.productId = i.productId), 0) + COALESCE((SELECT SUM(w.availableQuantity) FROM WarehouseStock w " +
+           "WHERE w.productId = i.productId), 0) AS available, " +
+           "i.reservedQuantity + COALESCE((SELECT SUM(s.reservedQuantity) FROM InventoryStripe s " +
+           "WHERE s.productId = i.productId), 0) + COALESCE((SELECT SUM(w.reservedQuantity) FROM WarehouseStock w " +
+           "WHERE w.productId = i.productId), 0) AS reserved " +
+           "FROM InventoryItem i WHERE i.productId IN :productIds")
+    List<StockTotals> findStockTotals(@Param("productIds") Collection<String> productIds);
+    
+    /**
+     * Take a Postgres advisory lock held until the current transaction ends, without waiting.
+     *
+     * @return whether the lock was taken; {@code false} if another transaction holds it
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryAdvisoryLock(@Param("key") long key);
+    
+    /**
+     * Move {@code quantity} units of a product from available to reserved in a single statement; the row
+     * is locked only from this statement to the commit. Returns 0 if the product does not exist or has
+     * fewer than {@code quantity} units available.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE InventoryItem i SET i.availableQuantity = i.availableQuantity - :quantity, " +
+           "i.reservedQuantity = i.reservedQuantity + :quantity, i.version = i.version + 1 " +
+           "WHERE i.productId = :productId AND i.availableQuantity >= :quantity")
+    int reserveAvailable(@Param("productId") String productId, @Param("quantity") int quantity);
+    
+    /**
+     * Move {@code quantity} units of a product from reserved back to available in a single locked update.
+     * Returns 0 if the product does not exist or has fewer than {@code quantity} units reserved.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE InventoryItem i SET i.availableQuantity = i.availableQuantity + :quantity, " +
+           "i.reservedQuantity = i.reservedQuantity - :quantity, i.version = i.version + 1 " +
+           "WHERE i.productId = :productId AND i.reservedQuantity >= :quantity")
+    int releaseReserved(@Param("productId") String productId, @Param("quantity") int quantity);
+    
+    interface StripeCount {
+        String getProductId();
+        int getStripeCount();
+    }
+    
+    interface StockTotals {
+        String getProductId();
+        String getProductName();
+        long getAvailable();
+        long getReserved();
+    }
 }
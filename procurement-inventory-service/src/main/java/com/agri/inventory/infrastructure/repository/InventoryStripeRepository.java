@@ -0,0 +1,50 @@
+package com.agri.inventory.infrastructure.repository;
+
+import com.agri.inventory.domain.InventoryStripe;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface InventoryStripeRepository extends JpaRepository<InventoryStripe, String> {
+    
+    List<InventoryStripe> findByProductIdOrderByStripeIndex(String productId);
+    
+    /**
+     * Lock all stripes of a product, in stripe order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM InventoryStripe s WHERE s.productId = :productId ORDER BY s.stripeIndex")
+    List<InventoryStripe> findByProductIdWithLock(@Param("productId") String productId);
+    
+    /**
+     * Move {@code quantity} units of one stripe from available to reserved.
+     * Returns 0 if the stripe does not exist or has fewer than {@code quantity} units available.
+     * The persistence context is left alone, so pending entity changes of the transaction survive.
+     */
+    @Modifying
+    @Query("UPDATE InventoryStripe s SET s.availableQuantity = s.availableQuantity - :quantity, " +
+           "s.reservedQuantity = s.reservedQuantity + :quantity, s.version = s.version + 1 " +
+           "WHERE s.productId = :productId AND s.stripeIndex = :stripeIndex AND s.availableQuantity >= :quantity")
+    int reserveAvailable(@Param("productId") String productId,
+                         @Param("stripeIndex") int stripeIndex,
+                         @Param("quantity") int quantity);
+    
+    /**
+     * Move {@code quantity} units of one stripe from reserved back to available.
+     * Returns 0 if the stripe does not exist or has fewer than {@code quantity} units reserved.
+     */
+    @Modifying
+    @Query("UPDATE InventoryStripe s SET s.availableQuantity = s.availableQuantity + :quantity, " +
+           "s.reservedQuantity = s.reservedQuantity - :quantity, s.version = s.version + 1 " +
+           "WHERE s.productId = :productId AND s.stripeIndex = :stripeIndex AND s.reservedQuantity >= :quantity")
+    int releaseReserved(@Param("productId") String productId,
+                        @Param("stripeIndex") int stripeIndex,
+                        @Param("quantity") int quantity);
+}
@@ -0,0 +1,9 @@
+package com.agri.inventory.infrastructure.repository;
+
+import com.agri.inventory.domain.LedgerCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface LedgerCheckpointRepository extends JpaRepository<LedgerCheckpoint, String> {
+}
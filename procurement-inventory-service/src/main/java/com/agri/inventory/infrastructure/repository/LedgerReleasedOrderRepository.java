@@ -0,0 +1,9 @@
+package com.agri.inventory.infrastructure.repository;
+
+import com.agri.inventory.domain.LedgerReleasedOrder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface LedgerReleasedOrderRepository extends JpaRepository<LedgerReleasedOrder, String> {
+}
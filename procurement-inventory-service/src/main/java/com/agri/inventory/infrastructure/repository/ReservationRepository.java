@@ -1,9 +1,16 @@
 package com.agri.inventory.infrastructure.repository;
 
 import com.agri.inventory.domain.Reservation;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,4 +26,39 @@ public interface ReservationRepository extends JpaRepository<Reservation, String
      * Find reservation by order ID and product ID for idempotency check.
      */
     Optional<Reservation> findByOrderIdAndProductId(String orderId, String productId);
+    
+    /**
+     * Lock all reservations of the given orders, so a redelivered compensation, or a compensation racing the
+     * hold sweeper, waits for the first release and then finds nothing left to release.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Reservation r WHERE r.orderId IN :orderIds")
+    List<Reservation> findByOrderIdInWithLock(@Param("orderIds") Collection<String> orderIds);
+    
+    /**
+     * Lock the holds that expired before {@code now}, oldest first, along the {@code expires_at} index.
+     * Rows locked by another sweeper or a compensation are skipped ({@code FOR UPDATE SKIP LOCKED}).
+     */
+    @Query(value = """
+        SELECT * FROM reservations
+        WHERE expires_at < :now
+        ORDER BY expires_at
+        LIMIT :batchSize
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<Reservation> lockExpired(@Param("now") Instant now, @Param("batchSize") int batchSize);
+    
+    @Query("SELECT MIN(r.expiresAt) FROM Reservation r")
+    Optional<Instant> findOldestExpiry();
+    
+    /**
+     * The order completed: its reservations no longer expire.
+     */
+    @Modifying
+    @Query("UPDATE Reservation r SET r.expiresAt = NULL WHERE r.orderId = :orderId AND r.expiresAt IS NOT NULL")
+    int clearExpiry(@Param("orderId") String orderId);
+    
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Reservation r WHERE r.orderId IN :orderIds")
+    int deleteByOrderIds(@Param("orderIds") Collection<String> orderIds);
 }
@@ -0,0 +1,9 @@
+package com.agri.inventory.infrastructure.repository;
+
+import com.agri.inventory.domain.Warehouse;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface WarehouseRepository extends JpaRepository<Warehouse, String> {
+}
@@ -0,0 +1,35 @@
+package com.agri.inventory.infrastructure.repository;
+
+import com.agri.inventory.domain.WarehouseStock;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WarehouseStockRepository extends JpaRepository<WarehouseStock, String> {
+    
+    List<WarehouseStock> findByProductIdOrderByWarehouseId(String productId);
+    
+    boolean existsByProductId(String productId);
+    
+    /**
+     * Lock the given rows in one statement, in product and warehouse order, so transactions locking
+     * overlapping rows take them in the same order. Rows that do not exist are missing from the result.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM WarehouseStock w WHERE w.id IN :ids ORDER BY w.productId, w.warehouseId")
+    List<WarehouseStock> findByIdInWithLock(@Param("ids") Collection<String> ids);
+    
+    /**
+     * Lock all warehouse rows of a product, in warehouse order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM WarehouseStock w WHERE w.productId = :productId ORDER BY w.warehouseId")
+    List<WarehouseStock> findByProductIdWithLock(@Param("productId") String productId);
+}
@@ -0,0 +1,76 @@
+package com.agri.inventory.observability;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The products with the most lock wait, tracked with the weighted space-saving algorithm in
+ * {@code capacity} counters, whatever the number of products.
+ *
+ * A product without a counter takes over the smallest one and inherits its total as overestimation
+ * error, so every product whose true total exceeds {@code 1/capacity} of all wait recorded is guaranteed
+ * a counter. Counts and errors are reported together; {@code count - error} is a lower bound.
+ *
+ * Thread-safe; recording is O(1) for a tracked product and O(capacity) when a counter is taken over.
+ */
+public class HotProducts {
+
+    private final int capacity;
+    private final Map<String, Counter> counters;
+
+    public HotProducts(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public synchronized void record(String productId, long weight) {
+        Counter counter = counters.get(productId);
+        if (counter != null) {
+            counter.count += weight;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(productId, new Counter(weight, 0));
+            return;
+        }
+        Map.Entry<String, Counter> smallest = null;
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            if (smallest == null || entry.getValue().count < smallest.getValue().count) {
+                smallest = entry;
+            }
+        }
+        Counter evicted = counters.remove(smallest.getKey());
+        counters.put(productId, new Counter(evicted.count + weight, evicted.count));
+    }
+
+    /**
+     * The {@code k} largest counters, largest first, and start counting afresh.
+     */
+    public synchronized List<Entry> drainTop(int k) {
+        List<Entry> top = new ArrayList<>(counters.size());
+        counters.forEach((productId, counter) -> top.add(new Entry(productId, counter.count, counter.error)));
+        counters.clear();
+        top.sort(Comparator.comparingLong(Entry::count).reversed());
+        return List.copyOf(top.subList(0, Math.min(k, top.size())));
+    }
+
+    /**
+     * @param error how much of {@code count} may belong to products previously in this counter
+     */
+    public record Entry(String productId, long count, long error) {
+    }
+
+    private static final class Counter {
+
+        private long count;
+        private final long error;
+
+        Counter(long count, long error) {
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -1,23 +1,72 @@
 package com.agri.inventory.observability;
 
+import com.agri.common.inbox.MessageIdFilter;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
 /**
  * Custom business metrics exposed to Prometheus via Spring Boot Actuator.
  */
 @Component
 public class InventoryMetrics {
 
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final MeterRegistry registry;
     private final Counter reservationsSucceeded;
     private final Counter reservationsFailed;
     private final Counter compensationsExecuted;
+    private final HotProducts hotProducts;
+    private final int hotProductsReported;
+    private final MultiGauge hotProductLockWait;
+    private final MultiGauge hotProductLockWaitError;
+    private final Timer ledgerCommand;
+    private final Timer reservationsReserved;
+    private final Timer reservationsRefused;
+    private final Map<String, Timer> lockWaits = new ConcurrentHashMap<>();
+    private final Counter expiredHoldsReleased;
+    private final Timer holdSweep;
 
-    public InventoryMetrics(MeterRegistry registry) {
+    public InventoryMetrics(MeterRegistry registry,
+                            @Value("${procurement.inventory.metrics.hot-products.capacity:100}") int hotProductsTracked,
+                            @Value("${procurement.inventory.metrics.hot-products.top:10}") int hotProductsReported) {
+        this.registry = registry;
         this.reservationsSucceeded = registry.counter("agri_inventory_reservations_succeeded_total");
         this.reservationsFailed = registry.counter("agri_inventory_reservations_failed_total");
         this.compensationsExecuted = registry.counter("agri_inventory_compensations_total");
+        this.hotProducts = new HotProducts(hotProductsTracked);
+        this.hotProductsReported = hotProductsReported;
+        this.hotProductLockWait = MultiGauge.builder("agri_inventory_hot_product_lock_wait_seconds")
+            .description("Lock wait of the most contended products over the last window")
+            .baseUnit("seconds")
+            .register(registry);
+        this.hotProductLockWaitError = MultiGauge.builder("agri_inventory_hot_product_lock_wait_error_seconds")
+            .description("Upper bound of the overestimation in agri_inventory_hot_product_lock_wait_seconds")
+            .baseUnit("seconds")
+            .register(registry);
+        this.ledgerCommand = Timer.builder("agri_inventory_ledger_command_seconds")
+            .publishPercentileHistogram()
+            .register(registry);
+        this.reservationsReserved = reservationTimer("reserved");
+        this.reservationsRefused = reservationTimer("failed");
+        this.expiredHoldsReleased = registry.counter("agri_inventory_expired_holds_released_total");
+        this.holdSweep = Timer.builder("agri_inventory_hold_sweep_seconds")
+            .register(registry);
     }
 
     public void incSuccess() {
@@ -31,4 +80,121 @@ public class InventoryMetrics {
     public void incCompensation() {
         compensationsExecuted.increment();
     }
+
+    public void incCompensations(int orders) {
+        compensationsExecuted.increment(orders);
+    }
+
+    /**
+     * Time a reservation command took in the service, by outcome ({@code reserved} or {@code failed}).
+     */
+    public void recordReservation(long nanos, boolean reserved) {
+        (reserved ? reservationsReserved : reservationsRefused).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Run a statement that takes row locks and record how long it waited, per kind of row ({@code items},
+     * {@code stripes}, {@code warehouses}). For the hot product ranking the wait is split evenly over the
+     * products whose rows the statement locked, so a statement locking many rows does not count its whole
+     * wait against each of them.
+     */
+    public <T> T timeLock(String rows, Collection<String> productIds, Supplier<T> statement) {
+        long started = System.nanoTime();
+        try {
+            return statement.get();
+        } finally {
+            long waited = System.nanoTime() - started;
+            lockWaits.computeIfAbsent(rows, this::lockWaitTimer).record(waited, TimeUnit.NANOSECONDS);
+            if (!productIds.isEmpty()) {
+                long share = waited / productIds.size();
+                productIds.forEach(productId -> hotProducts.record(productId, share));
+            }
+        }
+    }
+
+    /**
+     * Publish the products with the most lock wait since the last window and start a new one. Only the
+     * top products are tagged, so the number of series stays bounded.
+     */
+    @Scheduled(fixedDelayString = "${procurement.inventory.metrics.hot-products.window:60000}",
+               initialDelayString = "${procurement.inventory.metrics.hot-products.window:60000}")
+    public void publishHotProducts() {
+        List<HotProducts.Entry> top = hotProducts.drainTop(hotProductsReported);
+        hotProductLockWait.register(top.stream()
+            .map(entry -> MultiGauge.Row.of(Tags.of("product", entry.productId()), entry.count() / NANOS_PER_SECOND))
+            .toList(), true);
+        hotProductLockWaitError.register(top.stream()
+            .map(entry -> MultiGauge.Row.of(Tags.of("product", entry.productId()), entry.error() / NANOS_PER_SECOND))
+            .toList(), true);
+    }
+
+    public void incStripeRebalance() {
+        registry.counter("agri_inventory_stripe_rebalances_total").increment();
+    }
+
+    /**
+     * A warehoused product reserved from the rows the index picked ({@code index}), or after locking all of its
+     * rows because the index was stale ({@code rescan}).
+     */
+    public void incWarehouseAllocation(String path) {
+        registry.counter("agri_inventory_warehouse_allocations_total", "path", path).increment();
+    }
+
+    /**
+     * Time a ledger command spent from submission until it was journaled and applied.
+     */
+    public void recordLedgerCommand(long nanos) {
+        ledgerCommand.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void registerLedgerQueueDepth(Supplier<Number> depth) {
+        Gauge.builder("agri_inventory_ledger_queue_depth", depth).register(registry);
+    }
+
+    /**
+     * Observed false-positive rate, store lookups skipped and memory of the inbox id filter.
+     */
+    public void registerInboxFilter(MessageIdFilter filter) {
+        Gauge.builder("agri_inventory_inbox_filter_false_positive_rate", filter, MessageIdFilter::falsePositiveRate)
+            .register(registry);
+        Gauge.builder("agri_inventory_inbox_filter_bytes", filter, MessageIdFilter::sizeInBytes)
+            .baseUnit("bytes")
+            .register(registry);
+        FunctionCounter.builder("agri_inventory_inbox_filter_skipped_lookups_total", filter,
+                MessageIdFilter::skippedLookups)
+            .register(registry);
+    }
+
+    /**
+     * One sweep batch: orders whose hold expired and were released, and the time it took.
+     */
+    public void recordHoldSweep(int orders, long nanos) {
+        expiredHoldsReleased.increment(orders);
+        holdSweep.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Age of the oldest expired hold not yet released, in seconds.
+     */
+    public void registerHoldSweepLag(Supplier<Number> lagSeconds) {
+        Gauge.builder("agri_inventory_hold_sweep_lag_seconds", lagSeconds).register(registry);
+    }
+
+    public void incDeadLetter(String topic) {
+        registry.counter("agri_inventory_dead_letters_total", "topic", topic).increment();
+    }
+
+    private Timer reservationTimer(String outcome) {
+        return Timer.builder("agri_inventory_reservation_seconds")
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+
+    private Timer lockWaitTimer(String rows) {
+        return Timer.builder("agri_inventory_lock_wait_seconds")
+            .tag("rows", rows)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
 }
@@ -1,15 +1,24 @@
 package com.agri.order.api;
 
+import com.agri.common.event.dto.OrderSagaOutcomeEventDTO;
 import com.agri.order.application.OrderCommandService;
+import com.agri.order.application.OrderCompletionRegistry;
+import com.agri.order.application.InsufficientStockException;
 import com.agri.order.application.OrderNotFoundException;
+import com.agri.order.domain.OrderStatus;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/api/v1/orders")
@@ -19,23 +28,72 @@ public class OrderController {
     
     private static final String IDEMPOTENCY_KEY_HEADER = "X-Idempotency-Key";
     private static final String CLIENT_ID_HEADER = "X-Client-Id";
+    private static final String PREFER_HEADER = "Prefer";
+    private static final String PREFERENCE_APPLIED_HEADER = "Preference-Applied";
+    private static final String SAGA_OUTCOME_HEADER = "X-Saga-Outcome";
+    private static final Pattern WAIT_PREFERENCE =
+        Pattern.compile("(?:^|[,;\\s])wait\\s*=\\s*(\\d+)", Pattern.CASE_INSENSITIVE);
     
     private final OrderCommandService orderCommandService;
+    private final OrderCompletionRegistry completionRegistry;
     
+    @Value("${procurement.order.await.max-wait-seconds:30}")
+    private long maxWaitSeconds;
+    
+    /**
+     * Create an order. With {@code Prefer: wait=N} (RFC 7240) the response is held, without blocking
+     * a thread, until the saga outcome of the order arrives or N seconds elapse (capped by
+     * {@code procurement.order.await.max-wait-seconds}). A settled order is returned with 201 and
+     * {@code X-Saga-Outcome}; an order still in flight at the deadline is returned with 202.
+     */
     @PostMapping
-    public ResponseEntity<OrderResponse> createOrder(
+    public CompletableFuture<ResponseEntity<OrderResponse>> createOrder(
             @Valid @RequestBody CreateOrderRequest request,
             @RequestHeader(IDEMPOTENCY_KEY_HEADER) String idempotencyKey,
-            @RequestHeader(CLIENT_ID_HEADER) String clientId) {
+            @RequestHeader(CLIENT_ID_HEADER) String clientId,
+            @RequestHeader(value = PREFER_HEADER, required = false) String prefer) {
         
         log.info("Received create order request from client: {}", clientId);
         
         if (idempotencyKey == null || idempotencyKey.isBlank()) {
-            return ResponseEntity.badRequest().build();
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
         }
         
         OrderResponse response = orderCommandService.createOrder(request, idempotencyKey);
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        
+        long waitSeconds = requestedWaitSeconds(prefer);
+        if (waitSeconds <= 0 || response.status() != OrderStatus.PENDING) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.CREATED).body(response));
+        }
+        
+        String preferenceApplied = "wait=" + waitSeconds;
+        return completionRegistry.await(response.id(), Duration.ofSeconds(waitSeconds))
+            .map(future -> {
+                completeIfSettled(response.id());
+                return future.thenApply(outcome -> outcome == null
+                    ? ResponseEntity.accepted()
+                        .header(PREFERENCE_APPLIED_HEADER, preferenceApplied)
+                        .body(response)
+                    : ResponseEntity.status(HttpStatus.CREATED)
+                        .header(PREFERENCE_APPLIED_HEADER, preferenceApplied)
+                        .header(SAGA_OUTCOME_HEADER, outcome.getOutcome())
+                        .body(orderCommandService.getOrder(response.id())));
+            })
+            .orElseGet(() -> CompletableFuture.completedFuture(
+                ResponseEntity.status(HttpStatus.CREATED).body(response)));
+    }
+    
+    /**
+     * The order may have settled before its waiter was registered; once registered, its status is read
+     * again and a settled order completes the waiter at once.
+     */
+    private void completeIfSettled(String orderId) {
+        OrderStatus status = orderCommandService.getOrder(orderId).status();
+        switch (status) {
+            case CONFIRMED, COMPLETED -> completionRegistry.complete(OrderSagaOutcomeEventDTO.completed(orderId));
+            case CANCELLED -> completionRegistry.complete(OrderSagaOutcomeEventDTO.failed(orderId, "Order cancelled"));
+            case PENDING -> { }
+        }
     }
     
     @PostMapping("/{orderId}/confirm")
@@ -78,6 +136,27 @@ public class OrderController {
         }
     }
     
+    private long requestedWaitSeconds(String prefer) {
+        if (prefer == null) {
+            return 0;
+        }
+        Matcher matcher = WAIT_PREFERENCE.matcher(prefer);
+        if (!matcher.find()) {
+            return 0;
+        }
+        try {
+            return Math.min(Long.parseLong(matcher.group(1)), maxWaitSeconds);
+        } catch (NumberFormatException e) {
+            return maxWaitSeconds;
+        }
+    }
+    
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<Map<String, Object>> handleInsufficientStock(InsufficientStockException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+            .body(Map.of("error", "Insufficient stock", "productIds", e.getProductIds()));
+    }
+    
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, String>> handleException(Exception e) {
         log.error("Unexpected error occurred", e);
@@ -0,0 +1,22 @@
+package com.agri.order.application;
+
+import com.agri.common.exception.DomainException;
+
+import java.util.List;
+
+/**
+ * An order asks for clearly more of some products than the replicated stock snapshot shows available.
+ */
+public class InsufficientStockException extends DomainException {
+
+    private final List<String> productIds;
+
+    public InsufficientStockException(List<String> productIds) {
+        super("Insufficient stock for products: " + productIds);
+        this.productIds = List.copyOf(productIds);
+    }
+
+    public List<String> getProductIds() {
+        return productIds;
+    }
+}
@@ -7,6 +7,7 @@ import com.agri.order.api.CreateOrderRequest;
 import com.agri.order.api.OrderResponse;
 import com.agri.order.domain.ProcurementOrder;
 import com.agri.order.domain.vo.BuyerId;
+import com.agri.order.domain.vo.OrderItem;
 import com.agri.order.domain.vo.SupplierId;
 import com.agri.order.infrastructure.repository.IdempotencyKeyRepository;
 import com.agri.order.infrastructure.repository.OrderRepository;
@@ -17,9 +18,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -32,6 +39,13 @@ public class OrderCommandService {
     private final IdempotencyKeyRepository idempotencyKeyRepository;
     private final ObjectMapper objectMapper;
     private final OrderMetrics metrics;
+    private final StockSnapshot stockSnapshot;
+    
+    @Value("${procurement.order.stock-check.enabled:true}")
+    private boolean stockCheckEnabled;
+    
+    @Value("${procurement.order.stock-check.tolerance:0.1}")
+    private double stockCheckTolerance;
     
     @Transactional
     public OrderResponse createOrder(CreateOrderRequest request, String idempotencyKey) {
@@ -54,6 +68,8 @@ public class OrderCommandService {
             }
         }
         
+        checkStock(request);
+        
         // Create new order
         String orderId = UUID.randomUUID().toString();
         MDC.put("orderId", orderId);
@@ -141,6 +157,41 @@ public class OrderCommandService {
         return OrderResponse.from(order);
     }
     
+    @Transactional(readOnly = true)
+    public OrderResponse getOrder(String orderId) {
+        return orderRepository.findById(orderId)
+            .map(OrderResponse::from)
+            .orElseThrow(() -> new OrderNotFoundException(orderId));
+    }
+    
+    /**
+     * Turn the order away if, for any product, it asks for more than the snapshot shows available plus
+     * {@code tolerance} of it, which leaves room for stock the snapshot has not caught up with yet.
+     * Products the snapshot does not know are let through; the reservation decides for them.
+     */
+    private void checkStock(CreateOrderRequest request) {
+        if (!stockCheckEnabled) {
+            return;
+        }
+        Map<String, BigDecimal> requested = new LinkedHashMap<>();
+        for (OrderItem item : request.items()) {
+            requested.merge(item.getProductId(), item.getQuantity(), BigDecimal::add);
+        }
+        List<String> shortProducts = new ArrayList<>();
+        requested.forEach((productId, quantity) -> {
+            long available = stockSnapshot.available(productId);
+            if (available != StockSnapshot.UNKNOWN
+                    && quantity.doubleValue() > available * (1 + stockCheckTolerance)) {
+                shortProducts.add(productId);
+            }
+        });
+        if (!shortProducts.isEmpty()) {
+            log.info("Rejecting order on stock snapshot, short products: {}", shortProducts);
+            metrics.incStockRejected();
+            throw new InsufficientStockException(shortProducts);
+        }
+    }
+    
     private void saveEventToOutbox(DomainEvent event) {
         try {
             String payload = objectMapper.writeValueAsString(event);
@@ -0,0 +1,111 @@
+package com.agri.order.application;
+
+import com.agri.common.event.dto.OrderSagaOutcomeEventDTO;
+import com.agri.order.observability.OrderMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests waiting for the saga outcome of an order, keyed by orderId.
+ *
+ * Waiters are plain {@link CompletableFuture}s: no thread is held while waiting, and deadlines are
+ * enforced by {@link CompletableFuture#completeOnTimeout}, which completes the future with
+ * {@code null}. The registry is bounded by {@code procurement.order.await.max-pending}; when full,
+ * new waiters are refused and the caller answers immediately. Outcomes are handed over on the
+ * application task executor so that callers never run on the Kafka consumer thread.
+ *
+ * An outcome can arrive between the order's commit and its waiter's registration. Outcomes nobody waits
+ * for are therefore kept in a bounded most-recent set ({@code procurement.order.await.recent-outcomes}),
+ * which {@link #await} checks after registering; either the outcome finds the waiter, or the waiter
+ * finds the outcome.
+ */
+@Slf4j
+@Component
+public class OrderCompletionRegistry {
+
+    private final ConcurrentHashMap<String, CompletableFuture<OrderSagaOutcomeEventDTO>> pending =
+        new ConcurrentHashMap<>();
+    private final AsyncTaskExecutor executor;
+    private final OrderMetrics metrics;
+    private final int maxPending;
+    private final Map<String, OrderSagaOutcomeEventDTO> recentOutcomes;
+
+    public OrderCompletionRegistry(@Qualifier("applicationTaskExecutor") AsyncTaskExecutor executor,
+                                   OrderMetrics metrics,
+                                   @Value("${procurement.order.await.max-pending:10000}") int maxPending,
+                                   @Value("${procurement.order.await.recent-outcomes:10000}") int recentCapacity) {
+        this.executor = executor;
+        this.metrics = metrics;
+        this.maxPending = maxPending;
+        this.recentOutcomes = Collections.synchronizedMap(
+            new LinkedHashMap<>(Math.min(recentCapacity, 1024), 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, OrderSagaOutcomeEventDTO> eldest) {
+                    return size() > recentCapacity;
+                }
+            });
+        metrics.registerAwaitingGauge(pending::size);
+    }
+
+    /**
+     * Register interest in the outcome of {@code orderId}.
+     * Concurrent waiters for the same order share one future.
+     *
+     * @return a future completed with the outcome, or with {@code null} once {@code timeout} expires;
+     *         empty if the registry is full
+     */
+    public Optional<CompletableFuture<OrderSagaOutcomeEventDTO>> await(String orderId, Duration timeout) {
+        CompletableFuture<OrderSagaOutcomeEventDTO> existing = pending.get(orderId);
+        if (existing != null) {
+            return Optional.of(existing);
+        }
+        if (pending.size() >= maxPending) {
+            log.warn("Completion registry full ({} waiters). Not waiting for orderId: {}", maxPending, orderId);
+            metrics.incAwait(OrderMetrics.AWAIT_REJECTED);
+            return Optional.empty();
+        }
+        CompletableFuture<OrderSagaOutcomeEventDTO> future =
+            pending.computeIfAbsent(orderId, id -> newWaiter(id, timeout));
+        // Arrived before the waiter was registered
+        OrderSagaOutcomeEventDTO outcome = recentOutcomes.remove(orderId);
+        if (outcome != null) {
+            complete(outcome);
+        }
+        return Optional.of(future);
+    }
+
+    /**
+     * Complete the waiters of {@code event.getOrderId()}; without waiters, keep the outcome for one
+     * that may be about to register.
+     */
+    public void complete(OrderSagaOutcomeEventDTO event) {
+        CompletableFuture<OrderSagaOutcomeEventDTO> future = pending.remove(event.getOrderId());
+        if (future != null) {
+            future.completeAsync(() -> event, executor);
+        } else {
+            recentOutcomes.put(event.getOrderId(), event);
+        }
+    }
+
+    private CompletableFuture<OrderSagaOutcomeEventDTO> newWaiter(String orderId, Duration timeout) {
+        CompletableFuture<OrderSagaOutcomeEventDTO> future = new CompletableFuture<>();
+        future.completeOnTimeout(null, timeout.toMillis(), TimeUnit.MILLISECONDS)
+            .whenComplete((outcome, ex) -> {
+                pending.remove(orderId, future);
+                metrics.incAwait(outcome == null ? OrderMetrics.AWAIT_TIMEOUT : OrderMetrics.AWAIT_COMPLETED);
+            });
+        return future;
+    }
+}
@@ -0,0 +1,172 @@
+package com.agri.order.application;
+
+import com.agri.common.util.Hashing;
+import com.agri.order.observability.OrderMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Last known available stock per product, replicated from the inventory service's {@code inventory.stock}
+ * feed; eventually consistent, and only used to turn away orders that clearly cannot be served.
+ *
+ * Sized for large catalogs: an open-addressing table of primitive arrays, keyed by a 64-bit hash of the
+ * product id, kept between a quarter and half full, so 24 to 48 bytes per product. Two product ids sharing a
+ * hash would share a level; at a million products the odds of any such pair are below one in ten million.
+ *
+ * Levels are written by the single feed consumer and read by request threads without locking, through
+ * optimistic reads of a {@link StampedLock} that fall back to a read lock when a write overlapped.
+ */
+@Component
+public class StockSnapshot {
+
+    /**
+     * Returned for products the feed has not delivered (or has removed).
+     */
+    public static final long UNKNOWN = -1;
+
+    private static final long EMPTY = 0;
+    private static final int REMOVED = -1;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    private final StampedLock lock = new StampedLock();
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] levels = new int[INITIAL_CAPACITY];
+    private int used;
+    private int size;
+
+    public StockSnapshot(OrderMetrics metrics) {
+        metrics.registerStockSnapshotGauge(this::size);
+    }
+
+    /**
+     * @return the last known available quantity, or {@link #UNKNOWN}
+     */
+    public long available(String productId) {
+        long key = key(productId);
+        long stamp = lock.tryOptimisticRead();
+        int level = find(keys, levels, key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                level = find(keys, levels, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return level == REMOVED ? UNKNOWN : level;
+    }
+
+    public void put(String productId, long available) {
+        int level = (int) Math.min(Math.max(available, 0), Integer.MAX_VALUE);
+        long key = key(productId);
+        long stamp = lock.writeLock();
+        try {
+            if (2 * (used + 1) > keys.length) {
+                resize();
+            }
+            int slot = slot(keys, key);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                used++;
+                size++;
+            } else if (levels[slot] == REMOVED) {
+                size++;
+            }
+            levels[slot] = level;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Forget a product. Its slot keeps the key until the next resize, so probing is not disturbed.
+     */
+    public void remove(String productId) {
+        long key = key(productId);
+        long stamp = lock.writeLock();
+        try {
+            int slot = slot(keys, key);
+            if (keys[slot] != EMPTY && levels[slot] != REMOVED) {
+                levels[slot] = REMOVED;
+                size--;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Number of products with a known level.
+     */
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Rehash into a table with room for twice the live products; removed slots are dropped.
+     */
+    private void resize() {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < 4 * (size + 1)) {
+            capacity <<= 1;
+        }
+        long[] newKeys = new long[capacity];
+        int[] newLevels = new int[capacity];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && levels[i] != REMOVED) {
+                int slot = slot(newKeys, keys[i]);
+                newKeys[slot] = keys[i];
+                newLevels[slot] = levels[i];
+            }
+        }
+        keys = newKeys;
+        levels = newLevels;
+        used = size;
+    }
+
+    /**
+     * Level stored under {@code key}, or {@link #REMOVED} if there is none. May run against a table being
+     * written; the arrays are read once so that indexes stay in bounds, and the caller validates the result.
+     */
+    private static int find(long[] keys, int[] levels, long key) {
+        if (keys.length != levels.length) {
+            return REMOVED;
+        }
+        int mask = keys.length - 1;
+        for (int slot = (int) key & mask, probes = 0; probes < keys.length; slot = (slot + 1) & mask, probes++) {
+            if (keys[slot] == key) {
+                return levels[slot];
+            }
+            if (keys[slot] == EMPTY) {
+                return REMOVED;
+            }
+        }
+        return REMOVED;
+    }
+
+    /**
+     * Slot holding {@code key}, or the empty slot where it goes. The table is never more than half full.
+     */
+    private static int slot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        int slot = (int) key & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * {@link Hashing#hash64} of the product id; never {@link #EMPTY}.
+     */
+    static long key(String productId) {
+        long hash = Hashing.hash64(productId);
+        return hash == EMPTY ? 1 : hash;
+    }
+}
@@ -102,7 +102,7 @@ public class ProcurementOrder {
         this.status = OrderStatus.CONFIRMED;
         this.updatedAt = Instant.now();
         
-        registerEvent(new OrderConfirmedEvent(this.id, this.version));
+        registerEvent(new OrderConfirmedEvent(this.id, nextVersion()));
     }
     
     public void cancel(String reason) {
@@ -116,7 +116,7 @@ public class ProcurementOrder {
         this.status = OrderStatus.CANCELLED;
         this.updatedAt = Instant.now();
         
-        registerEvent(new OrderCancelledEvent(this.id, this.version, reason));
+        registerEvent(new OrderCancelledEvent(this.id, nextVersion(), reason));
     }
     
     public void complete() {
@@ -129,7 +129,7 @@ public class ProcurementOrder {
         this.status = OrderStatus.COMPLETED;
         this.updatedAt = Instant.now();
         
-        registerEvent(new OrderCompletedEvent(this.id, this.version));
+        registerEvent(new OrderCompletedEvent(this.id, nextVersion()));
     }
     
     public BuyerId getBuyerIdVO() {
@@ -158,6 +158,14 @@ public class ProcurementOrder {
             .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
     
+    /**
+     * Version this change commits with: the optimistic lock increments {@code version} once per transaction,
+     * so events of successive changes carry strictly increasing versions (creation carries the initial one).
+     */
+    private Long nextVersion() {
+        return this.version + 1;
+    }
+    
     private void registerEvent(DomainEvent event) {
         this.domainEvents.add(event);
     }
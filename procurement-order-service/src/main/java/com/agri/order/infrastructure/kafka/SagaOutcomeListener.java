@@ -0,0 +1,52 @@
+package com.agri.order.infrastructure.kafka;
+
+import com.agri.common.event.dto.OrderSagaOutcomeEventDTO;
+import com.agri.common.kafka.EventTypeDispatcher;
+import com.agri.order.application.OrderCompletionRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Feeds saga outcomes from {@code order.events} into the {@link OrderCompletionRegistry}.
+ *
+ * A waiting request may be held by any instance, so every instance assigns itself all partitions of the
+ * topic, without a consumer group, and starts at the end of each: nothing is committed and no group is left
+ * behind on the brokers. Every outcome is handed to the registry, even for orders nobody waits for yet: the
+ * waiter may register just after the outcome arrived.
+ */
+@Slf4j
+@Component
+public class SagaOutcomeListener implements ConsumerSeekAware {
+
+    private final EventTypeDispatcher dispatcher;
+
+    public SagaOutcomeListener(OrderCompletionRegistry completionRegistry, ObjectMapper objectMapper) {
+        this.dispatcher = EventTypeDispatcher.builder(objectMapper)
+            .on(OrderSagaOutcomeEventDTO.class, completionRegistry::complete, "OrderSagaOutcomeEvent")
+            .build();
+    }
+
+    @KafkaListener(
+        topicPartitions = @TopicPartition(
+            topic = "order.events",
+            partitions = "#{@topicPartitions.of('order.events', ${procurement.order.await.partitions:1})}"),
+        properties = {"enable.auto.commit=false"}
+    )
+    public void onOrderEvent(ConsumerRecord<String, String> record) {
+        log.debug("Received saga outcome for orderId: {}", record.key());
+        dispatcher.dispatch(record);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<org.apache.kafka.common.TopicPartition, Long> assignments,
+                                     ConsumerSeekCallback callback) {
+        callback.seekToEnd(assignments.keySet());
+    }
+}
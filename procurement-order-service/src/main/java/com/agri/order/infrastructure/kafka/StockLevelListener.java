@@ -0,0 +1,55 @@
+package com.agri.order.infrastructure.kafka;
+
+import com.agri.common.event.dto.StockLevelEventDTO;
+import com.agri.common.kafka.EventTypeDispatcher;
+import com.agri.order.application.StockSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.PartitionOffset;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds the inventory service's stock levels from {@code inventory.stock} into the {@link StockSnapshot}.
+ *
+ * Every instance needs every level, so each one assigns itself all partitions of the compacted topic and
+ * reads them from the start, without a consumer group: nothing is committed and no group is left behind, and
+ * after a restart the snapshot is rebuilt from the latest level of each product. Tombstones remove the product.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "procurement.order.stock-check.enabled", havingValue = "true", matchIfMissing = true)
+public class StockLevelListener {
+
+    private final StockSnapshot snapshot;
+    private final EventTypeDispatcher dispatcher;
+
+    public StockLevelListener(StockSnapshot snapshot, ObjectMapper objectMapper) {
+        this.snapshot = snapshot;
+        this.dispatcher = EventTypeDispatcher.builder(objectMapper)
+            .on(StockLevelEventDTO.class,
+                event -> snapshot.put(event.getProductId(), event.getAvailable()),
+                "StockLevelEvent")
+            .build();
+    }
+
+    @KafkaListener(
+        topicPartitions = @TopicPartition(
+            topic = StockLevelEventDTO.TOPIC,
+            partitions = "#{@topicPartitions.of('" + StockLevelEventDTO.TOPIC + "', "
+                + "${procurement.order.stock-check.partitions:3})}",
+            partitionOffsets = @PartitionOffset(partition = "*", initialOffset = "0")),
+        properties = {"enable.auto.commit=false"}
+    )
+    public void onStockLevel(ConsumerRecord<String, String> record) {
+        if (record.value() == null) {
+            log.debug("Product removed from stock feed: {}", record.key());
+            snapshot.remove(record.key());
+            return;
+        }
+        dispatcher.dispatch(record);
+    }
+}
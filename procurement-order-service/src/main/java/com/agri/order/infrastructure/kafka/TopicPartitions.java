@@ -0,0 +1,40 @@
+package com.agri.order.infrastructure.kafka;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Partitions of a topic, for listeners that assign themselves every partition instead of joining a consumer
+ * group ({@link StockLevelListener}, {@link SagaOutcomeListener}). Looked up once when the listener is created;
+ * while the topic does not exist yet, the partition count given by the caller is assumed.
+ */
+@Slf4j
+@Component("topicPartitions")
+public class TopicPartitions {
+
+    private final ConsumerFactory<?, ?> consumerFactory;
+
+    public TopicPartitions(ConsumerFactory<?, ?> consumerFactory) {
+        this.consumerFactory = consumerFactory;
+    }
+
+    public String[] of(String topic, int defaultPartitions) {
+        List<PartitionInfo> partitions;
+        try (Consumer<?, ?> consumer = consumerFactory.createConsumer()) {
+            partitions = consumer.partitionsFor(topic);
+        }
+        if (partitions == null || partitions.isEmpty()) {
+            log.warn("Topic {} not found, assuming {} partitions", topic, defaultPartitions);
+            return IntStream.range(0, defaultPartitions).mapToObj(String::valueOf).toArray(String[]::new);
+        }
+        return partitions.stream()
+            .map(partition -> String.valueOf(partition.partition()))
+            .toArray(String[]::new);
+    }
+}
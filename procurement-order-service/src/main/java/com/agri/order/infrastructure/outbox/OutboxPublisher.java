@@ -1,5 +1,6 @@
 package com.agri.order.infrastructure.outbox;
 
+import com.agri.common.kafka.EventHeaders;
 import com.agri.common.outbox.OutboxEvent;
 import com.agri.order.infrastructure.repository.OutboxEventRepository;
 import lombok.RequiredArgsConstructor;
@@ -43,7 +44,7 @@ public class OutboxPublisher {
             OutboxEvent event = events.get(i);
             
             try {
-                kafkaTemplate.send(TOPIC, event.getAggregateId(), event.getPayload())
+                kafkaTemplate.send(EventHeaders.record(TOPIC, event.getAggregateId(), event.getPayload(), event.getEventType(), event.getId()))
                     .whenComplete((result, ex) -> {
                         if (ex != null) {
                             log.error("Failed to publish event {} to Kafka", event.getId(), ex);
@@ -1,10 +1,13 @@
 package com.agri.order.observability;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Component;
 
+import java.util.function.Supplier;
+
 /**
  * Custom business metrics (requirement: "add custom metrics to your custom app with prometheus client").
  * These show up on /actuator/prometheus.
@@ -12,12 +15,18 @@ import org.springframework.stereotype.Component;
 @Component
 public class OrderMetrics {
 
+    public static final String AWAIT_COMPLETED = "completed";
+    public static final String AWAIT_TIMEOUT = "timeout";
+    public static final String AWAIT_REJECTED = "rejected";
+
+    private final MeterRegistry registry;
     private final Counter ordersCreated;
     private final Counter ordersConfirmed;
     private final Counter ordersCancelled;
     private final Timer orderCommandDuration;
 
     public OrderMetrics(MeterRegistry registry) {
+        this.registry = registry;
         this.ordersCreated = registry.counter("agri_orders_created_total");
         this.ordersConfirmed = registry.counter("agri_orders_confirmed_total");
         this.ordersCancelled = registry.counter("agri_orders_cancelled_total");
@@ -39,6 +48,32 @@ public class OrderMetrics {
         ordersCancelled.increment();
     }
 
+    /**
+     * Count a {@code Prefer: wait} request by how it ended: completed, timeout or rejected (registry full).
+     */
+    public void incAwait(String result) {
+        registry.counter("agri_order_await_total", "result", result).increment();
+    }
+
+    public void registerAwaitingGauge(Supplier<Number> awaiting) {
+        Gauge.builder("agri_order_await_pending", awaiting)
+                .description("Create-order requests currently waiting for their saga outcome")
+                .register(registry);
+    }
+
+    /**
+     * Count an order turned away on the stock snapshot, before anything was written.
+     */
+    public void incStockRejected() {
+        registry.counter("agri_order_stock_rejections_total").increment();
+    }
+
+    public void registerStockSnapshotGauge(Supplier<Number> products) {
+        Gauge.builder("agri_order_stock_snapshot_products", products)
+                .description("Products with a known level in the replicated stock snapshot")
+                .register(registry);
+    }
+
     public <T> T recordCommand(java.util.concurrent.Callable<T> op) {
         try {
             return orderCommandDuration.recordCallable(op);
@@ -0,0 +1,26 @@
+package com.agri.query.infrastructure.inbox;
+
+import com.agri.common.inbox.Inbox;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+
+/**
+ * Inbox for the order projector. Mongo writes here are not transactional, so an entry is recorded
+ * after its projection and a crash in between replays one event onto the (idempotent) projection.
+ */
+@Configuration
+public class InboxConfig {
+
+    @Bean
+    public Inbox projectorInbox(MongoTemplate mongoTemplate,
+                                @Value("${procurement.query.inbox.retention:P7D}") Duration retention,
+                                @Value("${procurement.query.inbox.recent-capacity:10000}") int recentCapacity) {
+        return new Inbox("query-projector", new MongoInboxStore(mongoTemplate, retention),
+            TransactionOperations.withoutTransaction(), recentCapacity);
+    }
+}
@@ -0,0 +1,112 @@
+package com.agri.query.infrastructure.inbox;
+
+import com.agri.common.inbox.InboxMessage;
+import com.agri.common.inbox.InboxStore;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * {@link InboxStore} on the read-model database, in collection {@code inbox_messages}.
+ * Old entries are expired by a TTL index on {@code processedAt}, since this service runs no scheduler.
+ */
+public class MongoInboxStore implements InboxStore {
+
+    static final String COLLECTION = "inbox_messages";
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoInboxStore(MongoTemplate mongoTemplate, Duration retention) {
+        this.mongoTemplate = mongoTemplate;
+        mongoTemplate.indexOps(COLLECTION).ensureIndex(
+            new Index("processedAt", Sort.Direction.ASC).expire(retention));
+    }
+
+    @Override
+    public boolean exists(String consumer, String messageId) {
+        return mongoTemplate.exists(byId(consumer, messageId), COLLECTION);
+    }
+
+    @Override
+    public void record(String consumer, String messageId) {
+        try {
+            mongoTemplate.insert(entry(consumer, messageId, Instant.now()), COLLECTION);
+        } catch (DuplicateKeyException e) {
+            // A concurrent redelivery recorded it first; the projection is idempotent
+        }
+    }
+
+    @Override
+    public Set<String> existing(String consumer, Collection<String> messageIds) {
+        Query query = Query.query(Criteria.where("_id").in(
+            messageIds.stream().map(messageId -> InboxMessage.id(consumer, messageId)).toList()));
+        query.fields().include("messageId");
+        Set<String> existing = new HashSet<>();
+        mongoTemplate.find(query, Document.class, COLLECTION)
+            .forEach(entry -> existing.add(entry.getString("messageId")));
+        return existing;
+    }
+
+    /**
+     * One unordered bulk insert; entries already recorded fail on their key alone and are ignored.
+     */
+    @Override
+    public void recordAll(String consumer, Collection<String> messageIds) {
+        if (messageIds.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION)
+                .insert(messageIds.stream().map(messageId -> entry(consumer, messageId, now)).toList())
+                .execute();
+        } catch (BulkOperationException e) {
+            if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void forEachMessageId(String consumer, Consumer<String> action) {
+        Query query = Query.query(Criteria.where("consumer").is(consumer));
+        query.fields().include("messageId");
+        try (Stream<Document> entries = mongoTemplate.stream(query, Document.class, COLLECTION)) {
+            entries.forEach(entry -> action.accept(entry.getString("messageId")));
+        }
+    }
+
+    @Override
+    public int purge(Instant cutoff) {
+        return (int) mongoTemplate.remove(
+            Query.query(Criteria.where("processedAt").lt(Date.from(cutoff))), COLLECTION).getDeletedCount();
+    }
+
+    private static Document entry(String consumer, String messageId, Instant processedAt) {
+        return new Document("_id", InboxMessage.id(consumer, messageId))
+            .append("consumer", consumer)
+            .append("messageId", messageId)
+            .append("processedAt", Date.from(processedAt));
+    }
+
+    private static Query byId(String consumer, String messageId) {
+        return Query.query(Criteria.where("_id").is(InboxMessage.id(consumer, messageId)));
+    }
+}
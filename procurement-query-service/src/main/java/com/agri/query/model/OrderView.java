@@ -43,4 +43,9 @@ public class OrderView {
     private Instant createdAt;
     
     private Instant updatedAt;
+    
+    /**
+     * Version of the order as of the last event projected into this view.
+     */
+    private Long version;
 }
@@ -9,10 +9,14 @@ public class QueryMetrics {
 
     private final Counter queryRequests;
     private final Counter queryFailures;
+    private final Counter projectedEvents;
+    private final Counter projectionWrites;
 
     public QueryMetrics(MeterRegistry registry) {
         this.queryRequests = registry.counter("agri_query_requests_total");
         this.queryFailures = registry.counter("agri_query_failures_total");
+        this.projectedEvents = registry.counter("agri_query_projected_events_total");
+        this.projectionWrites = registry.counter("agri_query_projection_writes_total");
     }
 
     public void incRequest() {
@@ -22,4 +26,12 @@ public class QueryMetrics {
     public void incFailure() {
         queryFailures.increment();
     }
+
+    /**
+     * Count a projected batch: events taken in, and the document writes they were collapsed into.
+     */
+    public void recordProjectedBatch(int events, int writes) {
+        projectedEvents.increment(events);
+        projectionWrites.increment(writes);
+    }
 }
@@ -0,0 +1,170 @@
+package com.agri.query.projector;
+
+import com.agri.common.event.dto.OrderCancelledEventDTO;
+import com.agri.common.event.dto.OrderCompletedEventDTO;
+import com.agri.common.event.dto.OrderConfirmedEventDTO;
+import com.agri.common.event.dto.OrderCreatedEventDTO;
+import com.agri.common.inbox.Inbox;
+import com.agri.common.kafka.EventTypeDispatcher;
+import com.agri.query.model.OrderView;
+import com.agri.query.observability.QueryMetrics;
+import com.mongodb.bulk.BulkWriteResult;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch projector mode ({@code procurement.query.projector.mode=batch}).
+ *
+ * The events of one poll are collapsed per order: an order created and confirmed in the same poll becomes one
+ * upsert of the full view with status {@code CONFIRMED}, and an order whose status changed several times gets
+ * only the last status. All writes of the poll then go to Mongo in one unordered bulk write, and the inbox
+ * is checked and written once per poll. Events of one order share a partition, so the poll holds them in order.
+ *
+ * Writes carry the same guards as the record projector's: a view is only inserted if missing, and a status
+ * only moves a view forward, to a newer version or to a later status at the same version. A status change for an order without a view is dropped.
+ * A failed bulk write fails the batch, which is redelivered and written again; the guards make that harmless.
+ */
+@Component
+@ConditionalOnProperty(name = "procurement.query.projector.mode", havingValue = "batch")
+@Slf4j
+public class BatchOrderProjector {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final OrderProjector orderProjector;
+    private final MongoTemplate mongoTemplate;
+    private final Inbox inbox;
+    private final QueryMetrics metrics;
+
+    public BatchOrderProjector(OrderProjector orderProjector, MongoTemplate mongoTemplate, Inbox inbox,
+                               QueryMetrics metrics) {
+        this.orderProjector = orderProjector;
+        this.mongoTemplate = mongoTemplate;
+        this.inbox = inbox;
+        this.metrics = metrics;
+    }
+
+    @KafkaListener(
+        topics = "procurement.procurementorder.events",
+        groupId = "query-projector-group",
+        containerFactory = "batchListenerContainerFactory"
+    )
+    public void onEvents(List<ConsumerRecord<String, String>> records) {
+        List<ConsumerRecord<String, String>> unseen = inbox.unseen(records.stream()
+            .filter(this::handles)
+            .toList());
+
+        Map<String, PendingView> pending = new LinkedHashMap<>();
+        for (ConsumerRecord<String, String> record : unseen) {
+            Object event;
+            try {
+                event = orderProjector.convert(record);
+            } catch (SerializationException e) {
+                log.error("Skipping unreadable {} for order: {}",
+                    EventTypeDispatcher.eventType(record), record.key(), e);
+                continue;
+            }
+            switch (event) {
+                case OrderCreatedEventDTO created -> pending(pending, created.getOrderId()).created(created);
+                case OrderConfirmedEventDTO confirmed -> pending(pending, confirmed.getOrderId())
+                    .status("CONFIRMED", OrderProjector.versionOf(confirmed));
+                case OrderCancelledEventDTO cancelled -> pending(pending, cancelled.getOrderId())
+                    .status("CANCELLED", OrderProjector.versionOf(cancelled));
+                case OrderCompletedEventDTO completed -> pending(pending, completed.getOrderId())
+                    .status("COMPLETED", OrderProjector.versionOf(completed));
+                default -> log.warn("No projection for {}", event.getClass().getSimpleName());
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            write(pending);
+        }
+        inbox.recordAll(unseen);
+        metrics.recordProjectedBatch(records.size(), pending.size());
+        log.debug("Projected {} events ({} new) into {} order views", records.size(), unseen.size(), pending.size());
+    }
+
+    private boolean handles(ConsumerRecord<String, String> record) {
+        if (orderProjector.handles(record)) {
+            return true;
+        }
+        log.warn("Received unknown event type: {}", EventTypeDispatcher.eventType(record));
+        return false;
+    }
+
+    private void write(Map<String, PendingView> pending) {
+        Instant now = Instant.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OrderView.class);
+        for (Map.Entry<String, PendingView> entry : pending.entrySet()) {
+            String orderId = entry.getKey();
+            PendingView view = entry.getValue();
+            if (view.created == null) {
+                bulk.updateOne(OrderProjector.behind(orderId, view.version, view.status),
+                    OrderProjector.statusUpdate(view.status, view.version, now));
+            } else if (view.status == null) {
+                bulk.upsert(OrderProjector.byId(orderId),
+                    OrderProjector.withCreatedView(new Update(), view.created, now)
+                        .setOnInsert("status", "PENDING")
+                        .setOnInsert("version", view.version)
+                        .setOnInsert("updatedAt", now));
+            } else {
+                // Inserts the view with its latest status, or moves an older view on to it
+                bulk.upsert(OrderProjector.behind(orderId, view.version, view.status), OrderProjector.withCreatedView(
+                    OrderProjector.statusUpdate(view.status, view.version, now), view.created, now));
+            }
+        }
+
+        BulkWriteResult result;
+        try {
+            result = bulk.execute();
+        } catch (BulkOperationException e) {
+            // An upsert whose view is already further along cannot match, and its insert collides on _id
+            if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY)) {
+                throw e;
+            }
+            result = e.getResult();
+        }
+        log.debug("Bulk write: {} matched, {} modified, {} inserted",
+            result.getMatchedCount(), result.getModifiedCount(), result.getUpserts().size());
+    }
+
+    private static PendingView pending(Map<String, PendingView> pending, String orderId) {
+        return pending.computeIfAbsent(orderId, id -> new PendingView());
+    }
+
+    /**
+     * What a poll's events leave of one order's view: the creation, if in this poll, and the newest status
+     * change with its version; at equal versions, the later status.
+     */
+    private static final class PendingView {
+
+        private OrderCreatedEventDTO created;
+        private String status;
+        private long version = -1;
+
+        void created(OrderCreatedEventDTO event) {
+            created = event;
+            version = Math.max(version, OrderProjector.versionOf(event));
+        }
+
+        void status(String newStatus, long newVersion) {
+            if (newVersion > version || newVersion == version && OrderProjector.isLaterStatus(newStatus, status)) {
+                status = newStatus;
+                version = newVersion;
+            }
+        }
+    }
+}
@@ -5,68 +5,132 @@ import com.agri.common.event.dto.OrderCancelledEventDTO;
 import com.agri.common.event.dto.OrderCompletedEventDTO;
 import com.agri.common.event.dto.OrderConfirmedEventDTO;
 import com.agri.common.event.dto.OrderCreatedEventDTO;
+import com.agri.common.inbox.Inbox;
+import com.agri.common.kafka.EventTypeDispatcher;
 import com.agri.common.vo.OrderItem;
 import com.agri.query.model.OrderItemView;
 import com.agri.query.model.OrderView;
-import com.agri.query.repository.OrderViewRepository;
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.result.UpdateResult;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.errors.SerializationException;
 import org.slf4j.MDC;
-import org.springframework.kafka.annotation.KafkaHandler;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+/**
+ * Projects order events into the {@link OrderView} read model.
+ * Records are routed on their event-type header and parsed straight into the matching DTO;
+ * event types without a projection are skipped without parsing. Redelivered events are dropped by the inbox.
+ *
+ * Every write is a single conditional update, without reading the view first. A creation only inserts a view
+ * that does not exist yet; a status change only applies to a view older than the event's
+ * {@link DomainEvent#getVersion() version}, which is stored with it, or at the same version but an earlier status.
+ * Replays and events overtaken by newer ones therefore leave the view as it is, whatever the order the writes
+ * arrive in. The status tie-break covers events from order services that stamped every event with the creation
+ * version, whose status changes would otherwise never pass the version check.
+ *
+ * With {@code procurement.query.projector.mode=batch}, {@link BatchOrderProjector} consumes the topic instead.
+ */
 @Component
-@RequiredArgsConstructor
 @Slf4j
-@KafkaListener(
-    topics = "procurement.procurementorder.events",
-    groupId = "query-projector-group",
-    containerFactory = "kafkaListenerContainerFactory"
-)
 public class OrderProjector {
 
     // TODO: Replace with actual name resolution from User Service in production
     // These prefixes create placeholder names until proper service integration
-    private static final String BUYER_NAME_PREFIX = "Buyer-";
-    private static final String SUPPLIER_NAME_PREFIX = "Supplier-";
+    static final String BUYER_NAME_PREFIX = "Buyer-";
+    static final String SUPPLIER_NAME_PREFIX = "Supplier-";
 
-    private final OrderViewRepository orderViewRepository;
+    /**
+     * How far along its lifecycle a status is; cancelled and completed orders are both final.
+     */
+    private static final Map<String, Integer> STATUS_RANK = Map.of(
+        "PENDING", 0,
+        "CONFIRMED", 1,
+        "CANCELLED", 2,
+        "COMPLETED", 2);
 
-    @KafkaHandler
+    private final MongoTemplate mongoTemplate;
+    private final EventTypeDispatcher dispatcher;
+    private final Inbox inbox;
+
+    public OrderProjector(MongoTemplate mongoTemplate, Inbox inbox, ObjectMapper objectMapper) {
+        this.mongoTemplate = mongoTemplate;
+        this.inbox = inbox;
+        this.dispatcher = EventTypeDispatcher.builder(objectMapper)
+            .on(OrderCreatedEventDTO.class, this::handleOrderCreated, "OrderCreatedEvent")
+            .on(OrderConfirmedEventDTO.class, this::handleOrderConfirmed, "OrderConfirmedEvent")
+            .on(OrderCancelledEventDTO.class, this::handleOrderCancelled, "OrderCancelledEvent")
+            .on(OrderCompletedEventDTO.class, this::handleOrderCompleted, "OrderCompletedEvent")
+            .build();
+    }
+
+    @KafkaListener(
+        topics = "procurement.procurementorder.events",
+        groupId = "query-projector-group",
+        containerFactory = "kafkaListenerContainerFactory",
+        autoStartup = "#{'${procurement.query.projector.mode:record}' == 'record'}"
+    )
     @Retryable(
         maxAttempts = 3,
+        noRetryFor = SerializationException.class,
         backoff = @Backoff(delay = 1000, multiplier = 2)
     )
-    public void handleOrderCreated(OrderCreatedEventDTO event) {
+    public void onEvent(ConsumerRecord<String, String> record) {
+        if (!dispatcher.handles(record)) {
+            log.warn("Received unknown event type: {}", EventTypeDispatcher.eventType(record));
+            return;
+        }
+        if (!inbox.process(record, () -> dispatcher.dispatch(record))) {
+            log.debug("Skipping duplicate {} for order: {}", EventTypeDispatcher.eventType(record), record.key());
+        }
+    }
+
+    /**
+     * Whether the record is an event type this projector handles, decided on the header alone.
+     */
+    public boolean handles(ConsumerRecord<String, String> record) {
+        return dispatcher.handles(record);
+    }
+
+    /**
+     * Parse the record into its event DTO without projecting it, for {@link BatchOrderProjector}.
+     */
+    public Object convert(ConsumerRecord<String, String> record) {
+        return dispatcher.convert(record);
+    }
+
+    private void handleOrderCreated(OrderCreatedEventDTO event) {
         String orderId = event.getOrderId();
         MDC.put("orderId", orderId);
         
         try {
             log.info("Processing OrderCreatedEvent for order: {}", orderId);
             
-            OrderView orderView = OrderView.builder()
-                .id(orderId)
-                .buyerId(event.getBuyerId())
-                .buyerName(BUYER_NAME_PREFIX + event.getBuyerId())
-                .supplierId(event.getSupplierId())
-                .supplierName(SUPPLIER_NAME_PREFIX + event.getSupplierId())
-                .items(mapToOrderItemViews(event.getItems()))
-                .status("PENDING")
-                .totalAmount(event.getTotalAmount())
-                .createdAt(Instant.now())
-                .updatedAt(Instant.now())
-                .build();
-            
-            orderViewRepository.save(orderView);
-            log.info("Successfully created OrderView for order: {}", orderId);
+            Instant now = Instant.now();
+            UpdateResult result = mongoTemplate.upsert(byId(orderId),
+                withCreatedView(new Update(), event, now)
+                    .setOnInsert("status", "PENDING")
+                    .setOnInsert("version", versionOf(event))
+                    .setOnInsert("updatedAt", now),
+                OrderView.class);
+            if (result.getUpsertedId() != null) {
+                log.info("Successfully created OrderView for order: {}", orderId);
+            } else {
+                log.info("OrderView already exists for order: {}", orderId);
+            }
             
         } catch (Exception e) {
             log.error("Error processing OrderCreatedEvent for order: {}", orderId, e);
@@ -76,97 +140,102 @@ public class OrderProjector {
         }
     }
 
-    @KafkaHandler
-    @Retryable(
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
-    public void handleOrderConfirmed(OrderConfirmedEventDTO event) {
-        String orderId = event.getOrderId();
-        MDC.put("orderId", orderId);
-        
-        try {
-            log.info("Processing OrderConfirmedEvent for order: {}", orderId);
-            
-            orderViewRepository.findById(orderId).ifPresentOrElse(
-                orderView -> {
-                    orderView.setStatus("CONFIRMED");
-                    orderView.setUpdatedAt(Instant.now());
-                    orderViewRepository.save(orderView);
-                    log.info("Successfully updated OrderView status to CONFIRMED for order: {}", orderId);
-                },
-                () -> log.warn("OrderView not found for order: {}", orderId)
-            );
-            
-        } catch (Exception e) {
-            log.error("Error processing OrderConfirmedEvent for order: {}", orderId, e);
-            throw e;
-        } finally {
-            MDC.remove("orderId");
-        }
+    private void handleOrderConfirmed(OrderConfirmedEventDTO event) {
+        updateStatus(event.getOrderId(), versionOf(event), "CONFIRMED", "OrderConfirmedEvent");
     }
 
-    @KafkaHandler
-    @Retryable(
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
-    public void handleOrderCancelled(OrderCancelledEventDTO event) {
-        String orderId = event.getOrderId();
-        MDC.put("orderId", orderId);
-        
-        try {
-            log.info("Processing OrderCancelledEvent for order: {}", orderId);
-            
-            orderViewRepository.findById(orderId).ifPresentOrElse(
-                orderView -> {
-                    orderView.setStatus("CANCELLED");
-                    orderView.setUpdatedAt(Instant.now());
-                    orderViewRepository.save(orderView);
-                    log.info("Successfully updated OrderView status to CANCELLED for order: {}", orderId);
-                },
-                () -> log.warn("OrderView not found for order: {}", orderId)
-            );
-            
-        } catch (Exception e) {
-            log.error("Error processing OrderCancelledEvent for order: {}", orderId, e);
-            throw e;
-        } finally {
-            MDC.remove("orderId");
-        }
+    private void handleOrderCancelled(OrderCancelledEventDTO event) {
+        updateStatus(event.getOrderId(), versionOf(event), "CANCELLED", "OrderCancelledEvent");
     }
 
-    @KafkaHandler
-    @Retryable(
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
-    public void handleOrderCompleted(OrderCompletedEventDTO event) {
-        String orderId = event.getOrderId();
+    private void handleOrderCompleted(OrderCompletedEventDTO event) {
+        updateStatus(event.getOrderId(), versionOf(event), "COMPLETED", "OrderCompletedEvent");
+    }
+
+    /**
+     * One atomic {@code $set} of the status, applied only if the view is behind the event; nothing is read.
+     */
+    private void updateStatus(String orderId, long version, String status, String eventType) {
         MDC.put("orderId", orderId);
         
         try {
-            log.info("Processing OrderCompletedEvent for order: {}", orderId);
+            log.info("Processing {} for order: {}", eventType, orderId);
             
-            orderViewRepository.findById(orderId).ifPresentOrElse(
-                orderView -> {
-                    orderView.setStatus("COMPLETED");
-                    orderView.setUpdatedAt(Instant.now());
-                    orderViewRepository.save(orderView);
-                    log.info("Successfully updated OrderView status to COMPLETED for order: {}", orderId);
-                },
-                () -> log.warn("OrderView not found for order: {}", orderId)
-            );
+            UpdateResult result = mongoTemplate.updateFirst(behind(orderId, version, status),
+                statusUpdate(status, version, Instant.now()), OrderView.class);
+            if (result.getMatchedCount() > 0) {
+                log.info("Successfully updated OrderView status to {} for order: {}", status, orderId);
+            } else {
+                log.info("OrderView not updated for order: {}: not found, or already at version {} with status {} or later",
+                    orderId, version, status);
+            }
             
         } catch (Exception e) {
-            log.error("Error processing OrderCompletedEvent for order: {}", orderId, e);
+            log.error("Error processing {} for order: {}", eventType, orderId, e);
             throw e;
         } finally {
             MDC.remove("orderId");
         }
     }
 
-    private List<OrderItemView> mapToOrderItemViews(List<OrderItem> items) {
+    static Query byId(String orderId) {
+        return Query.query(Criteria.where("id").is(orderId));
+    }
+
+    /**
+     * The view of the order, if it has not yet reached {@code version}, or has reached it with a status earlier
+     * than {@code status}. Views projected before versions were stored have none and count as older.
+     */
+    static Query behind(String orderId, long version, String status) {
+        return Query.query(Criteria.where("id").is(orderId).orOperator(
+            Criteria.where("version").lt(version),
+            Criteria.where("version").exists(false),
+            Criteria.where("version").is(version).and("status").in(statusesBefore(status))));
+    }
+
+    /**
+     * Whether {@code status} is further along than {@code current}; {@code null} stands for a new order.
+     */
+    static boolean isLaterStatus(String status, String current) {
+        return rank(status) > rank(current);
+    }
+
+    private static List<String> statusesBefore(String status) {
+        return STATUS_RANK.keySet().stream()
+            .filter(earlier -> rank(earlier) < rank(status))
+            .toList();
+    }
+
+    private static int rank(String status) {
+        return status == null ? 0 : STATUS_RANK.getOrDefault(status, 0);
+    }
+
+    static Update statusUpdate(String status, long version, Instant now) {
+        return new Update()
+            .set("status", status)
+            .set("version", version)
+            .set("updatedAt", now);
+    }
+
+    /**
+     * Add the fields an order gets on creation, written only when the upsert inserts the view.
+     */
+    static Update withCreatedView(Update update, OrderCreatedEventDTO event, Instant now) {
+        return update
+            .setOnInsert("buyerId", event.getBuyerId())
+            .setOnInsert("buyerName", BUYER_NAME_PREFIX + event.getBuyerId())
+            .setOnInsert("supplierId", event.getSupplierId())
+            .setOnInsert("supplierName", SUPPLIER_NAME_PREFIX + event.getSupplierId())
+            .setOnInsert("items", mapToOrderItemViews(event.getItems()))
+            .setOnInsert("totalAmount", event.getTotalAmount())
+            .setOnInsert("createdAt", now);
+    }
+
+    static long versionOf(DomainEvent event) {
+        return event.getVersion() == null ? 0 : event.getVersion();
+    }
+
+    static List<OrderItemView> mapToOrderItemViews(List<OrderItem> items) {
         return items.stream()
             .map(item -> new OrderItemView(
                 item.getProductId(),
@@ -177,9 +246,4 @@ public class OrderProjector {
             ))
             .collect(Collectors.toList());
     }
-
-    @KafkaHandler(isDefault = true)
-    public void handleUnknown(Object event) {
-        log.warn("Received unknown event type: {}", event.getClass().getSimpleName());
-    }
 }
@@ -1,35 +1,57 @@
 package com.agri.saga.application;
 
 import com.agri.common.command.*;
+import com.agri.common.event.dto.OrderSagaOutcomeEventDTO;
+import com.agri.saga.domain.AdmissionLane;
 import com.agri.saga.domain.ProcurementSaga;
 import com.agri.saga.domain.SagaStatus;
 import com.agri.saga.domain.SagaStep;
 import com.agri.saga.event.*;
 import com.agri.saga.infrastructure.kafka.CommandPublisher;
 import com.agri.saga.infrastructure.repository.SagaRepository;
+import com.agri.saga.infrastructure.store.SagaStore;
 import com.agri.saga.observability.SagaMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+/**
+ * Drives each saga through its steps. Per-step state goes through the {@link SagaStore};
+ * queued sagas and bulk compensation work on {@code procurement_sagas} directly.
+ * Duplicate {@code OrderCreatedEvent}s are rejected by the consumer inbox; only without it
+ * is the order looked up before a saga is created.
+ */
 @Slf4j
 @Service
 public class SagaOrchestrator {
     
     private final SagaRepository sagaRepository;
+    private final SagaStore sagaStore;
     private final CommandPublisher commandPublisher;
+    private final SagaQueryService sagaQueryService;
     private final SagaMetrics metrics;
+    private final boolean bulkCompensation;
+    private final boolean inboxEnabled;
     
-    public SagaOrchestrator(SagaRepository sagaRepository, CommandPublisher commandPublisher, SagaMetrics metrics) {
+    public SagaOrchestrator(SagaRepository sagaRepository, SagaStore sagaStore, CommandPublisher commandPublisher,
+                            SagaQueryService sagaQueryService, SagaMetrics metrics,
+                            @Value("${procurement.saga.compensation.bulk-enabled:true}") boolean bulkCompensation,
+                            @Value("${procurement.saga.inbox.enabled:true}") boolean inboxEnabled) {
         this.sagaRepository = sagaRepository;
+        this.sagaStore = sagaStore;
         this.commandPublisher = commandPublisher;
+        this.sagaQueryService = sagaQueryService;
         this.metrics = metrics;
+        this.bulkCompensation = bulkCompensation;
+        this.inboxEnabled = inboxEnabled;
     }
     
     @Transactional
@@ -43,22 +65,18 @@ public class SagaOrchestrator {
         try {
             log.info("Starting saga for orderId: {}", orderId);
             
-            Optional<ProcurementSaga> existingSaga = sagaRepository.findByOrderId(orderId);
-            if (existingSaga.isPresent()) {
+            if (!inboxEnabled && sagaStore.existsByOrderId(orderId)) {
                 log.warn("Saga already exists for orderId: {}. Skipping duplicate.", orderId);
                 return;
             }
             
             ProcurementSaga saga = ProcurementSaga.create(sagaId, orderId, event.getBuyerId(), event.getTotalAmount());
-            sagaRepository.save(saga);
+            saga.setOrderCreatedAt(event.getOccurredOn());
+            sagaStore.save(saga);
             
             log.info("Saga created with id: {} for orderId: {}", sagaId, orderId);
             
-            List<ReserveInventoryCommand.LineItem> items = event.getItems().stream()
-                .map(item -> new ReserveInventoryCommand.LineItem(item.getProductId(), item.getQuantity()))
-                .collect(Collectors.toList());
-            
-            ReserveInventoryCommand command = new ReserveInventoryCommand(orderId, items);
+            ReserveInventoryCommand command = new ReserveInventoryCommand(orderId, lineItems(event));
             commandPublisher.publishReserveInventoryCommand(command);
             
             log.info("Saga started successfully, RESERVE_INVENTORY command published");
@@ -68,6 +86,65 @@ public class SagaOrchestrator {
         }
     }
     
+    /**
+     * Persist a saga in QUEUED state without publishing anything; the admission scheduler
+     * admits it later through {@link #admitSaga(String)}.
+     *
+     * @return the queued saga, or {@code null} if a saga already exists for the order
+     */
+    @Transactional
+    public ProcurementSaga queueSaga(OrderCreatedEvent event, AdmissionLane lane) {
+        String sagaId = UUID.randomUUID().toString();
+        String orderId = event.getOrderId();
+        
+        MDC.put("sagaId", sagaId);
+        MDC.put("orderId", orderId);
+        
+        try {
+            if (!inboxEnabled && sagaQueryService.existsByOrderId(orderId)) {
+                log.warn("Saga already exists for orderId: {}. Skipping duplicate.", orderId);
+                return null;
+            }
+            
+            ProcurementSaga saga = ProcurementSaga.queue(
+                sagaId, orderId, event.getBuyerId(), event.getTotalAmount(), lineItems(event), lane);
+            saga.setOrderCreatedAt(event.getOccurredOn());
+            sagaRepository.save(saga);
+            
+            log.info("Saga queued with id: {} for orderId: {} in lane {}", sagaId, orderId, lane);
+            return saga;
+        } finally {
+            MDC.clear();
+        }
+    }
+    
+    /**
+     * Admit a QUEUED saga and publish its RESERVE_INVENTORY command.
+     *
+     * @return {@code false} if the saga is no longer queued (admitted elsewhere or removed)
+     */
+    @Transactional
+    public boolean admitSaga(String sagaId) {
+        if (sagaRepository.markAdmitted(sagaId, Instant.now()) == 0) {
+            return false;
+        }
+        
+        ProcurementSaga saga = sagaRepository.findById(sagaId).orElseThrow();
+        MDC.put("sagaId", sagaId);
+        MDC.put("orderId", saga.getOrderId());
+        
+        try {
+            ReserveInventoryCommand command = new ReserveInventoryCommand(saga.getOrderId(), saga.getLineItems());
+            commandPublisher.publishReserveInventoryCommand(command);
+            
+            log.info("Saga admitted, RESERVE_INVENTORY command published");
+            metrics.incStarted();
+            return true;
+        } finally {
+            MDC.clear();
+        }
+    }
+    
     @Transactional
     public void handleInventoryReserved(InventoryReservedEvent event) {
         String orderId = event.getOrderId();
@@ -86,9 +163,10 @@ public class SagaOrchestrator {
                 return;
             }
             
+            metrics.recordStep(SagaStep.RESERVE_INVENTORY, saga.getStepStartedAt(), SagaMetrics.OUTCOME_SUCCESS);
             saga.setInventoryReserved(true);
             saga.moveToNextStep();
-            sagaRepository.save(saga);
+            sagaStore.save(saga);
             
             log.info("Inventory marked as reserved. Moving to PROCESS_PAYMENT step.");
             
@@ -118,12 +196,57 @@ public class SagaOrchestrator {
         try {
             log.error("Inventory reservation failed for orderId: {}. Reason: {}", orderId, event.getReason());
             
+            metrics.recordStep(saga.getCurrentStep(), saga.getStepStartedAt(), SagaMetrics.OUTCOME_FAILURE);
             saga.startCompensation();
             saga.fail("Inventory reservation failed: " + event.getReason());
-            sagaRepository.save(saga);
-            metrics.incFailed();
+            sagaStore.save(saga);
+            commandPublisher.publishSagaOutcome(OrderSagaOutcomeEventDTO.failed(orderId, saga.getFailureReason()));
             
             log.info("Saga marked as FAILED. No compensation needed as no steps completed.");
+            metrics.recordEndToEnd(saga.getOrderCreatedAt(), SagaMetrics.OUTCOME_FAILURE);
+            metrics.incFailed();
+        } finally {
+            MDC.clear();
+        }
+    }
+    
+    /**
+     * The inventory service released the order's stock after the hold TTL: the saga cannot complete.
+     * Nothing is left to release, so the saga fails without inventory compensation.
+     * A saga that already ended keeps its outcome: the expiry arrived late and changes nothing.
+     */
+    @Transactional
+    public void handleInventoryHoldExpired(InventoryHoldExpiredEvent event) {
+        String orderId = event.getOrderId();
+        
+        Optional<ProcurementSaga> stored = sagaStore.findByOrderId(orderId);
+        if (stored.filter(SagaOrchestrator::hasEnded).isPresent()) {
+            log.warn("Saga for orderId: {} is already {}. Ignoring late InventoryHoldExpiredEvent.",
+                orderId, stored.get().getStatus());
+            return;
+        }
+        ProcurementSaga saga = activeSaga(stored, orderId);
+        if (saga == null) return;
+        
+        MDC.put("sagaId", saga.getId());
+        MDC.put("orderId", orderId);
+        
+        try {
+            log.error("Inventory hold expired for orderId: {} in step {}", orderId, saga.getCurrentStep());
+            
+            if (saga.getStatus() == SagaStatus.COMPENSATING) {
+                log.warn("Saga is already compensating. The hold expiry released its inventory.");
+            } else {
+                metrics.recordStep(saga.getCurrentStep(), saga.getStepStartedAt(), SagaMetrics.OUTCOME_FAILURE);
+                saga.startCompensation();
+            }
+            saga.setInventoryReserved(false);
+            saga.fail("Inventory hold expired");
+            sagaStore.save(saga);
+            commandPublisher.publishSagaOutcome(OrderSagaOutcomeEventDTO.failed(orderId, saga.getFailureReason()));
+            
+            metrics.recordCompensation(saga.getCompensationStartedAt());
+            metrics.recordEndToEnd(saga.getOrderCreatedAt(), SagaMetrics.OUTCOME_FAILURE);
             metrics.incFailed();
         } finally {
             MDC.clear();
@@ -148,9 +271,10 @@ public class SagaOrchestrator {
                 return;
             }
             
+            metrics.recordStep(SagaStep.PROCESS_PAYMENT, saga.getStepStartedAt(), SagaMetrics.OUTCOME_SUCCESS);
             saga.setPaymentProcessed(true);
             saga.moveToNextStep();
-            sagaRepository.save(saga);
+            sagaStore.save(saga);
             
             log.info("Payment marked as processed. Moving to CONFIRM_ORDER step.");
             
@@ -176,8 +300,21 @@ public class SagaOrchestrator {
         try {
             log.error("Payment failed for orderId: {}. Reason: {}", orderId, event.getReason());
             
+            if (saga.getStatus() == SagaStatus.COMPENSATING) {
+                log.warn("Saga is already compensating. Ignoring duplicate PaymentFailedEvent.");
+                return;
+            }
+            
+            metrics.recordStep(saga.getCurrentStep(), saga.getStepStartedAt(), SagaMetrics.OUTCOME_FAILURE);
             saga.startCompensation();
             
+            if (saga.getInventoryReserved() && bulkCompensation) {
+                saga.setFailureReason("Payment failed: " + event.getReason());
+                sagaStore.save(saga);
+                log.info("Saga left COMPENSATING. Inventory is released by the next bulk compensation drain.");
+                return;
+            }
+            
             if (saga.getInventoryReserved()) {
                 log.info("Starting compensation: releasing inventory");
                 CompensateInventoryCommand command = new CompensateInventoryCommand(orderId);
@@ -185,10 +322,12 @@ public class SagaOrchestrator {
             }
             
             saga.fail("Payment failed: " + event.getReason());
-            sagaRepository.save(saga);
-            metrics.incFailed();
+            sagaStore.save(saga);
+            commandPublisher.publishSagaOutcome(OrderSagaOutcomeEventDTO.failed(orderId, saga.getFailureReason()));
             
             log.info("Saga marked as FAILED. Compensation initiated.");
+            metrics.recordCompensation(saga.getCompensationStartedAt());
+            metrics.recordEndToEnd(saga.getOrderCreatedAt(), SagaMetrics.OUTCOME_FAILURE);
             metrics.incFailed();
         } finally {
             MDC.clear();
@@ -213,24 +352,78 @@ public class SagaOrchestrator {
                 return;
             }
             
+            metrics.recordStep(SagaStep.CONFIRM_ORDER, saga.getStepStartedAt(), SagaMetrics.OUTCOME_SUCCESS);
             saga.complete();
-            sagaRepository.save(saga);
-            metrics.incCompleted();
-            metrics.incCompleted();
+            sagaStore.save(saga);
+            commandPublisher.publishSagaOutcome(OrderSagaOutcomeEventDTO.completed(orderId));
             
             log.info("Saga completed successfully for orderId: {}", orderId);
+            metrics.recordEndToEnd(saga.getOrderCreatedAt(), SagaMetrics.OUTCOME_SUCCESS);
             metrics.incCompleted();
         } finally {
             MDC.clear();
         }
     }
     
+    /**
+     * Finish up to {@code batchSize} sagas waiting for bulk compensation: release their inventory
+     * with one {@link BulkCompensateInventoryCommand} and mark them FAILED.
+     * Rows locked by a concurrent drain are skipped, so several instances can run this safely.
+     *
+     * @return the number of sagas compensated
+     */
+    @Transactional
+    public int drainCompensations(int batchSize) {
+        List<ProcurementSaga> sagas = sagaRepository.lockPendingCompensations(batchSize);
+        if (sagas.isEmpty()) {
+            return 0;
+        }
+        
+        BulkCompensateInventoryCommand command = new BulkCompensateInventoryCommand(
+            UUID.randomUUID().toString(),
+            sagas.stream().map(ProcurementSaga::getOrderId).toList()
+        );
+        commandPublisher.publishBulkCompensateInventoryCommand(command);
+        
+        for (ProcurementSaga saga : sagas) {
+            saga.fail(saga.getFailureReason());
+            commandPublisher.publishSagaOutcome(
+                OrderSagaOutcomeEventDTO.failed(saga.getOrderId(), saga.getFailureReason()));
+            metrics.recordCompensation(saga.getCompensationStartedAt());
+            metrics.recordEndToEnd(saga.getOrderCreatedAt(), SagaMetrics.OUTCOME_FAILURE);
+            metrics.incFailed();
+        }
+        sagaRepository.saveAll(sagas);
+        metrics.recordCompensationBatch(sagas.size());
+        
+        log.info("Bulk compensation {} published for {} sagas", command.batchId(), sagas.size());
+        return sagas.size();
+    }
+    
+    private static List<ReserveInventoryCommand.LineItem> lineItems(OrderCreatedEvent event) {
+        return event.getItems().stream()
+            .map(item -> new ReserveInventoryCommand.LineItem(item.getProductId(), item.getQuantity()))
+            .collect(Collectors.toList());
+    }
+    
     private ProcurementSaga findSagaByOrderId(String orderId) {
-        return sagaRepository.findByOrderId(orderId)
-            .filter(saga -> saga.getStatus() != SagaStatus.COMPLETED && saga.getStatus() != SagaStatus.FAILED)
+        return activeSaga(sagaStore.findByOrderId(orderId), orderId);
+    }
+    
+    private ProcurementSaga activeSaga(Optional<ProcurementSaga> stored, String orderId) {
+        return stored
+            .filter(saga -> !hasEnded(saga))
             .orElseGet(() -> {
-                log.error("No active saga found for orderId: {}", orderId);
+                if (sagaQueryService.isArchived(orderId)) {
+                    log.warn("Saga for orderId: {} is already archived. Ignoring late event.", orderId);
+                } else {
+                    log.error("No active saga found for orderId: {}", orderId);
+                }
                 return null;
             });
     }
+    
+    private static boolean hasEnded(ProcurementSaga saga) {
+        return saga.getStatus() == SagaStatus.COMPLETED || saga.getStatus() == SagaStatus.FAILED;
+    }
 }
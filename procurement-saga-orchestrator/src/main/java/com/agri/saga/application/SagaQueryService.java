@@ -0,0 +1,51 @@
+package com.agri.saga.application;
+
+import com.agri.saga.domain.ArchivedProcurementSaga;
+import com.agri.saga.domain.ProcurementSaga;
+import com.agri.saga.infrastructure.repository.ArchivedSagaRepository;
+import com.agri.saga.infrastructure.repository.SagaRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Saga lookups across the hot table and the archive.
+ * The hot table is always consulted first; the archive is only hit for sagas
+ * that already reached a terminal state and were moved out by {@code SagaArchiver}.
+ */
+@Service
+public class SagaQueryService {
+    
+    private final SagaRepository sagaRepository;
+    private final ArchivedSagaRepository archivedSagaRepository;
+    
+    public SagaQueryService(SagaRepository sagaRepository, ArchivedSagaRepository archivedSagaRepository) {
+        this.sagaRepository = sagaRepository;
+        this.archivedSagaRepository = archivedSagaRepository;
+    }
+    
+    /**
+     * Find the saga for an order, falling back to the archive.
+     * Archived sagas are returned as detached read-only copies.
+     */
+    @Transactional(readOnly = true)
+    public Optional<ProcurementSaga> findByOrderId(String orderId) {
+        Optional<ProcurementSaga> saga = sagaRepository.findByOrderId(orderId);
+        if (saga.isPresent()) {
+            return saga;
+        }
+        return archivedSagaRepository.findFirstByOrderId(orderId).map(ArchivedProcurementSaga::toSaga);
+    }
+    
+    @Transactional(readOnly = true)
+    public boolean existsByOrderId(String orderId) {
+        return sagaRepository.findByOrderId(orderId).isPresent()
+            || archivedSagaRepository.existsByOrderId(orderId);
+    }
+    
+    @Transactional(readOnly = true)
+    public boolean isArchived(String orderId) {
+        return archivedSagaRepository.existsByOrderId(orderId);
+    }
+}
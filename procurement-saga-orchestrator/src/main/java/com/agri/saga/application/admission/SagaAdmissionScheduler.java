@@ -0,0 +1,238 @@
+package com.agri.saga.application.admission;
+
+import com.agri.saga.application.SagaOrchestrator;
+import com.agri.saga.domain.AdmissionLane;
+import com.agri.saga.domain.ProcurementSaga;
+import com.agri.saga.domain.SagaStatus;
+import com.agri.saga.event.OrderCreatedEvent;
+import com.agri.saga.infrastructure.kafka.CommandBackpressure;
+import com.agri.saga.infrastructure.repository.SagaRepository;
+import com.agri.saga.observability.SagaMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control between {@code OrderCreatedEvent} consumption and saga start.
+ *
+ * New sagas are persisted as QUEUED (so the Kafka offset can be committed without losing them)
+ * and held in priority lanes: orders containing a perishable product go to the PERISHABLE lane,
+ * everything else to STANDARD. Lanes are served weighted round robin in priority order, and within
+ * a lane buyers are served weighted-fair ({@link WeightedFairQueue}), so one buyer's bulk upload
+ * cannot starve other buyers. A saga is only admitted while fewer than {@code max-in-flight}
+ * sagas are running across all instances, and not at all while {@link CommandBackpressure} reports
+ * that the inventory service is falling behind.
+ *
+ * QUEUED sagas are reloaded on startup and periodically, so sagas queued by a stopped instance are
+ * not lost; admission is a conditional update, so each saga is admitted exactly once.
+ */
+@Slf4j
+@Component
+public class SagaAdmissionScheduler {
+
+    private static final List<SagaStatus> IN_FLIGHT_STATUSES =
+        List.of(SagaStatus.STARTED, SagaStatus.PROCESSING, SagaStatus.COMPENSATING);
+    private static final String UNKNOWN_BUYER = "unknown";
+
+    private final SagaOrchestrator sagaOrchestrator;
+    private final SagaRepository sagaRepository;
+    private final SagaMetrics metrics;
+    private final CommandBackpressure backpressure;
+
+    private final boolean enabled;
+    private final int maxInFlight;
+    private final int maxAdmissionsPerTick;
+    private final Duration staleAfter;
+    private final Duration orphanAfter;
+    private final Set<String> perishableProductIds;
+    private final Map<String, Integer> buyerWeights;
+    private final Map<AdmissionLane, Integer> laneWeights = new EnumMap<>(AdmissionLane.class);
+
+    private final Map<AdmissionLane, WeightedFairQueue<QueuedEntry>> lanes = new EnumMap<>(AdmissionLane.class);
+    private final Map<AdmissionLane, Integer> laneCredits = new EnumMap<>(AdmissionLane.class);
+    private final Map<AdmissionLane, AtomicInteger> depths = new EnumMap<>(AdmissionLane.class);
+    private final Set<String> queuedIds = ConcurrentHashMap.newKeySet();
+
+    public SagaAdmissionScheduler(SagaOrchestrator sagaOrchestrator,
+                                  SagaRepository sagaRepository,
+                                  SagaMetrics metrics,
+                                  CommandBackpressure backpressure,
+                                  @Value("${procurement.saga.admission.enabled:true}") boolean enabled,
+                                  @Value("${procurement.saga.admission.max-in-flight:200}") int maxInFlight,
+                                  @Value("${procurement.saga.admission.max-admissions-per-tick:100}") int maxAdmissionsPerTick,
+                                  @Value("${procurement.saga.admission.stale-after:PT5M}") Duration staleAfter,
+                                  @Value("${procurement.saga.admission.orphan-after:PT2M}") Duration orphanAfter,
+                                  @Value("${procurement.saga.admission.perishable-product-ids:}") Set<String> perishableProductIds,
+                                  @Value("${procurement.saga.admission.perishable-weight:4}") int perishableWeight,
+                                  @Value("${procurement.saga.admission.standard-weight:1}") int standardWeight,
+                                  @Value("${procurement.saga.admission.buyer-weights:}") String buyerWeights) {
+        this.sagaOrchestrator = sagaOrchestrator;
+        this.sagaRepository = sagaRepository;
+        this.metrics = metrics;
+        this.backpressure = backpressure;
+        this.enabled = enabled;
+        this.maxInFlight = maxInFlight;
+        this.maxAdmissionsPerTick = maxAdmissionsPerTick;
+        this.staleAfter = staleAfter;
+        this.orphanAfter = orphanAfter;
+        this.perishableProductIds = Set.copyOf(perishableProductIds);
+        this.buyerWeights = parseWeights(buyerWeights);
+        this.laneWeights.put(AdmissionLane.PERISHABLE, Math.max(1, perishableWeight));
+        this.laneWeights.put(AdmissionLane.STANDARD, Math.max(1, standardWeight));
+
+        for (AdmissionLane lane : AdmissionLane.values()) {
+            lanes.put(lane, new WeightedFairQueue<>(buyer -> this.buyerWeights.getOrDefault(buyer, 1)));
+            AtomicInteger depth = new AtomicInteger();
+            depths.put(lane, depth);
+            metrics.registerAdmissionQueueDepth(lane, depth::get);
+        }
+        resetLaneCredits();
+    }
+
+    /**
+     * Entry point for new orders. With admission disabled the saga starts immediately.
+     */
+    public void submit(OrderCreatedEvent event) {
+        if (!enabled) {
+            sagaOrchestrator.startSaga(event);
+            return;
+        }
+        AdmissionLane lane = classify(event);
+        ProcurementSaga saga = sagaOrchestrator.queueSaga(event, lane);
+        if (saga != null) {
+            enqueue(new QueuedEntry(saga.getId(), saga.getBuyerId(), lane, saga.getQueuedAt()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${procurement.saga.admission.tick-interval:200}")
+    public void admitQueued() {
+        if (isEmpty() || backpressure.isThrottled()) {
+            return;
+        }
+        long inFlight = sagaRepository.countByStatusInAndUpdatedAtAfter(
+            IN_FLIGHT_STATUSES, Instant.now().minus(staleAfter));
+        long slots = Math.min(maxAdmissionsPerTick, maxInFlight - inFlight);
+
+        for (long i = 0; i < slots; i++) {
+            QueuedEntry entry = pollNext();
+            if (entry == null) {
+                return;
+            }
+            try {
+                if (sagaOrchestrator.admitSaga(entry.sagaId())) {
+                    metrics.recordAdmissionWait(entry.lane(), entry.queuedAt());
+                }
+            } catch (Exception e) {
+                log.error("Failed to admit saga {}. It stays queued.", entry.sagaId(), e);
+                enqueue(entry);
+                return;
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        recover(Instant.now());
+    }
+
+    /**
+     * Pick up sagas queued by other (possibly stopped) instances.
+     */
+    @Scheduled(fixedDelayString = "${procurement.saga.admission.recovery-interval:60000}",
+               initialDelayString = "${procurement.saga.admission.recovery-interval:60000}")
+    public void recoverOrphans() {
+        recover(Instant.now().minus(orphanAfter));
+    }
+
+    private void recover(Instant queuedBefore) {
+        int recovered = 0;
+        for (SagaRepository.QueuedSaga queued :
+                sagaRepository.findByStatusAndQueuedAtBeforeOrderByQueuedAtAsc(SagaStatus.QUEUED, queuedBefore)) {
+            AdmissionLane lane = Objects.requireNonNullElse(queued.getAdmissionLane(), AdmissionLane.STANDARD);
+            if (enqueue(new QueuedEntry(queued.getId(), queued.getBuyerId(), lane, queued.getQueuedAt()))) {
+                recovered++;
+            }
+        }
+        if (recovered > 0) {
+            log.info("Recovered {} queued sagas", recovered);
+        }
+    }
+
+    AdmissionLane classify(OrderCreatedEvent event) {
+        if (event.getItems() != null && !perishableProductIds.isEmpty()) {
+            for (OrderCreatedEvent.OrderItem item : event.getItems()) {
+                if (perishableProductIds.contains(item.getProductId())) {
+                    return AdmissionLane.PERISHABLE;
+                }
+            }
+        }
+        return AdmissionLane.STANDARD;
+    }
+
+    private synchronized boolean enqueue(QueuedEntry entry) {
+        if (!queuedIds.add(entry.sagaId())) {
+            return false;
+        }
+        String buyer = Objects.requireNonNullElse(entry.buyerId(), UNKNOWN_BUYER);
+        lanes.get(entry.lane()).add(buyer, entry);
+        depths.get(entry.lane()).incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Weighted round robin over lanes in priority order: each lane with a backlog gets up to its
+     * weight in admissions per round, higher-priority lanes first.
+     */
+    private synchronized QueuedEntry pollNext() {
+        for (int pass = 0; pass < 2; pass++) {
+            for (AdmissionLane lane : AdmissionLane.values()) {
+                WeightedFairQueue<QueuedEntry> queue = lanes.get(lane);
+                if (!queue.isEmpty() && laneCredits.get(lane) > 0) {
+                    laneCredits.merge(lane, -1, Integer::sum);
+                    QueuedEntry entry = queue.poll();
+                    depths.get(lane).decrementAndGet();
+                    queuedIds.remove(entry.sagaId());
+                    return entry;
+                }
+            }
+            resetLaneCredits();
+        }
+        return null;
+    }
+
+    private synchronized boolean isEmpty() {
+        return lanes.values().stream().allMatch(WeightedFairQueue::isEmpty);
+    }
+
+    private void resetLaneCredits() {
+        laneCredits.putAll(laneWeights);
+    }
+
+    private static Map<String, Integer> parseWeights(String weights) {
+        Map<String, Integer> parsed = new HashMap<>();
+        for (String entry : weights.split(",")) {
+            String[] pair = entry.trim().split("=");
+            if (pair.length == 2) {
+                parsed.put(pair[0].trim(), Math.max(1, Integer.parseInt(pair[1].trim())));
+            }
+        }
+        return Map.copyOf(parsed);
+    }
+
+    record QueuedEntry(String sagaId, String buyerId, AdmissionLane lane, Instant queuedAt) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.agri.saga.application.admission;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Weighted fair queue over flows (buyers), using deficit round robin with unit cost.
+ *
+ * Flows with a backlog take turns; in its turn a flow may dequeue as many items as its weight
+ * before moving to the back of the ring. A flow with a large backlog therefore delays every other
+ * flow by at most its weight per round, regardless of how many items it queued.
+ *
+ * Not thread-safe; callers synchronize.
+ */
+final class WeightedFairQueue<T> {
+
+    private final ToIntFunction<String> weights;
+    private final Map<String, ArrayDeque<T>> backlogs = new HashMap<>();
+    private final ArrayDeque<String> ring = new ArrayDeque<>();
+    private final Map<String, Integer> credits = new HashMap<>();
+    private int size;
+
+    WeightedFairQueue(ToIntFunction<String> weights) {
+        this.weights = weights;
+    }
+
+    void add(String flow, T item) {
+        ArrayDeque<T> backlog = backlogs.computeIfAbsent(flow, key -> new ArrayDeque<>());
+        if (backlog.isEmpty()) {
+            ring.addLast(flow);
+        }
+        backlog.addLast(item);
+        size++;
+    }
+
+    /**
+     * @return the next item in weighted fair order, or {@code null} if the queue is empty
+     */
+    T poll() {
+        String flow = ring.peekFirst();
+        if (flow == null) {
+            return null;
+        }
+        int credit = credits.getOrDefault(flow, Math.max(1, weights.applyAsInt(flow))) - 1;
+        ArrayDeque<T> backlog = backlogs.get(flow);
+        T item = backlog.pollFirst();
+        size--;
+
+        if (backlog.isEmpty()) {
+            ring.pollFirst();
+            backlogs.remove(flow);
+            credits.remove(flow);
+        } else if (credit == 0) {
+            ring.addLast(ring.pollFirst());
+            credits.remove(flow);
+        } else {
+            credits.put(flow, credit);
+        }
+        return item;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+}
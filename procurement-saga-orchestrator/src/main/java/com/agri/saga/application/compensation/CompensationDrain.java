@@ -0,0 +1,51 @@
+package com.agri.saga.application.compensation;
+
+import com.agri.saga.application.SagaOrchestrator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drains sagas waiting for inventory compensation in batches.
+ *
+ * When payment fails after inventory was reserved, the saga stays COMPENSATING instead of sending
+ * its own {@code CompensateInventoryCommand}. This drain collects those sagas and releases their
+ * inventory with one {@code BulkCompensateInventoryCommand} per batch, so a payment-provider outage
+ * turns into a few coalesced releases per product instead of thousands of single-order transactions
+ * contending for the same stock rows. The drain rate is bounded by {@code batch-size} x
+ * {@code max-batches-per-run} per {@code drain-interval}.
+ */
+@Slf4j
+@Component
+public class CompensationDrain {
+    
+    private final SagaOrchestrator sagaOrchestrator;
+    
+    @Value("${procurement.saga.compensation.batch-size:200}")
+    private int batchSize;
+    
+    @Value("${procurement.saga.compensation.max-batches-per-run:5}")
+    private int maxBatchesPerRun;
+    
+    public CompensationDrain(SagaOrchestrator sagaOrchestrator) {
+        this.sagaOrchestrator = sagaOrchestrator;
+    }
+    
+    @Scheduled(fixedDelayString = "${procurement.saga.compensation.drain-interval:1000}")
+    public void drain() {
+        int total = 0;
+        
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            int drained = sagaOrchestrator.drainCompensations(batchSize);
+            total += drained;
+            if (drained < batchSize) {
+                break;
+            }
+        }
+        
+        if (total > 0) {
+            log.info("Drained {} pending compensations", total);
+        }
+    }
+}
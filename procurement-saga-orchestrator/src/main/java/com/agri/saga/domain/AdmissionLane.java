@@ -0,0 +1,9 @@
+package com.agri.saga.domain;
+
+/**
+ * Priority lane a saga waits in before it is admitted. Lanes are listed in priority order.
+ */
+public enum AdmissionLane {
+    PERISHABLE,
+    STANDARD
+}
@@ -0,0 +1,88 @@
+package com.agri.saga.domain;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Cold copy of a saga that reached a terminal state (COMPLETED or FAILED).
+ * Rows are moved here in bulk by the archiver so that {@code procurement_sagas}
+ * only holds in-flight sagas. Archived sagas are read-only.
+ */
+@Entity
+@Immutable
+@Table(
+    name = "procurement_sagas_archive",
+    indexes = @Index(name = "idx_procurement_sagas_archive_order_id", columnList = "order_id")
+)
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ArchivedProcurementSaga {
+
+    @Id
+    private String id;
+
+    @Column(name = "order_id", nullable = false)
+    private String orderId;
+
+    @Column(name = "buyer_id")
+    private String buyerId;
+
+    @Column(name = "total_amount")
+    private BigDecimal totalAmount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private SagaStatus status;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "current_step", nullable = false)
+    private SagaStep currentStep;
+
+    @Column(name = "inventory_reserved")
+    private Boolean inventoryReserved;
+
+    @Column(name = "payment_processed")
+    private Boolean paymentProcessed;
+
+    @Column(name = "failure_reason", columnDefinition = "TEXT")
+    private String failureReason;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Column(name = "version")
+    private Long version;
+
+    @Column(name = "archived_at", nullable = false)
+    private Instant archivedAt;
+
+    /**
+     * Detached, read-only view of the archived saga in its hot-table shape.
+     * The returned instance must never be saved.
+     */
+    public ProcurementSaga toSaga() {
+        ProcurementSaga saga = new ProcurementSaga();
+        saga.setId(id);
+        saga.setOrderId(orderId);
+        saga.setBuyerId(buyerId);
+        saga.setTotalAmount(totalAmount);
+        saga.setStatus(status);
+        saga.setCurrentStep(currentStep);
+        saga.setInventoryReserved(inventoryReserved);
+        saga.setPaymentProcessed(paymentProcessed);
+        saga.setFailureReason(failureReason);
+        saga.setCreatedAt(createdAt);
+        saga.setUpdatedAt(updatedAt);
+        saga.setVersion(version);
+        return saga;
+    }
+}
@@ -1,15 +1,25 @@
 package com.agri.saga.domain;
 
+import com.agri.common.command.ReserveInventoryCommand;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.Instant;
+import java.util.List;
 
 @Entity
-@Table(name = "procurement_sagas")
+@Table(
+    name = "procurement_sagas",
+    indexes = {
+        @Index(name = "idx_procurement_sagas_order_id", columnList = "order_id"),
+        @Index(name = "idx_procurement_sagas_status_updated_at", columnList = "status, updated_at")
+    }
+)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -45,6 +55,29 @@ public class ProcurementSaga {
     @Column(name = "failure_reason", columnDefinition = "TEXT")
     private String failureReason;
     
+    @Column(name = "order_created_at")
+    private Instant orderCreatedAt;
+    
+    @Column(name = "step_started_at")
+    private Instant stepStartedAt;
+    
+    @Column(name = "compensation_started_at")
+    private Instant compensationStartedAt;
+    
+    /**
+     * Line items of a QUEUED saga, kept until admission publishes the reserve command.
+     */
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "line_items", columnDefinition = "jsonb")
+    private List<ReserveInventoryCommand.LineItem> lineItems;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "admission_lane")
+    private AdmissionLane admissionLane;
+    
+    @Column(name = "queued_at")
+    private Instant queuedAt;
+    
     @Column(name = "created_at", nullable = false)
     private Instant createdAt;
     
@@ -56,7 +89,9 @@ public class ProcurementSaga {
     
     @PrePersist
     protected void onCreate() {
-        createdAt = Instant.now();
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
         updatedAt = Instant.now();
     }
     
@@ -80,20 +115,38 @@ public class ProcurementSaga {
             default:
                 break;
         }
+        this.stepStartedAt = Instant.now();
     }
     
     public void startCompensation() {
         this.status = SagaStatus.COMPENSATING;
+        this.compensationStartedAt = Instant.now();
     }
     
     public void fail(String reason) {
         this.status = SagaStatus.FAILED;
         this.failureReason = reason;
+        this.lineItems = null;
     }
     
     public void complete() {
         this.status = SagaStatus.COMPLETED;
         this.currentStep = SagaStep.COMPLETED;
+        this.lineItems = null;
+    }
+    
+    /**
+     * A saga waiting for admission. It has no step start time until it is admitted.
+     */
+    public static ProcurementSaga queue(String sagaId, String orderId, String buyerId, java.math.BigDecimal totalAmount,
+                                        List<ReserveInventoryCommand.LineItem> lineItems, AdmissionLane lane) {
+        ProcurementSaga saga = create(sagaId, orderId, buyerId, totalAmount);
+        saga.setStatus(SagaStatus.QUEUED);
+        saga.setStepStartedAt(null);
+        saga.setLineItems(lineItems);
+        saga.setAdmissionLane(lane);
+        saga.setQueuedAt(Instant.now());
+        return saga;
     }
     
     public static ProcurementSaga create(String sagaId, String orderId, String buyerId, java.math.BigDecimal totalAmount) {
@@ -106,6 +159,7 @@ public class ProcurementSaga {
         saga.setCurrentStep(SagaStep.RESERVE_INVENTORY);
         saga.setInventoryReserved(false);
         saga.setPaymentProcessed(false);
+        saga.setStepStartedAt(Instant.now());
         return saga;
     }
 }
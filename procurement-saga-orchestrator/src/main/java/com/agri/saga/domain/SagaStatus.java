@@ -1,6 +1,7 @@
 package com.agri.saga.domain;
 
 public enum SagaStatus {
+    QUEUED,
     STARTED,
     PROCESSING,
     COMPLETED,
@@ -0,0 +1,33 @@
+package com.agri.saga.event;
+
+import com.agri.common.event.DomainEvent;
+
+/**
+ * The inventory service released an order's reservation because the saga did not finish within the hold TTL.
+ */
+public class InventoryHoldExpiredEvent extends DomainEvent {
+    
+    private String orderId;
+    
+    public InventoryHoldExpiredEvent() {
+        super();
+    }
+    
+    public InventoryHoldExpiredEvent(String orderId) {
+        super(orderId, 1L);
+        this.orderId = orderId;
+    }
+    
+    @Override
+    public String getEventType() {
+        return "InventoryHoldExpired";
+    }
+    
+    public String getOrderId() {
+        return orderId;
+    }
+    
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+}
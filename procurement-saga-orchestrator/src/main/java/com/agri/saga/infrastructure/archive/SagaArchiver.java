@@ -0,0 +1,55 @@
+package com.agri.saga.infrastructure.archive;
+
+import com.agri.saga.infrastructure.repository.SagaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Moves COMPLETED and FAILED sagas from {@code procurement_sagas} into
+ * {@code procurement_sagas_archive} once they have been terminal for the configured retention,
+ * keeping the hot table limited to in-flight sagas.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "procurement.saga.archival.enabled", havingValue = "true", matchIfMissing = true)
+public class SagaArchiver {
+    
+    private final SagaRepository sagaRepository;
+    
+    @Value("${procurement.saga.archival.retention:PT1H}")
+    private Duration retention;
+    
+    @Value("${procurement.saga.archival.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${procurement.saga.archival.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+    
+    public SagaArchiver(SagaRepository sagaRepository) {
+        this.sagaRepository = sagaRepository;
+    }
+    
+    @Scheduled(fixedDelayString = "${procurement.saga.archival.fixed-delay:60000}")
+    public void archiveTerminalSagas() {
+        Instant cutoff = Instant.now().minus(retention);
+        int total = 0;
+        
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            int archived = sagaRepository.archiveTerminalSagas(cutoff, batchSize);
+            total += archived;
+            if (archived < batchSize) {
+                break;
+            }
+        }
+        
+        if (total > 0) {
+            log.info("Archived {} terminal sagas last updated before {}", total, cutoff);
+        }
+    }
+}
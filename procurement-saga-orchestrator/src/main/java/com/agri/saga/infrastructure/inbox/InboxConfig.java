@@ -0,0 +1,31 @@
+package com.agri.saga.infrastructure.inbox;
+
+import com.agri.common.inbox.Inbox;
+import com.agri.common.inbox.InboxStore;
+import com.agri.common.inbox.JpaInboxStore;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Inbox deduplicating every saga input record, stored in {@code inbox_messages} next to the sagas.
+ */
+@Configuration
+@ConditionalOnProperty(name = "procurement.saga.inbox.enabled", havingValue = "true", matchIfMissing = true)
+public class InboxConfig {
+    
+    @Bean
+    public InboxStore sagaInboxStore(EntityManager entityManager) {
+        return new JpaInboxStore(entityManager);
+    }
+    
+    @Bean
+    public Inbox sagaInbox(InboxStore sagaInboxStore, PlatformTransactionManager transactionManager,
+                           @Value("${procurement.saga.inbox.recent-capacity:10000}") int recentCapacity) {
+        return new Inbox("saga-orchestrator", sagaInboxStore, new TransactionTemplate(transactionManager), recentCapacity);
+    }
+}
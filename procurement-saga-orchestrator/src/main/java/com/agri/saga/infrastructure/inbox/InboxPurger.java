@@ -0,0 +1,37 @@
+package com.agri.saga.infrastructure.inbox;
+
+import com.agri.common.inbox.Inbox;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Removes inbox entries older than the retention. It must exceed the longest time a record can be
+ * redelivered (retry topics, DLT replay).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "procurement.saga.inbox.enabled", havingValue = "true", matchIfMissing = true)
+public class InboxPurger {
+    
+    private final Inbox inbox;
+    
+    @Value("${procurement.saga.inbox.retention:P7D}")
+    private Duration retention;
+    
+    public InboxPurger(Inbox inbox) {
+        this.inbox = inbox;
+    }
+    
+    @Scheduled(fixedDelayString = "${procurement.saga.inbox.purge-interval:3600000}")
+    public void purge() {
+        int purged = inbox.purge(retention);
+        if (purged > 0) {
+            log.info("Purged {} inbox entries older than {}", purged, retention);
+        }
+    }
+}
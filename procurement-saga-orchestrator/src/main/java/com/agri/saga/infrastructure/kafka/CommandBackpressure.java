@@ -0,0 +1,188 @@
+package com.agri.saga.infrastructure.kafka;
+
+import com.agri.saga.observability.SagaMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Backpressure for RESERVE_INVENTORY commands.
+ *
+ * Pressure is the larger of two signals:
+ * <ul>
+ *   <li>outstanding commands: reserve commands sent by this instance without an inventory reply yet
+ *       (entries expire after {@code outstanding-ttl} so lost replies cannot pin the count)</li>
+ *   <li>consumer lag of the inventory consumer group on {@code inventory.commands}, polled through the
+ *       admin client (cluster-wide; disabled when {@code lag-group} is empty)</li>
+ * </ul>
+ * When pressure reaches {@code high-watermark} the {@code procurement.procurementorder.events} partitions
+ * are paused and saga admission stops; both resume once pressure falls to {@code low-watermark}.
+ */
+@Slf4j
+@Component
+public class CommandBackpressure {
+
+    private static final String INVENTORY_COMMANDS_TOPIC = "inventory.commands";
+    private static final String ORDER_EVENTS_TOPIC = "procurement.procurementorder.events";
+
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final Map<String, Instant> outstanding = new ConcurrentHashMap<>();
+    private final AdminClient adminClient;
+
+    private final boolean enabled;
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final Duration outstandingTtl;
+    private final String lagGroup;
+    private final Duration lagPollInterval;
+
+    private volatile long lag;
+    private volatile Instant lagPolledAt = Instant.EPOCH;
+    private volatile boolean throttled;
+
+    public CommandBackpressure(KafkaListenerEndpointRegistry listenerRegistry,
+                               SagaMetrics metrics,
+                               @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+                               @Value("${procurement.saga.backpressure.enabled:true}") boolean enabled,
+                               @Value("${procurement.saga.backpressure.high-watermark:500}") int highWatermark,
+                               @Value("${procurement.saga.backpressure.low-watermark:250}") int lowWatermark,
+                               @Value("${procurement.saga.backpressure.outstanding-ttl:PT2M}") Duration outstandingTtl,
+                               @Value("${procurement.saga.backpressure.lag-group:inventory-service-group}") String lagGroup,
+                               @Value("${procurement.saga.backpressure.lag-poll-interval:PT5S}") Duration lagPollInterval) {
+        this.listenerRegistry = listenerRegistry;
+        this.enabled = enabled;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = Math.min(lowWatermark, highWatermark);
+        this.outstandingTtl = outstandingTtl;
+        this.lagGroup = lagGroup;
+        this.lagPollInterval = lagPollInterval;
+        this.adminClient = enabled && !lagGroup.isBlank() ? createAdminClient(bootstrapServers) : null;
+        metrics.registerBackpressureGauges(outstanding::size, () -> lag, () -> throttled ? 1 : 0);
+    }
+
+    public void onReserveCommandSent(String orderId) {
+        if (enabled) {
+            outstanding.put(orderId, Instant.now());
+        }
+    }
+
+    /**
+     * The inventory service replied (reserved or failed), or the command never left this instance.
+     */
+    public void onReserveCommandSettled(String orderId) {
+        outstanding.remove(orderId);
+    }
+
+    public boolean isThrottled() {
+        return throttled;
+    }
+
+    @Scheduled(fixedDelayString = "${procurement.saga.backpressure.check-interval:1000}")
+    public void evaluate() {
+        if (!enabled) {
+            return;
+        }
+        Instant expiredBefore = Instant.now().minus(outstandingTtl);
+        outstanding.values().removeIf(sentAt -> sentAt.isBefore(expiredBefore));
+        pollLagIfDue();
+
+        long pressure = Math.max(outstanding.size(), lag);
+        if (!throttled && pressure >= highWatermark) {
+            throttled = true;
+            log.warn("Inventory backpressure: {} commands pending (outstanding={}, lag={}). Pausing order intake.",
+                pressure, outstanding.size(), lag);
+        } else if (throttled && pressure <= lowWatermark) {
+            throttled = false;
+            log.info("Inventory backpressure relieved: {} commands pending. Resuming order intake.", pressure);
+            orderEventPartitions((container, partition) -> container.resumePartition(partition));
+        }
+        if (throttled) {
+            // Re-applied on every check so partitions assigned by a rebalance are paused as well
+            orderEventPartitions((container, partition) -> container.pausePartition(partition));
+        }
+    }
+
+    /**
+     * Only the order-events partitions are paused: inventory and payment replies may share the
+     * listener container (RocksDB saga store) and must keep flowing to relieve the pressure.
+     */
+    private void orderEventPartitions(BiConsumer<MessageListenerContainer, TopicPartition> action) {
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            Collection<TopicPartition> assigned = container.isRunning() ? container.getAssignedPartitions() : null;
+            if (assigned == null) {
+                continue;
+            }
+            assigned.stream()
+                .filter(partition -> partition.topic().equals(ORDER_EVENTS_TOPIC))
+                .forEach(partition -> action.accept(container, partition));
+        }
+    }
+
+    private void pollLagIfDue() {
+        if (adminClient == null || Instant.now().isBefore(lagPolledAt.plus(lagPollInterval))) {
+            return;
+        }
+        lagPolledAt = Instant.now();
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed = adminClient
+                .listConsumerGroupOffsets(lagGroup)
+                .partitionsToOffsetAndMetadata()
+                .get(5, TimeUnit.SECONDS)
+                .entrySet().stream()
+                .filter(entry -> entry.getKey().topic().equals(INVENTORY_COMMANDS_TOPIC) && entry.getValue() != null)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            if (committed.isEmpty()) {
+                lag = 0;
+                return;
+            }
+            Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> endOffsets = adminClient
+                .listOffsets(committed.keySet().stream()
+                    .collect(Collectors.toMap(partition -> partition, partition -> OffsetSpec.latest())))
+                .all()
+                .get(5, TimeUnit.SECONDS);
+            lag = committed.entrySet().stream()
+                .filter(entry -> endOffsets.containsKey(entry.getKey()))
+                .mapToLong(entry -> Math.max(0, endOffsets.get(entry.getKey()).offset() - entry.getValue().offset()))
+                .sum();
+        } catch (InterruptedException e) {
+            // Keep the last lag; the caller's thread is being stopped
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to poll lag of {} on {}: {}", lagGroup, INVENTORY_COMMANDS_TOPIC, e.getMessage());
+        }
+    }
+
+    private static AdminClient createAdminClient(String bootstrapServers) {
+        Properties props = new Properties();
+        props.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(AdminClientConfig.CLIENT_ID_CONFIG, "saga-backpressure");
+        return AdminClient.create(props);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (adminClient != null) {
+            adminClient.close(Duration.ofSeconds(5));
+        }
+    }
+}
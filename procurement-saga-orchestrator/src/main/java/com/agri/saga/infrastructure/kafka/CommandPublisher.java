@@ -1,8 +1,11 @@
 package com.agri.saga.infrastructure.kafka;
 
 import com.agri.common.command.*;
+import com.agri.common.event.dto.OrderSagaOutcomeEventDTO;
+import com.agri.common.kafka.EventHeaders;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Component;
 
@@ -12,21 +15,27 @@ public class CommandPublisher {
     
     private final KafkaTemplate<String, Object> kafkaTemplate;
     private final ObjectMapper objectMapper;
+    private final CommandBackpressure backpressure;
     
     private static final String INVENTORY_COMMANDS_TOPIC = "inventory.commands";
     private static final String PAYMENT_COMMANDS_TOPIC = "payment.commands";
     private static final String ORDER_COMMANDS_TOPIC = "order.commands";
+    private static final String ORDER_EVENTS_TOPIC = "order.events";
     
-    public CommandPublisher(KafkaTemplate<String, Object> kafkaTemplate, ObjectMapper objectMapper) {
+    public CommandPublisher(KafkaTemplate<String, Object> kafkaTemplate, ObjectMapper objectMapper,
+                            CommandBackpressure backpressure) {
         this.kafkaTemplate = kafkaTemplate;
         this.objectMapper = objectMapper;
+        this.backpressure = backpressure;
     }
     
     public void publishReserveInventoryCommand(ReserveInventoryCommand command) {
         log.info("Publishing ReserveInventoryCommand for orderId: {}", command.orderId());
-        kafkaTemplate.send(INVENTORY_COMMANDS_TOPIC, command.orderId(), command)
+        backpressure.onReserveCommandSent(command.orderId());
+        kafkaTemplate.send(record(INVENTORY_COMMANDS_TOPIC, command.orderId(), command))
             .whenComplete((result, ex) -> {
                 if (ex != null) {
+                    backpressure.onReserveCommandSettled(command.orderId());
                     log.error("Failed to publish ReserveInventoryCommand for orderId: {}", command.orderId(), ex);
                 } else {
                     log.debug("ReserveInventoryCommand published successfully for orderId: {}", command.orderId());
@@ -36,7 +45,7 @@ public class CommandPublisher {
     
     public void publishProcessPaymentCommand(ProcessPaymentCommand command) {
         log.info("Publishing ProcessPaymentCommand for orderId: {}", command.orderId());
-        kafkaTemplate.send(PAYMENT_COMMANDS_TOPIC, command.orderId(), command)
+        kafkaTemplate.send(record(PAYMENT_COMMANDS_TOPIC, command.orderId(), command))
             .whenComplete((result, ex) -> {
                 if (ex != null) {
                     log.error("Failed to publish ProcessPaymentCommand for orderId: {}", command.orderId(), ex);
@@ -48,7 +57,7 @@ public class CommandPublisher {
     
     public void publishConfirmOrderCommand(ConfirmOrderCommand command) {
         log.info("Publishing ConfirmOrderCommand for orderId: {}", command.orderId());
-        kafkaTemplate.send(ORDER_COMMANDS_TOPIC, command.orderId(), command)
+        kafkaTemplate.send(record(ORDER_COMMANDS_TOPIC, command.orderId(), command))
             .whenComplete((result, ex) -> {
                 if (ex != null) {
                     log.error("Failed to publish ConfirmOrderCommand for orderId: {}", command.orderId(), ex);
@@ -60,7 +69,7 @@ public class CommandPublisher {
     
     public void publishCompensateInventoryCommand(CompensateInventoryCommand command) {
         log.info("Publishing CompensateInventoryCommand for orderId: {}", command.orderId());
-        kafkaTemplate.send(INVENTORY_COMMANDS_TOPIC, command.orderId(), command)
+        kafkaTemplate.send(record(INVENTORY_COMMANDS_TOPIC, command.orderId(), command))
             .whenComplete((result, ex) -> {
                 if (ex != null) {
                     log.error("Failed to publish CompensateInventoryCommand for orderId: {}", command.orderId(), ex);
@@ -69,4 +78,41 @@ public class CommandPublisher {
                 }
             });
     }
+    
+    public void publishBulkCompensateInventoryCommand(BulkCompensateInventoryCommand command) {
+        log.info("Publishing BulkCompensateInventoryCommand {} for {} orders", command.batchId(), command.orderIds().size());
+        kafkaTemplate.send(record(INVENTORY_COMMANDS_TOPIC, command.batchId(), command))
+            .whenComplete((result, ex) -> {
+                if (ex != null) {
+                    log.error("Failed to publish BulkCompensateInventoryCommand {}", command.batchId(), ex);
+                } else {
+                    log.debug("BulkCompensateInventoryCommand {} published successfully", command.batchId());
+                }
+            });
+    }
+    
+    /**
+     * Announce the terminal outcome of a saga so the order service can answer requests waiting for it.
+     */
+    public void publishSagaOutcome(OrderSagaOutcomeEventDTO event) {
+        log.info("Publishing saga outcome {} for orderId: {}", event.getOutcome(), event.getOrderId());
+        kafkaTemplate.send(EventHeaders.record(ORDER_EVENTS_TOPIC, event.getOrderId(), (Object) event,
+                event.getEventType(), event.getEventType() + ":" + event.getOrderId()))
+            .whenComplete((result, ex) -> {
+                if (ex != null) {
+                    log.error("Failed to publish saga outcome for orderId: {}", event.getOrderId(), ex);
+                } else {
+                    log.debug("Saga outcome published successfully for orderId: {}", event.getOrderId());
+                }
+            });
+    }
+    
+    /**
+     * Commands carry their simple class name in the event-type header so consumers can route without parsing,
+     * and a deterministic id ({@code <type>:<key>}) so a command re-sent for the same order is deduplicated.
+     */
+    private ProducerRecord<String, Object> record(String topic, String key, Object command) {
+        String commandType = command.getClass().getSimpleName();
+        return EventHeaders.record(topic, key, command, commandType, commandType + ":" + key);
+    }
 }
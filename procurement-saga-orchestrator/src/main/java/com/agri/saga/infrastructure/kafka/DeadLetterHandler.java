@@ -0,0 +1,36 @@
+package com.agri.saga.infrastructure.kafka;
+
+import com.agri.saga.observability.SagaMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Terminal handler for records that exhausted their retry topics.
+ * Records stay on the DLT and can be replayed in bulk through the {@code dltreplay} actuator endpoint.
+ */
+@Slf4j
+@Component("deadLetterHandler")
+public class DeadLetterHandler {
+    
+    private final SagaMetrics metrics;
+    
+    public DeadLetterHandler(SagaMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    public void handle(ConsumerRecord<String, String> record) {
+        log.error("Dead-lettered record on {} for key: {} after exhausting retries. Cause: {}",
+            record.topic(), record.key(), headerValue(record, KafkaHeaders.DLT_EXCEPTION_MESSAGE));
+        metrics.incDeadLetter(record.topic());
+    }
+    
+    private String headerValue(ConsumerRecord<String, String> record, String key) {
+        Header header = record.headers().lastHeader(key);
+        return header == null ? "unknown" : new String(header.value(), StandardCharsets.UTF_8);
+    }
+}
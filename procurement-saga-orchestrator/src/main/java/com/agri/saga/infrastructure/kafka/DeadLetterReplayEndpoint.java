@@ -0,0 +1,36 @@
+package com.agri.saga.infrastructure.kafka;
+
+import com.agri.common.kafka.DeadLetterReplayer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint for bulk DLT replay:
+ * {@code POST /actuator/dltreplay {"topic": "inventory.events", "maxRecords": 1000}}.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "dltreplay")
+public class DeadLetterReplayEndpoint {
+    
+    private static final int DEFAULT_MAX_RECORDS = 1000;
+    
+    private final DeadLetterReplayer replayer;
+    
+    public DeadLetterReplayEndpoint(DeadLetterReplayer replayer) {
+        this.replayer = replayer;
+    }
+    
+    @WriteOperation
+    public DeadLetterReplayer.ReplayResult replay(String topic, @Nullable Integer maxRecords) {
+        int limit = maxRecords == null ? DEFAULT_MAX_RECORDS : maxRecords;
+        log.info("Replaying up to {} dead-lettered records for topic: {}", limit, topic);
+        DeadLetterReplayer.ReplayResult result = replayer.replay(topic, limit);
+        log.info("Replayed {} records from {} to {} ({} remaining)",
+            result.replayed(), result.deadLetterTopic(), result.targetTopic(), result.remaining());
+        return result;
+    }
+}
@@ -1,119 +1,163 @@
 package com.agri.saga.infrastructure.kafka;
 
+import com.agri.common.inbox.Inbox;
+import com.agri.common.kafka.EventTypeDispatcher;
 import com.agri.saga.application.SagaOrchestrator;
+import com.agri.saga.application.admission.SagaAdmissionScheduler;
 import com.agri.saga.event.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
 
+/**
+ * Kafka consumers for all events driving the saga.
+ * New orders go through the {@link SagaAdmissionScheduler}; all other events go straight to the orchestrator.
+ * Records are routed on their event-type header; events the saga does not react to are skipped
+ * without deserializing the payload. Both the saga's own event names and the producers' class
+ * names are accepted as type ids. Handled records go through the {@link Inbox}, so a redelivered
+ * or re-published event is applied once.
+ * Failed records are retried out of band through delayed retry topics and finally
+ * dead-lettered (see {@link KafkaConfig#sagaRetryTopicConfiguration}), so a failing
+ * record never blocks its partition.
+ */
 @Slf4j
 @Component
 public class EventListener {
     
-    private final SagaOrchestrator sagaOrchestrator;
+    /**
+     * The per-topic listeners run unless the RocksDB saga store is used, which consumes all
+     * input topics through {@link PartitionedEventListener} instead.
+     */
+    static final String SPLIT_LISTENERS = "#{'${procurement.saga.store.type:jpa}' != 'rocksdb'}";
     
-    public EventListener(SagaOrchestrator sagaOrchestrator) {
-        this.sagaOrchestrator = sagaOrchestrator;
+    private final EventTypeDispatcher orderCreatedDispatcher;
+    private final EventTypeDispatcher inventoryDispatcher;
+    private final EventTypeDispatcher paymentDispatcher;
+    private final EventTypeDispatcher orderDispatcher;
+    private final Inbox inbox;
+    
+    public EventListener(SagaOrchestrator sagaOrchestrator, SagaAdmissionScheduler admissionScheduler,
+                         CommandBackpressure backpressure, ObjectProvider<Inbox> inbox, ObjectMapper objectMapper) {
+        this.inbox = inbox.getIfAvailable();
+        this.orderCreatedDispatcher = EventTypeDispatcher.builder(objectMapper)
+            .on(OrderCreatedEvent.class, event -> {
+                log.info("Received OrderCreatedEvent for orderId: {}", event.getOrderId());
+                admissionScheduler.submit(event);
+            }, "OrderCreatedEvent", "OrderCreated")
+            .build();
+        
+        this.inventoryDispatcher = EventTypeDispatcher.builder(objectMapper)
+            .on(InventoryReservedEvent.class, event -> {
+                log.info("Received InventoryReservedEvent for orderId: {}", event.getOrderId());
+                backpressure.onReserveCommandSettled(event.getOrderId());
+                sagaOrchestrator.handleInventoryReserved(event);
+            }, "InventoryReservedEvent", "InventoryReserved")
+            .on(InventoryReservationFailedEvent.class, event -> {
+                log.info("Received InventoryReservationFailedEvent for orderId: {}", event.getOrderId());
+                backpressure.onReserveCommandSettled(event.getOrderId());
+                sagaOrchestrator.handleInventoryReservationFailed(event);
+            }, "InventoryReservationFailedEvent", "InventoryReservationFailed")
+            .on(InventoryHoldExpiredEvent.class, event -> {
+                log.info("Received InventoryHoldExpiredEvent for orderId: {}", event.getOrderId());
+                sagaOrchestrator.handleInventoryHoldExpired(event);
+            }, "InventoryHoldExpiredEvent", "InventoryHoldExpired")
+            .build();
+        
+        this.paymentDispatcher = EventTypeDispatcher.builder(objectMapper)
+            .on(PaymentProcessedEvent.class, event -> {
+                log.info("Received PaymentProcessedEvent for orderId: {}", event.getOrderId());
+                sagaOrchestrator.handlePaymentProcessed(event);
+            }, "PaymentProcessedEvent", "PaymentProcessed")
+            .on(PaymentFailedEvent.class, event -> {
+                log.info("Received PaymentFailedEvent for orderId: {}", event.getOrderId());
+                sagaOrchestrator.handlePaymentFailed(event);
+            }, "PaymentFailedEvent", "PaymentFailed")
+            .build();
+        
+        this.orderDispatcher = EventTypeDispatcher.builder(objectMapper)
+            .on(OrderConfirmedEvent.class, event -> {
+                log.info("Received OrderConfirmedEvent for orderId: {}", event.getOrderId());
+                sagaOrchestrator.handleOrderConfirmed(event);
+            }, "OrderConfirmedEvent", "OrderConfirmed")
+            .build();
     }
     
     @KafkaListener(
         topics = "procurement.procurementorder.events",
         groupId = "saga-orchestrator-group",
-        containerFactory = "kafkaListenerContainerFactory"
+        containerFactory = "kafkaListenerContainerFactory",
+        autoStartup = SPLIT_LISTENERS
     )
-    @Retryable(
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
-    public void handleOrderCreatedEvent(OrderCreatedEvent event) {
-        log.info("Received OrderCreatedEvent for orderId: {}", event.getOrderId());
-        try {
-            sagaOrchestrator.startSaga(event);
-        } catch (Exception e) {
-            log.error("Error processing OrderCreatedEvent for orderId: {}", event.getOrderId(), e);
-            throw e;
-        }
+    public void handleOrderCreatedEvent(ConsumerRecord<String, String> record) {
+        dispatch(orderCreatedDispatcher, record, "order");
     }
     
     @KafkaListener(
         topics = "inventory.events",
         groupId = "saga-orchestrator-group",
-        containerFactory = "kafkaListenerContainerFactory"
-    )
-    @Retryable(
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 1000, multiplier = 2)
+        containerFactory = "kafkaListenerContainerFactory",
+        autoStartup = SPLIT_LISTENERS
     )
-    public void handleInventoryEvents(Object event) {
-        log.debug("Received inventory event: {}", event.getClass().getSimpleName());
-        
-        try {
-            if (event instanceof InventoryReservedEvent inventoryReservedEvent) {
-                log.info("Received InventoryReservedEvent for orderId: {}", inventoryReservedEvent.getOrderId());
-                sagaOrchestrator.handleInventoryReserved(inventoryReservedEvent);
-            } else if (event instanceof InventoryReservationFailedEvent failedEvent) {
-                log.info("Received InventoryReservationFailedEvent for orderId: {}", failedEvent.getOrderId());
-                sagaOrchestrator.handleInventoryReservationFailed(failedEvent);
-            } else {
-                log.debug("Ignoring unhandled inventory event type: {}", event.getClass().getSimpleName());
-            }
-        } catch (Exception e) {
-            log.error("Error processing inventory event", e);
-            throw e;
-        }
+    public void handleInventoryEvents(ConsumerRecord<String, String> record) {
+        dispatch(inventoryDispatcher, record, "inventory");
     }
     
     @KafkaListener(
         topics = "payment.events",
         groupId = "saga-orchestrator-group",
-        containerFactory = "kafkaListenerContainerFactory"
+        containerFactory = "kafkaListenerContainerFactory",
+        autoStartup = SPLIT_LISTENERS
     )
-    @Retryable(
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
-    public void handlePaymentEvents(Object event) {
-        log.debug("Received payment event: {}", event.getClass().getSimpleName());
-        
-        try {
-            if (event instanceof PaymentProcessedEvent paymentProcessedEvent) {
-                log.info("Received PaymentProcessedEvent for orderId: {}", paymentProcessedEvent.getOrderId());
-                sagaOrchestrator.handlePaymentProcessed(paymentProcessedEvent);
-            } else if (event instanceof PaymentFailedEvent failedEvent) {
-                log.info("Received PaymentFailedEvent for orderId: {}", failedEvent.getOrderId());
-                sagaOrchestrator.handlePaymentFailed(failedEvent);
-            } else {
-                log.debug("Ignoring unhandled payment event type: {}", event.getClass().getSimpleName());
-            }
-        } catch (Exception e) {
-            log.error("Error processing payment event", e);
-            throw e;
-        }
+    public void handlePaymentEvents(ConsumerRecord<String, String> record) {
+        dispatch(paymentDispatcher, record, "payment");
     }
     
     @KafkaListener(
         topics = "order.events",
         groupId = "saga-orchestrator-group",
-        containerFactory = "kafkaListenerContainerFactory"
-    )
-    @Retryable(
-        maxAttempts = 3,
-        backoff = @Backoff(delay = 1000, multiplier = 2)
+        containerFactory = "kafkaListenerContainerFactory",
+        autoStartup = SPLIT_LISTENERS
     )
-    public void handleOrderEvents(Object event) {
-        log.debug("Received order event: {}", event.getClass().getSimpleName());
-        
+    public void handleOrderEvents(ConsumerRecord<String, String> record) {
+        dispatch(orderDispatcher, record, "order");
+    }
+    
+    /**
+     * Route a record from any saga input topic to its handler.
+     */
+    void route(ConsumerRecord<String, String> record) {
+        switch (record.topic()) {
+            case "procurement.procurementorder.events" -> handleOrderCreatedEvent(record);
+            case "inventory.events" -> handleInventoryEvents(record);
+            case "payment.events" -> handlePaymentEvents(record);
+            case "order.events" -> handleOrderEvents(record);
+            default -> log.warn("Ignoring record from unexpected topic: {}", record.topic());
+        }
+    }
+    
+    private void dispatch(EventTypeDispatcher dispatcher, ConsumerRecord<String, String> record, String source) {
         try {
-            if (event instanceof OrderConfirmedEvent orderConfirmedEvent) {
-                log.info("Received OrderConfirmedEvent for orderId: {}", orderConfirmedEvent.getOrderId());
-                sagaOrchestrator.handleOrderConfirmed(orderConfirmedEvent);
-            } else {
-                log.debug("Ignoring unhandled order event type: {}", event.getClass().getSimpleName());
+            if (!dispatcher.handles(record)) {
+                log.debug("Ignoring unhandled {} event type: {}", source, EventTypeDispatcher.eventType(record));
+                return;
+            }
+            Runnable handler = () -> {
+                if (!dispatcher.dispatch(record)) {
+                    log.debug("Ignoring unhandled {} event type: {}", source, EventTypeDispatcher.eventType(record));
+                }
+            };
+            if (inbox == null) {
+                handler.run();
+            } else if (!inbox.process(record, handler)) {
+                log.info("Skipping duplicate {} event {} for key: {}",
+                    source, EventTypeDispatcher.eventType(record), record.key());
             }
         } catch (Exception e) {
-            log.error("Error processing order event", e);
+            log.error("Error processing {} event {} for key: {}", 
+                source, EventTypeDispatcher.eventType(record), record.key(), e);
             throw e;
         }
     }
@@ -1,23 +1,28 @@
 package com.agri.saga.infrastructure.kafka;
 
+import com.agri.common.kafka.DeadLetterReplayer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
-import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.retrytopic.DltStrategy;
+import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @EnableKafka
@@ -30,6 +35,18 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
     
+    @Value("${procurement.saga.retry.attempts:4}")
+    private int retryAttempts;
+    
+    @Value("${procurement.saga.retry.initial-delay:1000}")
+    private long retryInitialDelay;
+    
+    @Value("${procurement.saga.retry.multiplier:5.0}")
+    private double retryMultiplier;
+    
+    @Value("${procurement.saga.retry.max-delay:30000}")
+    private long retryMaxDelay;
+    
     @Bean
     public ObjectMapper objectMapper() {
         ObjectMapper mapper = new ObjectMapper();
@@ -59,30 +76,45 @@ public class KafkaConfig {
         return new KafkaTemplate<>(producerFactory);
     }
     
+    /**
+     * Template used by the retry-topic machinery to forward failed records unchanged.
+     * Consumed payloads are raw JSON strings, so they must not go through the JSON serializer again.
+     */
+    @Bean
+    public KafkaTemplate<String, String> retryKafkaTemplate() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(configProps));
+    }
+    
+    /**
+     * Values are consumed as raw JSON strings; {@link EventListener} routes them on the
+     * event-type header and only deserializes the events it handles. Events written in aborted Kafka
+     * transactions (the inventory service replies transactionally) are never read. Every saga listener
+     * factory, the RocksDB store's partitioned one included, is built on this factory.
+     */
     @Bean
-    public ConsumerFactory<String, Object> consumerFactory(ObjectMapper objectMapper) {
+    public ConsumerFactory<String, String> consumerFactory() {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
-        props.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class.getName());
-        props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.agri.saga.event,com.agri.common.event");
-        props.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, true);
-        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.agri.common.event.DomainEvent");
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
         props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 10);
-        
-        DefaultKafkaConsumerFactory<String, Object> factory = new DefaultKafkaConsumerFactory<>(props);
-        factory.setValueDeserializer(new ErrorHandlingDeserializer<>(new JsonDeserializer<>(objectMapper)));
-        return factory;
+        return new DefaultKafkaConsumerFactory<>(props);
     }
     
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, Object> kafkaListenerContainerFactory(
-            ConsumerFactory<String, Object> consumerFactory) {
-        ConcurrentKafkaListenerContainerFactory<String, Object> factory = 
+    public ConcurrentKafkaListenerContainerFactory<String, String> kafkaListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory = 
             new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory);
         factory.setConcurrency(3);
@@ -91,4 +123,38 @@ public class KafkaConfig {
         );
         return factory;
     }
+    
+    /**
+     * Non-blocking retries for every saga input topic.
+     * A failed record is forwarded to {@code <topic>-retry-0..n} with growing delays
+     * (1s, 5s, 25s by default) and finally to {@code <topic>-dlt}, while the main
+     * topic keeps flowing. Unreadable payloads go straight to the DLT.
+     * Not used with the RocksDB saga store, which retries in place (see {@code RocksDbStoreConfig}).
+     */
+    @Bean
+    @ConditionalOnProperty(name = "procurement.saga.store.type", havingValue = "jpa", matchIfMissing = true)
+    public RetryTopicConfiguration sagaRetryTopicConfiguration(KafkaTemplate<String, String> retryKafkaTemplate) {
+        return RetryTopicConfigurationBuilder
+            .newInstance()
+            .maxAttempts(retryAttempts)
+            .exponentialBackoff(retryInitialDelay, retryMultiplier, retryMaxDelay)
+            .suffixTopicsWithIndexValues()
+            .dltSuffix(DeadLetterReplayer.DLT_SUFFIX)
+            .dltHandlerMethod("deadLetterHandler", "handle")
+            .dltProcessingFailureStrategy(DltStrategy.FAIL_ON_ERROR)
+            .notRetryOn(SerializationException.class)
+            .traversingCauses()
+            .includeTopics(List.of(
+                "procurement.procurementorder.events",
+                "inventory.events",
+                "payment.events",
+                "order.events"
+            ))
+            .create(retryKafkaTemplate);
+    }
+    
+    @Bean
+    public DeadLetterReplayer deadLetterReplayer() {
+        return new DeadLetterReplayer(bootstrapServers, groupId + "-dlt-replay");
+    }
 }
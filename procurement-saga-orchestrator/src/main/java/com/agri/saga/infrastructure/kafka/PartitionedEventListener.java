@@ -0,0 +1,35 @@
+package com.agri.saga.infrastructure.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single consumer for all saga input topics, used with the RocksDB saga store.
+ * Subscribing to every input topic from one listener (with the range assignor) keeps partition
+ * {@code p} of all topics on the same instance as the local state of partition {@code p}.
+ */
+@Component
+@ConditionalOnProperty(name = "procurement.saga.store.type", havingValue = "rocksdb")
+public class PartitionedEventListener {
+    
+    public static final String LISTENER_ID = "saga-partitioned-events";
+    
+    private final EventListener eventListener;
+    
+    public PartitionedEventListener(EventListener eventListener) {
+        this.eventListener = eventListener;
+    }
+    
+    @KafkaListener(
+        id = LISTENER_ID,
+        idIsGroup = false,
+        topics = {"procurement.procurementorder.events", "inventory.events", "payment.events", "order.events"},
+        groupId = "saga-orchestrator-group",
+        containerFactory = "partitionedListenerContainerFactory"
+    )
+    public void handle(ConsumerRecord<String, String> record) {
+        eventListener.route(record);
+    }
+}
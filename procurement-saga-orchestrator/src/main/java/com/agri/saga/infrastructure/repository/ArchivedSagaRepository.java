@@ -0,0 +1,15 @@
+package com.agri.saga.infrastructure.repository;
+
+import com.agri.saga.domain.ArchivedProcurementSaga;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ArchivedSagaRepository extends JpaRepository<ArchivedProcurementSaga, String> {
+    
+    Optional<ArchivedProcurementSaga> findFirstByOrderId(String orderId);
+    
+    boolean existsByOrderId(String orderId);
+}
@@ -1,13 +1,104 @@
 package com.agri.saga.infrastructure.repository;
 
+import com.agri.saga.domain.AdmissionLane;
 import com.agri.saga.domain.ProcurementSaga;
+import com.agri.saga.domain.SagaStatus;
+import com.agri.saga.domain.SagaStep;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface SagaRepository extends JpaRepository<ProcurementSaga, String> {
     
     Optional<ProcurementSaga> findByOrderId(String orderId);
+    
+    @Query("SELECT s.status AS status, s.currentStep AS step, COUNT(s) AS count " +
+           "FROM ProcurementSaga s WHERE s.status NOT IN :excluded GROUP BY s.status, s.currentStep")
+    List<ActiveSagaCount> countByStatusAndStepExcluding(@Param("excluded") Collection<SagaStatus> excluded);
+    
+    /**
+     * Sagas occupying an admission slot: admitted, not terminal, and updated since {@code activeSince}.
+     * Sagas stuck longer than that no longer hold a slot.
+     */
+    long countByStatusInAndUpdatedAtAfter(Collection<SagaStatus> statuses, Instant activeSince);
+    
+    List<QueuedSaga> findByStatusAndQueuedAtBeforeOrderByQueuedAtAsc(SagaStatus status, Instant queuedBefore);
+    
+    /**
+     * Admit a QUEUED saga. Returns 0 if the saga was already admitted, e.g. by another instance.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ProcurementSaga s SET s.status = com.agri.saga.domain.SagaStatus.STARTED, " +
+           "s.stepStartedAt = :now, s.updatedAt = :now, s.version = s.version + 1 " +
+           "WHERE s.id = :id AND s.status = com.agri.saga.domain.SagaStatus.QUEUED")
+    int markAdmitted(@Param("id") String id, @Param("now") Instant now);
+    
+    /**
+     * Lock up to {@code batchSize} sagas waiting for bulk compensation, oldest compensation first.
+     * Only deferred compensations are ever committed as COMPENSATING with inventory reserved.
+     * Rows locked by a concurrent drain are skipped.
+     */
+    @Query(value = """
+        SELECT * FROM procurement_sagas
+        WHERE status = 'COMPENSATING' AND inventory_reserved = true
+        ORDER BY compensation_started_at
+        LIMIT :batchSize
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<ProcurementSaga> lockPendingCompensations(@Param("batchSize") int batchSize);
+    
+    /**
+     * Move up to {@code batchSize} terminal sagas last updated before {@code cutoff}
+     * into {@code procurement_sagas_archive} in a single statement.
+     * Rows locked by a concurrent archiver are skipped, so several instances can run this safely.
+     *
+     * @return the number of sagas archived
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        WITH moved AS (
+            DELETE FROM procurement_sagas
+            WHERE id IN (
+                SELECT id FROM procurement_sagas
+                WHERE status IN ('COMPLETED', 'FAILED') AND updated_at < :cutoff
+                ORDER BY updated_at
+                LIMIT :batchSize
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING *
+        )
+        INSERT INTO procurement_sagas_archive (
+            id, order_id, buyer_id, total_amount, status, current_step,
+            inventory_reserved, payment_processed, failure_reason,
+            created_at, updated_at, version, archived_at
+        )
+        SELECT id, order_id, buyer_id, total_amount, status, current_step,
+               inventory_reserved, payment_processed, failure_reason,
+               created_at, updated_at, version, now()
+        FROM moved
+        """, nativeQuery = true)
+    int archiveTerminalSagas(@Param("cutoff") Instant cutoff, @Param("batchSize") int batchSize);
+    
+    interface QueuedSaga {
+        String getId();
+        String getBuyerId();
+        AdmissionLane getAdmissionLane();
+        Instant getQueuedAt();
+    }
+    
+    interface ActiveSagaCount {
+        SagaStatus getStatus();
+        SagaStep getStep();
+        Long getCount();
+    }
 }
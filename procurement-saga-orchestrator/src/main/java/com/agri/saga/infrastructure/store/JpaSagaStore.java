@@ -0,0 +1,60 @@
+package com.agri.saga.infrastructure.store;
+
+import com.agri.saga.application.SagaQueryService;
+import com.agri.saga.domain.ProcurementSaga;
+import com.agri.saga.domain.SagaStatus;
+import com.agri.saga.domain.SagaStep;
+import com.agri.saga.infrastructure.repository.SagaRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Default store: saga state lives in {@code procurement_sagas}.
+ */
+@Component
+@ConditionalOnProperty(name = "procurement.saga.store.type", havingValue = "jpa", matchIfMissing = true)
+public class JpaSagaStore implements SagaStore {
+    
+    private static final List<SagaStatus> TERMINAL_STATUSES = List.of(SagaStatus.COMPLETED, SagaStatus.FAILED);
+    
+    private final SagaRepository sagaRepository;
+    private final SagaQueryService sagaQueryService;
+    
+    public JpaSagaStore(SagaRepository sagaRepository, SagaQueryService sagaQueryService) {
+        this.sagaRepository = sagaRepository;
+        this.sagaQueryService = sagaQueryService;
+    }
+    
+    @Override
+    public Optional<ProcurementSaga> findByOrderId(String orderId) {
+        return sagaRepository.findByOrderId(orderId);
+    }
+    
+    @Override
+    public boolean existsByOrderId(String orderId) {
+        return sagaQueryService.existsByOrderId(orderId);
+    }
+    
+    @Override
+    public void save(ProcurementSaga saga) {
+        sagaRepository.save(saga);
+    }
+    
+    /**
+     * The hot table only holds in-flight sagas (terminal ones are archived), so the grouped count stays cheap.
+     */
+    @Override
+    public Map<SagaStatus, Map<SagaStep, Long>> countActive() {
+        Map<SagaStatus, Map<SagaStep, Long>> counts = new EnumMap<>(SagaStatus.class);
+        for (SagaRepository.ActiveSagaCount row : sagaRepository.countByStatusAndStepExcluding(TERMINAL_STATUSES)) {
+            counts.computeIfAbsent(row.getStatus(), status -> new EnumMap<>(SagaStep.class))
+                .put(row.getStep(), row.getCount());
+        }
+        return counts;
+    }
+}
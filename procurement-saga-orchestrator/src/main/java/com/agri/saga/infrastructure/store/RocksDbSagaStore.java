@@ -0,0 +1,381 @@
+package com.agri.saga.infrastructure.store;
+
+import com.agri.saga.application.SagaQueryService;
+import com.agri.saga.domain.ProcurementSaga;
+import com.agri.saga.domain.SagaStatus;
+import com.agri.saga.domain.SagaStep;
+import com.agri.saga.infrastructure.repository.SagaRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.utils.Utils;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Saga state in local RocksDB stores, one per owned partition, in the style of a Kafka Streams state store.
+ *
+ * In-flight sagas are keyed by orderId. The saga input topics, all keyed by orderId, and the compacted
+ * changelog topic {@value #CHANGELOG_TOPIC} must have the same number of partitions, so partition
+ * {@code p} of every input topic and of the changelog belongs to the same instance (the partitioned
+ * listener uses the range assignor). Every write goes to the changelog first and, once the changelog
+ * has acknowledged it, to the local store; a write the changelog does not acknowledge within
+ * {@code procurement.saga.store.changelog-timeout} fails the record, so its offset is never committed
+ * ahead of its state. When a partition is assigned its store is restored from the changelog, starting
+ * at the checkpoint written when it was last closed cleanly, or from the beginning otherwise.
+ *
+ * Sagas reaching COMPLETED or FAILED are written through to Postgres, so lookups, archival and the
+ * order service's queries keep working, and removed from the local store with a changelog tombstone.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "procurement.saga.store.type", havingValue = "rocksdb")
+public class RocksDbSagaStore implements SagaStore, ConsumerAwareRebalanceListener {
+
+    public static final String CHANGELOG_TOPIC = "procurement.saga.state-changelog";
+
+    private static final String CHECKPOINT_FILE = ".checkpoint";
+
+    static {
+        RocksDB.loadLibrary();
+    }
+
+    private final Map<Integer, PartitionStore> stores = new ConcurrentHashMap<>();
+    private final KafkaTemplate<String, String> changelogTemplate;
+    private final SagaRepository sagaRepository;
+    private final SagaQueryService sagaQueryService;
+    private final ObjectMapper objectMapper;
+    private final String bootstrapServers;
+    private final Path stateDir;
+    private final int partitionCount;
+    private final Duration changelogTimeout;
+
+    public RocksDbSagaStore(@Qualifier("sagaChangelogTemplate") KafkaTemplate<String, String> changelogTemplate,
+                            SagaRepository sagaRepository,
+                            SagaQueryService sagaQueryService,
+                            ObjectMapper objectMapper,
+                            @Value("${spring.kafka.bootstrap-servers}") String bootstrapServers,
+                            @Value("${procurement.saga.store.state-dir:/tmp/saga-state}") Path stateDir,
+                            @Value("${procurement.saga.store.partitions:3}") int partitionCount,
+                            @Value("${procurement.saga.store.changelog-timeout:10s}") Duration changelogTimeout) {
+        this.changelogTemplate = changelogTemplate;
+        this.sagaRepository = sagaRepository;
+        this.sagaQueryService = sagaQueryService;
+        this.objectMapper = objectMapper.copy().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.bootstrapServers = bootstrapServers;
+        this.stateDir = stateDir;
+        this.partitionCount = partitionCount;
+        this.changelogTimeout = changelogTimeout;
+    }
+
+    @Override
+    public Optional<ProcurementSaga> findByOrderId(String orderId) {
+        byte[] value = owner(orderId).get(orderId);
+        return value == null ? Optional.empty() : Optional.of(read(value));
+    }
+
+    @Override
+    public boolean existsByOrderId(String orderId) {
+        return owner(orderId).get(orderId) != null || sagaQueryService.existsByOrderId(orderId);
+    }
+
+    @Override
+    public void save(ProcurementSaga saga) {
+        Instant now = Instant.now();
+        if (saga.getCreatedAt() == null) {
+            saga.setCreatedAt(now);
+        }
+        saga.setUpdatedAt(now);
+
+        PartitionStore store = owner(saga.getOrderId());
+        if (saga.getStatus() == SagaStatus.COMPLETED || saga.getStatus() == SagaStatus.FAILED) {
+            sagaRepository.save(saga);
+            sendToChangelog(store, saga.getOrderId(), null);
+            store.delete(saga.getOrderId());
+        } else {
+            String json = write(saga);
+            sendToChangelog(store, saga.getOrderId(), json);
+            store.put(saga.getOrderId(), json);
+        }
+    }
+
+    /**
+     * In-flight sagas of the partitions this instance owns; every instance reports its own share.
+     */
+    @Override
+    public Map<SagaStatus, Map<SagaStep, Long>> countActive() {
+        Map<SagaStatus, Map<SagaStep, Long>> counts = new EnumMap<>(SagaStatus.class);
+        for (PartitionStore store : stores.values()) {
+            store.forEachValue(value -> {
+                ProcurementSaga saga = read(value);
+                counts.computeIfAbsent(saga.getStatus(), status -> new EnumMap<>(SagaStep.class))
+                    .merge(saga.getCurrentStep(), 1L, Long::sum);
+            });
+        }
+        return counts;
+    }
+
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        partitionNumbers(partitions).forEach(partition -> stores.computeIfAbsent(partition, this::restore));
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        changelogTemplate.flush();
+    }
+
+    @Override
+    public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        partitionNumbers(partitions).forEach(this::close);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+        partitionNumbers(partitions).forEach(this::close);
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        Set.copyOf(stores.keySet()).forEach(this::close);
+    }
+
+    private PartitionStore owner(String orderId) {
+        int partition = Utils.toPositive(Utils.murmur2(orderId.getBytes(StandardCharsets.UTF_8))) % partitionCount;
+        PartitionStore store = stores.get(partition);
+        if (store == null) {
+            throw new IllegalStateException(String.format(
+                "Saga state partition %d (orderId %s) is not assigned to this instance. " +
+                "Saga input topics must be co-partitioned with %s.", partition, orderId, CHANGELOG_TOPIC));
+        }
+        return store;
+    }
+
+    /**
+     * Write to the changelog and wait for the acknowledgement; throws if it does not arrive, so the
+     * record is retried before its offset is committed.
+     */
+    private void sendToChangelog(PartitionStore store, String orderId, String value) {
+        try {
+            SendResult<String, String> result = changelogTemplate
+                .send(new ProducerRecord<>(CHANGELOG_TOPIC, store.partition, orderId, value))
+                .get(changelogTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            store.nextOffset.accumulateAndGet(result.getRecordMetadata().offset() + 1, Math::max);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            store.changelogFailed.set(true);
+            throw new IllegalStateException("Interrupted writing saga state for orderId " + orderId, e);
+        } catch (ExecutionException | TimeoutException e) {
+            store.changelogFailed.set(true);
+            throw new IllegalStateException("Failed to write saga state for orderId " + orderId + " to the changelog", e);
+        }
+    }
+
+    /**
+     * Open the store of a partition and catch it up with the changelog.
+     * Without a checkpoint the local files may be stale, so they are discarded and replayed in full.
+     */
+    private PartitionStore restore(int partition) {
+        Path dir = stateDir.resolve(Integer.toString(partition));
+        Path dbPath = dir.resolve("db");
+        Path checkpoint = dir.resolve(CHECKPOINT_FILE);
+        Options options = new Options().setCreateIfMissing(true);
+        try {
+            Files.createDirectories(dir);
+            long from = 0;
+            if (Files.exists(checkpoint)) {
+                from = Long.parseLong(Files.readString(checkpoint).trim());
+                Files.delete(checkpoint);
+            } else {
+                RocksDB.destroyDB(dbPath.toString(), options);
+            }
+
+            PartitionStore store = new PartitionStore(partition, options, RocksDB.open(options, dbPath.toString()));
+            long started = System.nanoTime();
+            long restored = replay(store, from);
+            log.info("Restored saga state partition {} from changelog offset {}: {} records in {} ms",
+                partition, from, restored, Duration.ofNanos(System.nanoTime() - started).toMillis());
+            return store;
+        } catch (IOException | RocksDBException e) {
+            options.close();
+            throw new IllegalStateException("Failed to restore saga state partition " + partition, e);
+        }
+    }
+
+    private long replay(PartitionStore store, long from) throws RocksDBException {
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5000);
+
+        TopicPartition changelog = new TopicPartition(CHANGELOG_TOPIC, store.partition);
+        long restored = 0;
+        try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props)) {
+            consumer.assign(List.of(changelog));
+            consumer.seek(changelog, from);
+            long end = consumer.endOffsets(List.of(changelog)).get(changelog);
+            while (consumer.position(changelog) < end) {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(500))) {
+                    if (record.value() == null) {
+                        store.db.delete(key(record.key()));
+                    } else {
+                        store.db.put(key(record.key()), record.value().getBytes(StandardCharsets.UTF_8));
+                    }
+                    restored++;
+                }
+            }
+            store.nextOffset.set(end);
+        }
+        return restored;
+    }
+
+    /**
+     * Close the store of a revoked partition. A checkpoint is only written if every changelog
+     * write was acknowledged; otherwise the next owner of this directory restores from scratch.
+     */
+    private void close(int partition) {
+        PartitionStore store = stores.remove(partition);
+        if (store == null) {
+            return;
+        }
+        changelogTemplate.flush();
+        store.close();
+        if (!store.changelogFailed.get()) {
+            try {
+                Files.writeString(stateDir.resolve(Integer.toString(partition)).resolve(CHECKPOINT_FILE),
+                    Long.toString(store.nextOffset.get()));
+            } catch (IOException e) {
+                log.warn("Failed to write checkpoint for saga state partition {}: {}", partition, e.getMessage());
+            }
+        }
+        log.info("Closed saga state partition {}", partition);
+    }
+
+    private static Set<Integer> partitionNumbers(Collection<TopicPartition> partitions) {
+        return partitions.stream().map(TopicPartition::partition).collect(Collectors.toSet());
+    }
+
+    private static byte[] key(String orderId) {
+        return orderId.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private ProcurementSaga read(byte[] value) {
+        try {
+            return objectMapper.readValue(value, ProcurementSaga.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unreadable saga state", e);
+        }
+    }
+
+    private String write(ProcurementSaga saga) {
+        try {
+            return objectMapper.writeValueAsString(saga);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize saga " + saga.getId(), e);
+        }
+    }
+
+    private static final class PartitionStore {
+
+        private final int partition;
+        private final Options options;
+        private final RocksDB db;
+        private final AtomicLong nextOffset = new AtomicLong();
+        private final AtomicBoolean changelogFailed = new AtomicBoolean();
+        private boolean closed;
+
+        private PartitionStore(int partition, Options options, RocksDB db) {
+            this.partition = partition;
+            this.options = options;
+            this.db = db;
+        }
+
+        byte[] get(String orderId) {
+            try {
+                return db.get(key(orderId));
+            } catch (RocksDBException e) {
+                throw new IllegalStateException("Failed to read saga state for orderId " + orderId, e);
+            }
+        }
+
+        void put(String orderId, String json) {
+            try {
+                db.put(key(orderId), json.getBytes(StandardCharsets.UTF_8));
+            } catch (RocksDBException e) {
+                throw new IllegalStateException("Failed to write saga state for orderId " + orderId, e);
+            }
+        }
+
+        void delete(String orderId) {
+            try {
+                db.delete(key(orderId));
+            } catch (RocksDBException e) {
+                throw new IllegalStateException("Failed to delete saga state for orderId " + orderId, e);
+            }
+        }
+
+        /**
+         * Visit every stored saga; does nothing once the store is closed, which may happen concurrently
+         * when the partition is revoked.
+         */
+        synchronized void forEachValue(java.util.function.Consumer<byte[]> action) {
+            if (closed) {
+                return;
+            }
+            try (RocksIterator iterator = db.newIterator()) {
+                for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+                    action.accept(iterator.value());
+                }
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            db.close();
+            options.close();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.agri.saga.infrastructure.store;
+
+import com.agri.common.kafka.DeadLetterReplayer;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.RangeAssignor;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Kafka wiring for {@link RocksDbSagaStore}.
+ *
+ * All saga input topics are consumed by one partitioned listener using the range assignor, so an
+ * instance owns the same partition numbers of every input topic and of the changelog. Non-blocking
+ * retry topics would move a record to a consumer that does not own its saga, so in this mode failed
+ * records are retried in place and then dead-lettered to {@code <topic>-dlt}.
+ *
+ * Admission and bulk compensation work on Postgres rows across all sagas, and the inbox would put a
+ * Postgres write back on every record; none of them is available with this store.
+ */
+@Configuration
+@ConditionalOnProperty(name = "procurement.saga.store.type", havingValue = "rocksdb")
+public class RocksDbStoreConfig {
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    @Value("${procurement.saga.retry.attempts:4}")
+    private int retryAttempts;
+
+    @Value("${procurement.saga.retry.initial-delay:1000}")
+    private long retryInitialDelay;
+
+    @Value("${procurement.saga.retry.multiplier:5.0}")
+    private double retryMultiplier;
+
+    @Value("${procurement.saga.retry.max-delay:30000}")
+    private long retryMaxDelay;
+
+    public RocksDbStoreConfig(@Value("${procurement.saga.admission.enabled:true}") boolean admissionEnabled,
+                              @Value("${procurement.saga.compensation.bulk-enabled:true}") boolean bulkCompensation,
+                              @Value("${procurement.saga.inbox.enabled:true}") boolean inboxEnabled) {
+        if (admissionEnabled || bulkCompensation || inboxEnabled) {
+            throw new IllegalStateException("procurement.saga.store.type=rocksdb requires " +
+                "procurement.saga.admission.enabled=false, procurement.saga.compensation.bulk-enabled=false " +
+                "and procurement.saga.inbox.enabled=false");
+        }
+    }
+
+    @Bean
+    public NewTopic sagaStateChangelogTopic(@Value("${procurement.saga.store.partitions:3}") int partitions,
+                                            @Value("${procurement.saga.store.replicas:1}") int replicas) {
+        return TopicBuilder.name(RocksDbSagaStore.CHANGELOG_TOPIC)
+            .partitions(partitions)
+            .replicas(replicas)
+            .compact()
+            .build();
+    }
+
+    /**
+     * Changelog writes are acknowledged by all in-sync replicas; the store waits for each one before its
+     * record's offset is committed.
+     */
+    @Bean
+    public KafkaTemplate<String, String> sagaChangelogTemplate() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(configProps));
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, String> partitionedListenerContainerFactory(
+            ConsumerFactory<String, String> consumerFactory,
+            RocksDbSagaStore sagaStore,
+            KafkaTemplate<String, String> retryKafkaTemplate) {
+        ConcurrentKafkaListenerContainerFactory<String, String> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory);
+        factory.setConcurrency(3);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.RECORD);
+        factory.getContainerProperties().setConsumerRebalanceListener(sagaStore);
+        factory.getContainerProperties().getKafkaConsumerProperties()
+            .setProperty(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, RangeAssignor.class.getName());
+
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(retryAttempts - 1);
+        backOff.setInitialInterval(retryInitialDelay);
+        backOff.setMultiplier(retryMultiplier);
+        backOff.setMaxInterval(retryMaxDelay);
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(
+            new DeadLetterPublishingRecoverer(retryKafkaTemplate,
+                (record, ex) -> new TopicPartition(record.topic() + DeadLetterReplayer.DLT_SUFFIX, -1)),
+            backOff);
+        errorHandler.addNotRetryableExceptions(SerializationException.class);
+        factory.setCommonErrorHandler(errorHandler);
+        return factory;
+    }
+}
@@ -0,0 +1,33 @@
+package com.agri.saga.infrastructure.store;
+
+import com.agri.saga.domain.ProcurementSaga;
+import com.agri.saga.domain.SagaStatus;
+import com.agri.saga.domain.SagaStep;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Persistence of saga state for the per-step hot path (load by order, save after a transition).
+ *
+ * Selected with {@code procurement.saga.store.type}: {@code jpa} (default) keeps every saga in
+ * Postgres; {@code rocksdb} keeps in-flight sagas in local RocksDB stores backed by a compacted
+ * changelog topic (see {@link RocksDbSagaStore}). Cross-saga queries (admission, bulk compensation,
+ * archival) always go to Postgres through {@code SagaRepository}.
+ */
+public interface SagaStore {
+    
+    Optional<ProcurementSaga> findByOrderId(String orderId);
+    
+    /**
+     * Whether a saga exists for the order, in this store or in the archive.
+     */
+    boolean existsByOrderId(String orderId);
+    
+    void save(ProcurementSaga saga);
+    
+    /**
+     * In-flight (non-terminal) sagas by status and step, for the active saga gauges.
+     */
+    Map<SagaStatus, Map<SagaStep, Long>> countActive();
+}
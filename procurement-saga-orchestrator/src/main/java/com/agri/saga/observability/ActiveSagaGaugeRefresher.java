@@ -0,0 +1,32 @@
+package com.agri.saga.observability;
+
+import com.agri.saga.infrastructure.store.SagaStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically counts in-flight sagas by status and step, in whichever {@link SagaStore} holds them.
+ * With the RocksDB store each instance counts the partitions it owns, so the gauges sum across instances.
+ */
+@Slf4j
+@Component
+public class ActiveSagaGaugeRefresher {
+
+    private final SagaStore sagaStore;
+    private final SagaMetrics metrics;
+
+    public ActiveSagaGaugeRefresher(SagaStore sagaStore, SagaMetrics metrics) {
+        this.sagaStore = sagaStore;
+        this.metrics = metrics;
+    }
+
+    @Scheduled(fixedDelayString = "${procurement.saga.metrics.active-refresh-interval:15000}")
+    public void refresh() {
+        try {
+            metrics.updateActiveSagas(sagaStore.countActive());
+        } catch (Exception e) {
+            log.warn("Failed to refresh active saga gauges: {}", e.getMessage());
+        }
+    }
+}
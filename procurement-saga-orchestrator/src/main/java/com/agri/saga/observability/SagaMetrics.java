@@ -1,23 +1,171 @@
 package com.agri.saga.observability;
 
+import com.agri.saga.domain.AdmissionLane;
+import com.agri.saga.domain.SagaStatus;
+import com.agri.saga.domain.SagaStep;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
 @Component
 public class SagaMetrics {
 
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_FAILURE = "failure";
+
+    private final MeterRegistry registry;
     private final Counter sagasStarted;
     private final Counter sagasFailed;
     private final Counter sagasCompleted;
+    private final Timer compensationDuration;
+    private final DistributionSummary compensationBatchSize;
+    private final MultiGauge activeSagas;
+    private final Map<SagaStep, Map<String, Timer>> stepDurations = new EnumMap<>(SagaStep.class);
+    private final Map<String, Timer> endToEndDurations;
+    private final Map<AdmissionLane, Timer> admissionWaits = new EnumMap<>(AdmissionLane.class);
 
     public SagaMetrics(MeterRegistry registry) {
+        this.registry = registry;
         this.sagasStarted = registry.counter("agri_sagas_started_total");
         this.sagasFailed = registry.counter("agri_sagas_failed_total");
         this.sagasCompleted = registry.counter("agri_sagas_completed_total");
+        this.compensationDuration = Timer.builder("agri_saga_compensation_duration_seconds")
+                .description("Time from the start of compensation until the saga is marked FAILED")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.compensationBatchSize = DistributionSummary.builder("agri_saga_compensation_batch_size")
+                .description("Sagas compensated by one BulkCompensateInventoryCommand")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.activeSagas = MultiGauge.builder("agri_sagas_active")
+                .description("Sagas in the hot table that have not reached a terminal state")
+                .register(registry);
+        for (SagaStep step : SagaStep.values()) {
+            stepDurations.put(step, Map.of(
+                    OUTCOME_SUCCESS, stepTimer(step, OUTCOME_SUCCESS),
+                    OUTCOME_FAILURE, stepTimer(step, OUTCOME_FAILURE)));
+        }
+        this.endToEndDurations = Map.of(
+                OUTCOME_SUCCESS, endToEndTimer(OUTCOME_SUCCESS),
+                OUTCOME_FAILURE, endToEndTimer(OUTCOME_FAILURE));
+        for (AdmissionLane lane : AdmissionLane.values()) {
+            admissionWaits.put(lane, Timer.builder("agri_saga_admission_wait_seconds")
+                    .description("Time a saga spent queued before admission")
+                    .tags("lane", lane.name())
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
     }
 
     public void incStarted() { sagasStarted.increment(); }
     public void incFailed() { sagasFailed.increment(); }
     public void incCompleted() { sagasCompleted.increment(); }
+
+    public void incDeadLetter(String topic) {
+        registry.counter("agri_saga_dead_letters_total", "topic", topic).increment();
+    }
+
+    /**
+     * Record the time a saga spent in {@code step}, from entering the step until its reply arrived.
+     * Sagas created before step timestamps existed have no start time and are skipped.
+     */
+    public void recordStep(SagaStep step, Instant stepStartedAt, String outcome) {
+        if (stepStartedAt == null) {
+            return;
+        }
+        stepDurations.get(step).get(outcome).record(Duration.between(stepStartedAt, Instant.now()));
+    }
+
+    /**
+     * Record the end-to-end time from the {@code OrderCreatedEvent} to the terminal state of the saga.
+     */
+    public void recordEndToEnd(Instant orderCreatedAt, String outcome) {
+        if (orderCreatedAt == null) {
+            return;
+        }
+        endToEndDurations.get(outcome).record(Duration.between(orderCreatedAt, Instant.now()));
+    }
+
+    public void recordCompensation(Instant compensationStartedAt) {
+        if (compensationStartedAt == null) {
+            return;
+        }
+        compensationDuration.record(Duration.between(compensationStartedAt, Instant.now()));
+    }
+
+    public void recordCompensationBatch(int sagas) {
+        compensationBatchSize.record(sagas);
+    }
+
+    public void registerBackpressureGauges(Supplier<Number> outstanding, Supplier<Number> lag, Supplier<Number> throttled) {
+        Gauge.builder("agri_saga_reserve_commands_outstanding", outstanding)
+                .description("RESERVE_INVENTORY commands sent by this instance without an inventory reply")
+                .register(registry);
+        Gauge.builder("agri_saga_inventory_commands_lag", lag)
+                .description("Last observed consumer lag of the inventory service on inventory.commands")
+                .register(registry);
+        Gauge.builder("agri_saga_order_intake_throttled", throttled)
+                .description("1 while order intake is paused by inventory backpressure")
+                .register(registry);
+    }
+
+    public void registerAdmissionQueueDepth(AdmissionLane lane, Supplier<Number> depth) {
+        Gauge.builder("agri_saga_admission_queue_depth", depth)
+                .description("Sagas queued for admission")
+                .tags("lane", lane.name())
+                .register(registry);
+    }
+
+    /**
+     * Record how long a saga waited in its admission lane before it was started.
+     */
+    public void recordAdmissionWait(AdmissionLane lane, Instant queuedAt) {
+        if (queuedAt == null) {
+            return;
+        }
+        admissionWaits.get(lane).record(Duration.between(queuedAt, Instant.now()));
+    }
+
+    private Timer stepTimer(SagaStep step, String outcome) {
+        return Timer.builder("agri_saga_step_duration_seconds")
+                .description("Time spent in each saga step, until the downstream reply arrived")
+                .tags("step", step.name(), "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Timer endToEndTimer(String outcome) {
+        return Timer.builder("agri_saga_end_to_end_duration_seconds")
+                .description("Time from OrderCreatedEvent to saga completion or failure")
+                .tags("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Replace the active saga gauges with the given counts. Combinations that are no longer
+     * present are removed rather than reported as zero.
+     */
+    public void updateActiveSagas(Map<SagaStatus, Map<SagaStep, Long>> counts) {
+        List<MultiGauge.Row<?>> rows = counts.entrySet().stream()
+                .flatMap(byStatus -> byStatus.getValue().entrySet().stream()
+                        .map(byStep -> MultiGauge.Row.of(
+                                Tags.of("status", byStatus.getKey().name(), "step", byStep.getKey().name()),
+                                byStep.getValue())))
+                .map(row -> (MultiGauge.Row<?>) row)
+                .toList();
+        activeSagas.register(rows, true);
+    }
 }
@@ -0,0 +1,5 @@
+-- Hibernate generates a CHECK constraint listing the enum values when it creates
+-- procurement_sagas, and ddl-auto=update never widens it. Drop it so the QUEUED
+-- status can be stored; on a fresh database the table does not exist yet and
+-- Hibernate creates it with the current enum values.
+ALTER TABLE IF EXISTS procurement_sagas DROP CONSTRAINT IF EXISTS procurement_sagas_status_check;